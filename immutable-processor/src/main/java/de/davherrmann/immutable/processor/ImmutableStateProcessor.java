@@ -0,0 +1,83 @@
+package de.davherrmann.immutable.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Collections;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+
+// generates <Name>Value and <Name>Paths for interfaces annotated with @ImmutableState
+public class ImmutableStateProcessor extends AbstractProcessor
+{
+    static final String IMMUTABLE_STATE = "de.davherrmann.immutable.ImmutableState";
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes()
+    {
+        return Collections.singleton(IMMUTABLE_STATE);
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion()
+    {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnvironment)
+    {
+        for (TypeElement annotation : annotations)
+        {
+            for (Element element : roundEnvironment.getElementsAnnotatedWith(annotation))
+            {
+                if (element.getKind() != ElementKind.INTERFACE)
+                {
+                    processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                        "@ImmutableState can only be used on interfaces", element);
+                    continue;
+                }
+
+                if (!((TypeElement) element).getTypeParameters().isEmpty())
+                {
+                    processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                        "@ImmutableState can not be used on generic interfaces", element);
+                    continue;
+                }
+
+                final StateInterface stateInterface = new StateInterface((TypeElement) element,
+                    processingEnv.getElementUtils(), processingEnv.getTypeUtils());
+
+                write(stateInterface, stateInterface.valueClassName(), new ValueClassSource(stateInterface).toString());
+                write(stateInterface, stateInterface.pathsClassName(), new PathsClassSource(stateInterface).toString());
+            }
+        }
+        return true;
+    }
+
+    private void write(StateInterface stateInterface, String className, String source)
+    {
+        final String packageName = stateInterface.packageName();
+        final String qualifiedClassName = packageName.isEmpty()
+            ? className
+            : packageName + "." + className;
+
+        try (Writer writer = processingEnv.getFiler()
+            .createSourceFile(qualifiedClassName, stateInterface.element())
+            .openWriter())
+        {
+            writer.write(source);
+        }
+        catch (IOException e)
+        {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                "Could not write " + qualifiedClassName + ": " + e.getMessage(), stateInterface.element());
+        }
+    }
+}
@@ -0,0 +1,270 @@
+package de.davherrmann.immutable.processor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+
+// <Name>Paths: a Path constant plus typed in/get methods for every getter, nested state interfaces are flattened
+// (recursive ones only down to their first repetition)
+class PathsClassSource
+{
+    private final StateInterface stateInterface;
+    private final String immutableType;
+
+    PathsClassSource(StateInterface stateInterface)
+    {
+        this.stateInterface = stateInterface;
+        this.immutableType = "de.davherrmann.immutable.Immutable<" + stateInterface.qualifiedName() + ">";
+    }
+
+    @Override
+    public String toString()
+    {
+        final List<Property> properties = new ArrayList<>();
+        collectProperties(stateInterface, null, new ArrayList<>(), properties);
+
+        final StringBuilder source = new StringBuilder();
+
+        if (!stateInterface.packageName().isEmpty())
+        {
+            source.append("package ").append(stateInterface.packageName()).append(";\n\n");
+        }
+
+        source.append("// generated by ImmutableStateProcessor from ").append(stateInterface.qualifiedName()).append("\n");
+        source.append("public final class ").append(stateInterface.pathsClassName()).append("\n");
+        source.append("{\n");
+
+        for (Property property : properties)
+        {
+            source.append("    public static final de.davherrmann.immutable.Path ").append(property.constantName()) //
+                .append(" = ").append(property.parent == null
+                ? "de.davherrmann.immutable.Path.root()"
+                : property.parent.constantName()) //
+                .append(".child(\"").append(property.getter.getSimpleName()).append("\");\n");
+        }
+
+        source.append("\n    private ").append(stateInterface.pathsClassName()).append("()\n");
+        source.append("    {\n");
+        source.append("    }\n");
+
+        for (Property property : properties)
+        {
+            appendIn(source, property);
+            appendGet(source, property);
+        }
+
+        source.append("}\n");
+        return source.toString();
+    }
+
+    private void collectProperties(StateInterface current, Property parent, List<StateInterface> enclosingStates,
+        List<Property> properties)
+    {
+        enclosingStates.add(current);
+
+        for (ExecutableElement getter : current.getters())
+        {
+            final Property property = new Property(current, getter, parent);
+            properties.add(property);
+
+            final StateInterface nestedState = current.nestedStateOf(getter);
+            if (nestedState != null && !enclosingStates.contains(nestedState))
+            {
+                collectProperties(nestedState, property, enclosingStates, properties);
+            }
+        }
+
+        enclosingStates.remove(enclosingStates.size() - 1);
+    }
+
+    private void appendIn(StringBuilder source, Property property)
+    {
+        if (property.isList())
+        {
+            source.append("\n    public static ").append(immutableType).append(".InList<") //
+                .append(property.listItemType()).append("> in").append(property.methodSuffix()) //
+                .append("(").append(immutableType).append(" immutable)\n");
+            source.append("    {\n");
+            source.append("        return immutable.inList(").append(property.constantName()).append(");\n");
+            source.append("    }\n");
+            return;
+        }
+
+        source.append("\n    public static ").append(immutableType).append(".In<").append(property.boxedType()) //
+            .append("> in").append(property.methodSuffix()) //
+            .append("(").append(immutableType).append(" immutable)\n");
+        source.append("    {\n");
+        source.append("        return immutable.in(").append(property.constantName()).append(", ") //
+            .append(property.defaultValue()).append(");\n");
+        source.append("    }\n");
+    }
+
+    private void appendGet(StringBuilder source, Property property)
+    {
+        final StateInterface nestedState = property.owner.nestedStateOf(property.getter);
+
+        if (nestedState != null && !nestedState.isAnnotated())
+        {
+            // nested interfaces without a value class are only reachable through asObject()
+            return;
+        }
+
+        source.append("\n    public static ").append(property.getter.getReturnType()).append(" get") //
+            .append(property.methodSuffix()).append("(").append(immutableType).append(" immutable)\n");
+        source.append("    {\n");
+
+        if (nestedState != null)
+        {
+            source.append("        final java.util.Map<String, Object> values = immutable.get(") //
+                .append(property.constantName()).append(");\n");
+            source.append("        return values == null\n");
+            source.append("            ? null\n");
+            source.append("            : new ").append(qualifiedValueClassName(nestedState)).append("(values);\n");
+        }
+        else if (property.unboxedGetter() != null)
+        {
+            source.append("        return immutable.").append(property.unboxedGetter()).append("(") //
+                .append(property.constantName()).append(");\n");
+        }
+        else if (property.isPrimitive())
+        {
+            source.append("        final ").append(property.storedType()).append(" value = immutable.get(") //
+                .append(property.constantName()).append(");\n");
+            source.append("        return value == null\n");
+            source.append("            ? ").append(property.defaultValue()).append("\n");
+            source.append("            : ").append(property.unboxed("value")).append(";\n");
+        }
+        else
+        {
+            source.append("        return immutable.get(").append(property.constantName()).append(");\n");
+        }
+
+        source.append("    }\n");
+    }
+
+    private static String qualifiedValueClassName(StateInterface stateInterface)
+    {
+        return stateInterface.packageName().isEmpty()
+            ? stateInterface.valueClassName()
+            : stateInterface.packageName() + "." + stateInterface.valueClassName();
+    }
+
+    private static class Property
+    {
+        private final StateInterface owner;
+        private final ExecutableElement getter;
+        private final Property parent;
+
+        private Property(StateInterface owner, ExecutableElement getter, Property parent)
+        {
+            this.owner = owner;
+            this.getter = getter;
+            this.parent = parent;
+        }
+
+        private String constantName()
+        {
+            final String name = getter.getSimpleName().toString().replaceAll("([a-z0-9])([A-Z])", "$1_$2")
+                .toUpperCase();
+            return parent == null
+                ? name
+                : parent.constantName() + "_" + name;
+        }
+
+        private String methodSuffix()
+        {
+            final String name = getter.getSimpleName().toString();
+            final String suffix = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+            return parent == null
+                ? suffix
+                : parent.methodSuffix() + suffix;
+        }
+
+        private boolean isList()
+        {
+            return owner.isList(getter);
+        }
+
+        private boolean isPrimitive()
+        {
+            return getter.getReturnType().getKind().isPrimitive();
+        }
+
+        private TypeMirror boxedType()
+        {
+            return owner.boxedReturnType(getter);
+        }
+
+        private String listItemType()
+        {
+            final String listType = getter.getReturnType().toString();
+            final int typeArgumentStart = listType.indexOf('<');
+            return typeArgumentStart < 0
+                ? "Object"
+                : listType.substring(typeArgumentStart + 1, listType.length() - 1);
+        }
+
+        // numbers may come back as any Number, e.g. after JSON deserialisation
+        private String storedType()
+        {
+            final TypeKind kind = getter.getReturnType().getKind();
+            return kind == TypeKind.BOOLEAN || kind == TypeKind.CHAR
+                ? boxedType().toString()
+                : "Number";
+        }
+
+        private String unboxed(String variable)
+        {
+            final TypeKind kind = getter.getReturnType().getKind();
+            return kind == TypeKind.BOOLEAN || kind == TypeKind.CHAR
+                ? variable
+                : variable + "." + kind.name().toLowerCase() + "Value()";
+        }
+
+        // Immutable reads these types without boxing
+        private String unboxedGetter()
+        {
+            switch (getter.getReturnType().getKind())
+            {
+                case BOOLEAN:
+                    return "getBoolean";
+                case INT:
+                    return "getInt";
+                case LONG:
+                    return "getLong";
+                case DOUBLE:
+                    return "getDouble";
+                default:
+                    return null;
+            }
+        }
+
+        private String defaultValue()
+        {
+            switch (getter.getReturnType().getKind())
+            {
+                case BOOLEAN:
+                    return "false";
+                case CHAR:
+                    return "(char) 0";
+                case BYTE:
+                    return "(byte) 0";
+                case SHORT:
+                    return "(short) 0";
+                case INT:
+                    return "0";
+                case LONG:
+                    return "0L";
+                case FLOAT:
+                    return "0f";
+                case DOUBLE:
+                    return "0d";
+                default:
+                    return "null";
+            }
+        }
+    }
+}
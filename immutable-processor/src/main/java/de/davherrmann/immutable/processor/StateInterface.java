@@ -0,0 +1,167 @@
+package de.davherrmann.immutable.processor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+
+// the getters of a state interface, sorted by name like the slots of de.davherrmann.immutable.Schema
+class StateInterface
+{
+    // methods of Object and Immutable.ImmutableNode
+    private static final Set<String> NON_GETTER_NAMES = new HashSet<>(
+        Arrays.asList("getClass", "hashCode", "toString", "values"));
+
+    private final TypeElement element;
+    private final Elements elements;
+    private final Types types;
+    private final List<ExecutableElement> getters;
+
+    StateInterface(TypeElement element, Elements elements, Types types)
+    {
+        this.element = element;
+        this.elements = elements;
+        this.types = types;
+        this.getters = gettersOf(element, elements);
+    }
+
+    TypeElement element()
+    {
+        return element;
+    }
+
+    List<ExecutableElement> getters()
+    {
+        return getters;
+    }
+
+    String packageName()
+    {
+        return elements.getPackageOf(element).getQualifiedName().toString();
+    }
+
+    String qualifiedName()
+    {
+        return element.getQualifiedName().toString();
+    }
+
+    String valueClassName()
+    {
+        return flatName() + "Value";
+    }
+
+    String pathsClassName()
+    {
+        return flatName() + "Paths";
+    }
+
+    StateInterface nestedStateOf(ExecutableElement getter)
+    {
+        final TypeMirror returnType = getter.getReturnType();
+
+        if (returnType.getKind() != TypeKind.DECLARED)
+        {
+            return null;
+        }
+
+        final TypeElement returnElement = (TypeElement) ((DeclaredType) returnType).asElement();
+        final boolean hasNestedState = returnElement.getKind() == ElementKind.INTERFACE //
+            && !returnElement.getQualifiedName().toString().startsWith("java.") //
+            && !isSubtypeOf(returnType, "java.util.Collection") //
+            && !isSubtypeOf(returnType, "java.util.Map");
+
+        return hasNestedState
+            ? new StateInterface(returnElement, elements, types)
+            : null;
+    }
+
+    boolean isList(ExecutableElement getter)
+    {
+        final TypeMirror returnType = getter.getReturnType();
+        return returnType.getKind() == TypeKind.DECLARED //
+            && ((DeclaredType) returnType).asElement().toString().equals("java.util.List");
+    }
+
+    boolean isAnnotated()
+    {
+        return element.getAnnotationMirrors().stream().anyMatch(annotation -> annotation.getAnnotationType() //
+            .toString() //
+            .equals(ImmutableStateProcessor.IMMUTABLE_STATE));
+    }
+
+    TypeMirror boxedReturnType(ExecutableElement getter)
+    {
+        final TypeMirror returnType = getter.getReturnType();
+        return returnType.getKind().isPrimitive()
+            ? types.boxedClass(types.getPrimitiveType(returnType.getKind())).asType()
+            : returnType;
+    }
+
+    TypeMirror erasedReturnType(ExecutableElement getter)
+    {
+        return types.erasure(getter.getReturnType());
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        return o instanceof StateInterface && ((StateInterface) o).element.equals(element);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return element.hashCode();
+    }
+
+    private boolean isSubtypeOf(TypeMirror type, String superType)
+    {
+        final TypeElement superElement = elements.getTypeElement(superType);
+        return superElement != null && types.isSubtype(types.erasure(type), types.erasure(superElement.asType()));
+    }
+
+    private String flatName()
+    {
+        final StringBuilder name = new StringBuilder(element.getSimpleName());
+        for (Element enclosing = element.getEnclosingElement(); !(enclosing instanceof PackageElement);
+             enclosing = enclosing.getEnclosingElement())
+        {
+            name.insert(0, enclosing.getSimpleName() + "_");
+        }
+        return name.toString();
+    }
+
+    private static List<ExecutableElement> gettersOf(TypeElement element, Elements elements)
+    {
+        final Map<String, ExecutableElement> getters = new TreeMap<>();
+
+        for (ExecutableElement method : ElementFilter.methodsIn(elements.getAllMembers(element)))
+        {
+            if (method.getParameters().isEmpty() //
+                && method.getReturnType().getKind() != TypeKind.VOID //
+                && method.getModifiers().contains(Modifier.ABSTRACT) //
+                && !NON_GETTER_NAMES.contains(method.getSimpleName().toString()))
+            {
+                getters.putIfAbsent(method.getSimpleName().toString(), method);
+            }
+        }
+
+        return new ArrayList<>(getters.values());
+    }
+}
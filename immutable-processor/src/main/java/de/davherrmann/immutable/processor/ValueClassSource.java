@@ -0,0 +1,89 @@
+package de.davherrmann.immutable.processor;
+
+import java.util.List;
+
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.type.TypeKind;
+
+// <Name>Value: a GeneratedAccessor reading every getter from its slot, picked up by Immutable.asObject()
+class ValueClassSource
+{
+    private final StateInterface stateInterface;
+
+    ValueClassSource(StateInterface stateInterface)
+    {
+        this.stateInterface = stateInterface;
+    }
+
+    @Override
+    public String toString()
+    {
+        final String className = stateInterface.valueClassName();
+        final StringBuilder source = new StringBuilder();
+
+        if (!stateInterface.packageName().isEmpty())
+        {
+            source.append("package ").append(stateInterface.packageName()).append(";\n\n");
+        }
+
+        source.append("// generated by ImmutableStateProcessor from ").append(stateInterface.qualifiedName()).append("\n");
+        source.append("@SuppressWarnings(\"unchecked\")\n");
+        source.append("public final class ").append(className) //
+            .append(" extends de.davherrmann.immutable.GeneratedAccessor implements ") //
+            .append(stateInterface.qualifiedName()).append("\n");
+        source.append("{\n");
+
+        // checked against the schema at runtime, the value class is only used if its slots are still the same
+        final List<ExecutableElement> getters = stateInterface.getters();
+        source.append("    public static final java.util.List<String> SLOT_NAMES = ")
+            .append("java.util.Collections.unmodifiableList(java.util.Arrays.asList(");
+        for (int slot = 0; slot < getters.size(); slot++)
+        {
+            source.append(slot == 0
+                ? ""
+                : ", ").append('"').append(getters.get(slot).getSimpleName()).append('"');
+        }
+        source.append("));\n\n");
+
+        source.append("    public ").append(className).append("(java.util.Map<String, Object> values)\n");
+        source.append("    {\n");
+        source.append("        super(values, ").append(stateInterface.qualifiedName()).append(".class);\n");
+        source.append("    }\n\n");
+
+        source.append("    @Override\n");
+        source.append("    protected de.davherrmann.immutable.GeneratedAccessor newInstance(")
+            .append("java.util.Map<String, Object> values)\n");
+        source.append("    {\n");
+        source.append("        return new ").append(className).append("(values);\n");
+        source.append("    }\n");
+
+        for (int slot = 0; slot < getters.size(); slot++)
+        {
+            final ExecutableElement getter = getters.get(slot);
+            final String name = getter.getSimpleName().toString();
+
+            source.append("\n    @Override\n");
+            source.append("    public ").append(getter.getReturnType()).append(" ").append(name).append("()\n");
+            source.append("    {\n");
+            source.append("        return ").append(valueExpression(getter, slot, name)).append(";\n");
+            source.append("    }\n");
+        }
+
+        source.append("}\n");
+        return source.toString();
+    }
+
+    private String valueExpression(ExecutableElement getter, int slot, String name)
+    {
+        final TypeKind kind = getter.getReturnType().getKind();
+        final String arguments = slot + ", \"" + name + "\"";
+
+        if (kind.isPrimitive())
+        {
+            return kind.name().toLowerCase() + "Value(" + arguments + ")";
+        }
+
+        return "(" + getter.getReturnType() + ") object(" + arguments + ", " //
+            + stateInterface.erasedReturnType(getter) + ".class)";
+    }
+}
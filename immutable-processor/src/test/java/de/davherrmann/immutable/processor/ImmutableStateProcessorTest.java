@@ -0,0 +1,191 @@
+package de.davherrmann.immutable.processor;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.gson.Gson;
+import com.google.common.collect.ImmutableList;
+
+import de.davherrmann.immutable.Immutable;
+import de.davherrmann.immutable.Path;
+
+public class ImmutableStateProcessorTest
+{
+    private static final String PERSON = "" //
+        + "package com.example;\n" //
+        + "\n" //
+        + "import java.util.List;\n" //
+        + "\n" //
+        + "import de.davherrmann.immutable.ImmutableState;\n" //
+        + "\n" //
+        + "@ImmutableState\n" //
+        + "public interface Person\n" //
+        + "{\n" //
+        + "    String name();\n" //
+        + "    int age();\n" //
+        + "    boolean wantsNewsletter();\n" //
+        + "    List<String> nicknames();\n" //
+        + "    Address address();\n" //
+        + "    Person partner();\n" //
+        + "\n" //
+        + "    @ImmutableState\n" //
+        + "    interface Address\n" //
+        + "    {\n" //
+        + "        String street();\n" //
+        + "    }\n" //
+        + "}\n";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void process_generatesPathConstants() throws Exception
+    {
+        // when
+        final ClassLoader classLoader = compile(PERSON);
+
+        // then
+        final Class<?> paths = classLoader.loadClass("com.example.PersonPaths");
+        assertThat(paths.getField("NAME").get(null), is(Path.of("name")));
+        assertThat(paths.getField("WANTS_NEWSLETTER").get(null), is(Path.of("wantsNewsletter")));
+        assertThat(paths.getField("ADDRESS_STREET").get(null), is(Path.of("address", "street")));
+        assertThat(paths.getField("PARTNER").get(null), is(Path.of("partner")));
+    }
+
+    @Test
+    public void process_generatesTypedAccessors() throws Exception
+    {
+        // given
+        final ClassLoader classLoader = compile(PERSON);
+        final Class<?> paths = classLoader.loadClass("com.example.PersonPaths");
+        final Immutable<?> immutable = new Immutable<>(classLoader.loadClass("com.example.Person"));
+
+        // when
+        final Immutable<?> immutableWithName = set(invoke(paths, "inName", immutable), "Foo");
+        final Immutable<?> newImmutable = set(invoke(paths, "inAddressStreet", immutableWithName), "Bar");
+
+        // then
+        assertThat(invoke(paths, "getName", newImmutable), is("Foo"));
+        assertThat(invoke(paths, "getAge", newImmutable), is(0));
+        assertThat(invoke(paths, "getAddressStreet", newImmutable), is("Bar"));
+        assertThat(invoke(paths, "getPartner", newImmutable), is(nullValue()));
+        assertThat(invoke(paths, "getAddress", newImmutable),
+            is(instanceOf(classLoader.loadClass("com.example.Person_AddressValue"))));
+    }
+
+    @Test
+    public void process_generatesValueClassUsedByAsObject() throws Exception
+    {
+        // given
+        final ClassLoader classLoader = compile(PERSON);
+        final Class<?> paths = classLoader.loadClass("com.example.PersonPaths");
+        final Immutable<?> immutable = new Immutable<>(classLoader.loadClass("com.example.Person"));
+        final Immutable<?> newImmutable = set(invoke(paths, "inAge", immutable), 42);
+
+        // when
+        final Object person = newImmutable.asObject();
+
+        // then
+        assertThat(person, is(instanceOf(classLoader.loadClass("com.example.PersonValue"))));
+        assertThat(person.getClass().getMethod("age").invoke(person), is(42));
+        assertThat(invoke(paths, "getAge", newImmutable), is(42));
+        assertThat(person.getClass().getMethod("name").invoke(person), is(nullValue()));
+        assertThat(person.getClass().getField("SLOT_NAMES").get(null), is(Arrays.asList("address", "age", "name",
+            "nicknames", "partner", "wantsNewsletter")));
+    }
+
+    @Test
+    public void process_rejectsClasses() throws Exception
+    {
+        // when
+        final String errors = compileWithErrors("" //
+            + "package com.example;\n" //
+            + "@de.davherrmann.immutable.ImmutableState\n" //
+            + "public class Person\n" //
+            + "{\n" //
+            + "}\n");
+
+        // then
+        assertThat(errors, containsString("@ImmutableState can only be used on interfaces"));
+    }
+
+    private ClassLoader compile(String source) throws IOException
+    {
+        final File output = folder.newFolder();
+        final String errors = compile(source, output);
+        assertThat(errors, is(""));
+        return new URLClassLoader(new URL[]{output.toURI().toURL()}, getClass().getClassLoader());
+    }
+
+    private String compileWithErrors(String source) throws IOException
+    {
+        return compile(source, folder.newFolder());
+    }
+
+    private String compile(String source, File output) throws IOException
+    {
+        final File sourceFile = new File(folder.newFolder("com", "example"), "Person.java");
+        Files.write(sourceFile.toPath(), source.getBytes(StandardCharsets.UTF_8));
+
+        final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        final StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, null);
+        final Iterable<? extends JavaFileObject> sources = fileManager.getJavaFileObjects(sourceFile);
+        final StringWriter diagnostics = new StringWriter();
+
+        final JavaCompiler.CompilationTask task = compiler.getTask(diagnostics, fileManager, null,
+            asList("-classpath", classPath(), "-d", output.getPath(), "-s", output.getPath()), null, sources);
+        task.setProcessors(singletonList(new ImmutableStateProcessor()));
+        task.call();
+
+        return diagnostics.toString();
+    }
+
+    private static String classPath()
+    {
+        final List<String> entries = new ArrayList<>();
+        for (Class<?> type : asList(Immutable.class, Gson.class, ImmutableList.class))
+        {
+            entries.add(type.getProtectionDomain().getCodeSource().getLocation().getPath());
+        }
+        return entries.stream().collect(Collectors.joining(File.pathSeparator));
+    }
+
+    private static Object invoke(Class<?> paths, String name, Immutable<?> immutable) throws Exception
+    {
+        final Method method = paths.getMethod(name, Immutable.class);
+        return method.invoke(null, immutable);
+    }
+
+    private static Immutable<?> set(Object in, Object value) throws Exception
+    {
+        final Method set = in.getClass().getMethod("set", Object.class);
+        return (Immutable<?>) set.invoke(in, value);
+    }
+}
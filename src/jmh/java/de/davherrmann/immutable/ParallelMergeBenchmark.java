@@ -0,0 +1,72 @@
+package de.davherrmann.immutable;
+
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+// sequential compared with parallel merge and diff of two unshared trees with 32^3 leafs
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ParallelMergeBenchmark
+{
+    private final NextImmutable nextImmutable = new NextImmutable();
+
+    @Param({"4096"})
+    private int threshold;
+
+    private Map<String, Object> dataStructure0;
+    private Map<String, Object> dataStructure1;
+
+    @Setup
+    public void setup()
+    {
+        dataStructure0 = tree(2, 32, "Foo");
+        dataStructure1 = tree(2, 32, "Bar");
+    }
+
+    @Benchmark
+    public Map<String, Object> merge()
+    {
+        return nextImmutable.merge(dataStructure0, dataStructure1);
+    }
+
+    @Benchmark
+    public Map<String, Object> parallelMerge()
+    {
+        return nextImmutable.parallelMerge(dataStructure0, dataStructure1, ForkJoinPool.commonPool(), threshold);
+    }
+
+    @Benchmark
+    public Map<String, Object> diff()
+    {
+        return nextImmutable.diff(dataStructure0, dataStructure1);
+    }
+
+    @Benchmark
+    public Map<String, Object> parallelDiff()
+    {
+        return nextImmutable.parallelDiff(dataStructure0, dataStructure1, ForkJoinPool.commonPool(), threshold);
+    }
+
+    private Map<String, Object> tree(int depth, int width, String value)
+    {
+        PersistentNode node = nextImmutable.node(NextImmutable.IMMUTABLE_NODE);
+        for (int i = 0; i < width; i++)
+        {
+            node = node.with(String.valueOf(i), depth == 0
+                ? value + i
+                : tree(depth - 1, width, value));
+        }
+        return node;
+    }
+}
@@ -0,0 +1,61 @@
+package de.davherrmann.immutable;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+// boxed get/set compared with the unboxed getInt/setInt on a schema backed immutable
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PrimitiveLeafBenchmark
+{
+    private static final Path COUNT = Path.of("pojo", "count");
+
+    private Immutable<POJO> immutable;
+    private int counter;
+
+    @Setup
+    public void setup()
+    {
+        immutable = Immutable.withSchema(POJO.class).in(COUNT, 0).setInt(42);
+    }
+
+    @Benchmark
+    public int getBoxed()
+    {
+        final Integer value = immutable.get(COUNT);
+        return value;
+    }
+
+    @Benchmark
+    public int getUnboxed()
+    {
+        return immutable.getInt(COUNT);
+    }
+
+    @Benchmark
+    public Immutable<POJO> setBoxed()
+    {
+        return immutable.in(COUNT, 0).set(counter++ & 1023);
+    }
+
+    @Benchmark
+    public Immutable<POJO> setUnboxed()
+    {
+        return immutable.in(COUNT, 0).setInt(counter++ & 1023);
+    }
+
+    public interface POJO
+    {
+        int count();
+
+        POJO pojo();
+    }
+}
@@ -0,0 +1,77 @@
+package de.davherrmann.immutable;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+// update throughput of a shared state, run with -t 1, -t 2, ... to compare how the stores scale with threads
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class StoreUpdateBenchmark
+{
+    private static final Path COUNT = Path.of("pojo", "count");
+    private static final Function<Immutable<POJO>, Immutable<POJO>> INCREMENT = //
+        state -> state.in(COUNT, 0).setInt(state.getInt(COUNT) + 1);
+
+    private SynchronizedHolder synchronizedHolder;
+    private AtomicStore<POJO> atomicStore;
+    private AtomicStore<POJO> combiningStore;
+
+    @Setup
+    public void setup()
+    {
+        final Immutable<POJO> immutable = Immutable.withSchema(POJO.class);
+        synchronizedHolder = new SynchronizedHolder(immutable);
+        atomicStore = new AtomicStore<>(immutable);
+        combiningStore = AtomicStore.combining(immutable);
+    }
+
+    @Benchmark
+    public Immutable<POJO> synchronizedHolder()
+    {
+        return synchronizedHolder.update(INCREMENT);
+    }
+
+    @Benchmark
+    public Immutable<POJO> compareAndSet()
+    {
+        return atomicStore.update(INCREMENT);
+    }
+
+    @Benchmark
+    public Immutable<POJO> flatCombining()
+    {
+        return combiningStore.update(INCREMENT);
+    }
+
+    private static final class SynchronizedHolder
+    {
+        private Immutable<POJO> state;
+
+        private SynchronizedHolder(Immutable<POJO> state)
+        {
+            this.state = state;
+        }
+
+        private synchronized Immutable<POJO> update(Function<Immutable<POJO>, Immutable<POJO>> updater)
+        {
+            state = updater.apply(state);
+            return state;
+        }
+    }
+
+    public interface POJO
+    {
+        int count();
+
+        POJO pojo();
+    }
+}
@@ -0,0 +1,40 @@
+package de.davherrmann.immutable;
+
+import java.util.function.Function;
+
+// set and update of one path, shared by Immutable.In and the draft's DraftIn so both write the same values; public
+// for reflective callers of the inherited methods, but only extensible in this package
+public abstract class AbstractIn<T, R>
+{
+    private final Object defaultValue;
+
+    AbstractIn(Object defaultValue)
+    {
+        this.defaultValue = defaultValue;
+    }
+
+    abstract R write(Object value);
+
+    abstract Object read();
+
+    public R set(T value)
+    {
+        return write(value instanceof Immutable.ImmutableNode
+            ? ((Immutable.ImmutableNode) value).values()
+            : value);
+    }
+
+    public R set(Immutable<T> immutableValue)
+    {
+        return set(immutableValue.asObject());
+    }
+
+    @SuppressWarnings("unchecked")
+    public R update(Function<T, T> updater)
+    {
+        final Object value = read();
+        return set(updater.apply((T) (value == null
+            ? defaultValue
+            : value)));
+    }
+}
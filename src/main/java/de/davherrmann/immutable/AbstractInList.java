@@ -0,0 +1,47 @@
+package de.davherrmann.immutable;
+
+import java.util.List;
+import java.util.function.Function;
+
+// set and update of one list, shared by Immutable.InList and the draft's DraftInList
+public abstract class AbstractInList<LT, R>
+{
+    private final List<LT> defaultValue;
+
+    AbstractInList(List<LT> defaultValue)
+    {
+        this.defaultValue = defaultValue;
+    }
+
+    abstract R write(List<LT> value);
+
+    abstract Object read();
+
+    public R set(List<LT> value)
+    {
+        return write(value);
+    }
+
+    public R set(ImmutableList<LT> value)
+    {
+        return set(value.asList());
+    }
+
+    @SuppressWarnings("unchecked")
+    public R update(Function<ImmutableList<LT>, ImmutableList<LT>> updater)
+    {
+        final Object value = read();
+        return set(updater.apply(value == null
+            ? new ImmutableList<>()
+            : ImmutableList.copyOf((List<LT>) value)));
+    }
+
+    @SuppressWarnings("unchecked")
+    public R updateList(Function<List<LT>, List<LT>> updater)
+    {
+        final Object value = read();
+        return set(updater.apply(value == null
+            ? defaultValue
+            : (List<LT>) value));
+    }
+}
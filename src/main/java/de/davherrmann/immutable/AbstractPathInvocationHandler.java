@@ -1,16 +1,14 @@
 package de.davherrmann.immutable;
 
 import java.lang.reflect.Method;
-import java.util.List;
 
-import com.google.common.collect.ImmutableList;
 import com.google.common.reflect.AbstractInvocationHandler;
 
 public abstract class AbstractPathInvocationHandler extends AbstractInvocationHandler
 {
-    private final List<String> path;
+    private final Path path;
 
-    public AbstractPathInvocationHandler(List<String> path)
+    public AbstractPathInvocationHandler(Path path)
     {
         this.path = path;
     }
@@ -21,13 +19,15 @@ public abstract class AbstractPathInvocationHandler extends AbstractInvocationHa
         return handleInvocation(path, method);
     }
 
-    protected List<String> pathWith(Method method)
+    protected Path path()
     {
-        return ImmutableList.<String>builder() //
-            .addAll(path) //
-            .add(method.getName()) //
-            .build();
+        return path;
     }
 
-    protected abstract Object handleInvocation(List<String> path, Method method) throws Throwable;
+    protected Path pathWith(Method method)
+    {
+        return path.child(method.getName());
+    }
+
+    protected abstract Object handleInvocation(Path path, Method method) throws Throwable;
 }
@@ -0,0 +1,321 @@
+package de.davherrmann.immutable;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static com.google.common.collect.Maps.newHashMap;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.collect.ImmutableMap;
+
+// writes the class file of a GeneratedAccessor subclass implementing the getters of an interface
+class AccessorClassWriter
+{
+    private static final String BASE_CLASS = internalName(GeneratedAccessor.class);
+    private static final String MAP_DESCRIPTOR = "Ljava/util/Map;";
+
+    private static final Map<Class<?>, String> primitiveValueMethods = ImmutableMap.<Class<?>, String>builder() //
+        .put(boolean.class, "booleanValue") //
+        .put(char.class, "charValue") //
+        .put(byte.class, "byteValue") //
+        .put(short.class, "shortValue") //
+        .put(int.class, "intValue") //
+        .put(long.class, "longValue") //
+        .put(float.class, "floatValue") //
+        .put(double.class, "doubleValue") //
+        .build();
+
+    private static final int ACC_PUBLIC = 0x0001;
+    private static final int ACC_FINAL = 0x0010;
+    private static final int ACC_SUPER = 0x0020;
+
+    private static final int ALOAD_0 = 0x2A;
+    private static final int ALOAD_1 = 0x2B;
+    private static final int SIPUSH = 0x11;
+    private static final int LDC_W = 0x13;
+    private static final int IRETURN = 0xAC;
+    private static final int LRETURN = 0xAD;
+    private static final int FRETURN = 0xAE;
+    private static final int DRETURN = 0xAF;
+    private static final int ARETURN = 0xB0;
+    private static final int RETURN = 0xB1;
+    private static final int INVOKEVIRTUAL = 0xB6;
+    private static final int INVOKESPECIAL = 0xB7;
+    private static final int NEW = 0xBB;
+    private static final int DUP = 0x59;
+    private static final int CHECKCAST = 0xC0;
+
+    private final ByteArrayOutputStream constantPoolBytes = new ByteArrayOutputStream();
+    private final DataOutputStream constantPool = new DataOutputStream(constantPoolBytes);
+    private final Map<String, Integer> constants = newHashMap();
+    private final List<byte[]> methods = newArrayList();
+    private int constantCount = 1;
+
+    private final Class<?> type;
+    private final Schema schema;
+    private final String className;
+
+    AccessorClassWriter(Class<?> type)
+    {
+        this.type = type;
+        this.schema = Schema.of(type);
+        this.className = internalName(type) + "$$ImmutableAccessor";
+    }
+
+    String className()
+    {
+        return className.replace('/', '.');
+    }
+
+    byte[] toByteArray()
+    {
+        try
+        {
+            writeConstructor();
+            writeNewInstance();
+            for (Method method : type.getMethods())
+            {
+                if (Schema.isGetter(method))
+                {
+                    writeGetter(method);
+                }
+            }
+
+            final int thisClass = classConstant(className);
+            final int superClass = classConstant(BASE_CLASS);
+            final int implementedInterface = classConstant(internalName(type));
+
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            final DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);
+            out.writeShort(52);
+            out.writeShort(constantCount);
+            constantPoolBytes.writeTo(out);
+            out.writeShort(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+            out.writeShort(thisClass);
+            out.writeShort(superClass);
+            out.writeShort(1);
+            out.writeShort(implementedInterface);
+            out.writeShort(0);
+            out.writeShort(methods.size());
+            for (byte[] method : methods)
+            {
+                out.write(method);
+            }
+            out.writeShort(0);
+            return bytes.toByteArray();
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writeConstructor() throws IOException
+    {
+        final Code code = new Code();
+        code.op(ALOAD_0);
+        code.op(ALOAD_1);
+        code.op(LDC_W).u2(classConstant(internalName(type)));
+        code.op(INVOKESPECIAL).u2(methodConstant(BASE_CLASS, "<init>", "(" + MAP_DESCRIPTOR + "Ljava/lang/Class;)V"));
+        code.op(RETURN);
+        writeMethod("<init>", "(" + MAP_DESCRIPTOR + ")V", code, 3, 2);
+    }
+
+    private void writeNewInstance() throws IOException
+    {
+        final Code code = new Code();
+        code.op(NEW).u2(classConstant(className));
+        code.op(DUP);
+        code.op(ALOAD_1);
+        code.op(INVOKESPECIAL).u2(methodConstant(className, "<init>", "(" + MAP_DESCRIPTOR + ")V"));
+        code.op(ARETURN);
+        writeMethod("newInstance", "(" + MAP_DESCRIPTOR + ")L" + BASE_CLASS + ";", code, 3, 2);
+    }
+
+    private void writeGetter(Method method) throws IOException
+    {
+        final Class<?> returnType = method.getReturnType();
+        final Code code = new Code();
+
+        code.op(ALOAD_0);
+        code.op(SIPUSH).u2(schema.slotOf(method.getName()));
+        code.op(LDC_W).u2(stringConstant(method.getName()));
+
+        if (returnType.isPrimitive())
+        {
+            final String valueMethod = primitiveValueMethods.get(returnType);
+            final String descriptor = descriptorOf(returnType);
+            code.op(INVOKEVIRTUAL).u2(methodConstant(BASE_CLASS, valueMethod, "(ILjava/lang/String;)" + descriptor));
+            code.op(returnType == long.class
+                ? LRETURN
+                : returnType == float.class
+                    ? FRETURN
+                    : returnType == double.class
+                        ? DRETURN
+                        : IRETURN);
+            writeMethod(method.getName(), "()" + descriptor, code, 3, 1);
+            return;
+        }
+
+        code.op(LDC_W).u2(classConstant(internalName(returnType)));
+        code.op(INVOKEVIRTUAL).u2(
+            methodConstant(BASE_CLASS, "object", "(ILjava/lang/String;Ljava/lang/Class;)Ljava/lang/Object;"));
+        code.op(CHECKCAST).u2(classConstant(internalName(returnType)));
+        code.op(ARETURN);
+        writeMethod(method.getName(), "()" + descriptorOf(returnType), code, 4, 1);
+    }
+
+    private void writeMethod(String name, String descriptor, Code code, int maxStack, int maxLocals)
+        throws IOException
+    {
+        final byte[] bytecode = code.bytes.toByteArray();
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(bytes);
+
+        out.writeShort(ACC_PUBLIC);
+        out.writeShort(utf8Constant(name));
+        out.writeShort(utf8Constant(descriptor));
+        out.writeShort(1);
+        out.writeShort(utf8Constant("Code"));
+        out.writeInt(12 + bytecode.length);
+        out.writeShort(maxStack);
+        out.writeShort(maxLocals);
+        out.writeInt(bytecode.length);
+        out.write(bytecode);
+        out.writeShort(0);
+        out.writeShort(0);
+
+        methods.add(bytes.toByteArray());
+    }
+
+    private int utf8Constant(String value) throws IOException
+    {
+        final Integer index = constants.get("utf8:" + value);
+        if (index != null)
+        {
+            return index;
+        }
+
+        constantPool.writeByte(1);
+        constantPool.writeUTF(value);
+        return addConstant("utf8:" + value);
+    }
+
+    private int classConstant(String internalName) throws IOException
+    {
+        final Integer index = constants.get("class:" + internalName);
+        if (index != null)
+        {
+            return index;
+        }
+
+        final int name = utf8Constant(internalName);
+        constantPool.writeByte(7);
+        constantPool.writeShort(name);
+        return addConstant("class:" + internalName);
+    }
+
+    private int stringConstant(String value) throws IOException
+    {
+        final Integer index = constants.get("string:" + value);
+        if (index != null)
+        {
+            return index;
+        }
+
+        final int utf8 = utf8Constant(value);
+        constantPool.writeByte(8);
+        constantPool.writeShort(utf8);
+        return addConstant("string:" + value);
+    }
+
+    private int methodConstant(String owner, String name, String descriptor) throws IOException
+    {
+        final String key = "method:" + owner + "." + name + descriptor;
+        final Integer index = constants.get(key);
+        if (index != null)
+        {
+            return index;
+        }
+
+        final int ownerClass = classConstant(owner);
+        final int methodName = utf8Constant(name);
+        final int methodDescriptor = utf8Constant(descriptor);
+        constantPool.writeByte(12);
+        constantPool.writeShort(methodName);
+        constantPool.writeShort(methodDescriptor);
+        final int nameAndType = addConstant("nameAndType:" + key);
+
+        constantPool.writeByte(10);
+        constantPool.writeShort(ownerClass);
+        constantPool.writeShort(nameAndType);
+        return addConstant(key);
+    }
+
+    private int addConstant(String key)
+    {
+        constants.put(key, constantCount);
+        return constantCount++;
+    }
+
+    private static String internalName(Class<?> type)
+    {
+        return type.isArray()
+            ? descriptorOf(type)
+            : type.getName().replace('.', '/');
+    }
+
+    private static String descriptorOf(Class<?> type)
+    {
+        if (type.isArray())
+        {
+            return "[" + descriptorOf(type.getComponentType());
+        }
+
+        if (type.isPrimitive())
+        {
+            return type == boolean.class
+                ? "Z"
+                : type == char.class
+                    ? "C"
+                    : type == byte.class
+                        ? "B"
+                        : type == short.class
+                            ? "S"
+                            : type == int.class
+                                ? "I"
+                                : type == long.class
+                                    ? "J"
+                                    : type == float.class
+                                        ? "F"
+                                        : "D";
+        }
+
+        return "L" + internalName(type) + ";";
+    }
+
+    private static class Code
+    {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        private Code op(int opcode)
+        {
+            bytes.write(opcode);
+            return this;
+        }
+
+        private Code u2(int value)
+        {
+            bytes.write(value >>> 8);
+            bytes.write(value);
+            return this;
+        }
+    }
+}
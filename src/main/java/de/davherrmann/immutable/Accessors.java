@@ -0,0 +1,298 @@
+package de.davherrmann.immutable;
+
+import static org.apache.commons.lang3.ClassUtils.isAssignable;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+import java.security.ProtectionDomain;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.base.Defaults;
+import com.google.common.reflect.AbstractInvocationHandler;
+
+// creates objects implementing an interface on top of a node: a value class compiled by the immutable-processor is
+// used if present, otherwise a class is generated per interface on first use, interfaces that cannot be implemented
+// by a generated class are served by a proxy
+final class Accessors
+{
+    static final String ACCESSORS_PROPERTY = "de.davherrmann.immutable.accessors";
+    // the getter names of a processor-generated value class in slot order
+    static final String SLOT_NAMES_FIELD = "SLOT_NAMES";
+
+    private static final ClassValue<GeneratedAccessor> prototypes = new ClassValue<GeneratedAccessor>()
+    {
+        @Override
+        protected GeneratedAccessor computeValue(Class<?> type)
+        {
+            return generatedAccessorPrototypeFor(type);
+        }
+    };
+
+    private Accessors()
+    {
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> T accessorFor(Class<T> type, Map<String, Object> values)
+    {
+        final GeneratedAccessor prototype = "proxy".equals(System.getProperty(ACCESSORS_PROPERTY))
+            ? null
+            : prototypes.get(type);
+
+        return prototype == null
+            ? proxyFor(type, values)
+            : (T) prototype.newInstance(values);
+    }
+
+    static boolean hasGeneratedAccessor(Class<?> type)
+    {
+        return prototypes.get(type) != null;
+    }
+
+    static String valueClassNameFor(Class<?> type)
+    {
+        return type.getName().replace('$', '_') + "Value";
+    }
+
+    private static GeneratedAccessor generatedAccessorPrototypeFor(Class<?> type)
+    {
+        final GeneratedAccessor compiledPrototype = compiledAccessorPrototypeFor(type);
+
+        if (compiledPrototype != null)
+        {
+            return compiledPrototype;
+        }
+
+        if (!canBeGenerated(type))
+        {
+            return null;
+        }
+
+        final Class<?> accessorClass;
+        try
+        {
+            accessorClass = accessorClassFor(type);
+        }
+        catch (ReflectiveOperationException | RuntimeException e)
+        {
+            final Throwable cause = e instanceof InvocationTargetException
+                ? e.getCause()
+                : e;
+
+            if (cause instanceof Error)
+            {
+                throw (Error) cause;
+            }
+            if (isMissingDefineAccess(cause))
+            {
+                return null;
+            }
+            throw new IllegalStateException("Could not define the accessor class of " + type.getName() + ".", cause);
+        }
+
+        // VerifyError and ClassFormatError of a broken class file surface, they are bugs of the AccessorClassWriter
+        try
+        {
+            return (GeneratedAccessor) accessorClass.getConstructor(Map.class).newInstance(NextImmutable.IMMUTABLE_NODE);
+        }
+        catch (ReflectiveOperationException e)
+        {
+            throw new IllegalStateException("Could not instantiate the accessor class of " + type.getName() + ".", e);
+        }
+    }
+
+    // the only expected failure: neither Lookup.defineClass nor ClassLoader.defineClass may be used for the package
+    // of the type, so a proxy is used instead
+    static boolean isMissingDefineAccess(Throwable cause)
+    {
+        return cause instanceof IllegalAccessException //
+            || cause instanceof SecurityException //
+            || "java.lang.reflect.InaccessibleObjectException".equals(cause.getClass().getName());
+    }
+
+    // value classes generated by the immutable-processor for @ImmutableState interfaces, only used if the slots they
+    // were compiled with are still the slots of the schema
+    private static GeneratedAccessor compiledAccessorPrototypeFor(Class<?> type)
+    {
+        if (type.getClassLoader() == null)
+        {
+            return null;
+        }
+
+        try
+        {
+            final Class<?> valueClass = Class.forName(valueClassNameFor(type), true, type.getClassLoader());
+
+            return GeneratedAccessor.class.isAssignableFrom(valueClass) && type.isAssignableFrom(valueClass)
+                && hasSlotsOf(Schema.of(type), valueClass)
+                ? (GeneratedAccessor) valueClass.getConstructor(Map.class).newInstance(NextImmutable.IMMUTABLE_NODE)
+                : null;
+        }
+        catch (ReflectiveOperationException | LinkageError e)
+        {
+            return null;
+        }
+    }
+
+    // value classes of older processors have no slot names and are not used
+    private static boolean hasSlotsOf(Schema schema, Class<?> valueClass) throws ReflectiveOperationException
+    {
+        final List<?> slotNames = (List<?>) valueClass.getField(SLOT_NAMES_FIELD).get(null);
+        if (slotNames.size() != schema.size())
+        {
+            return false;
+        }
+
+        for (int slot = 0; slot < slotNames.size(); slot++)
+        {
+            if (!schema.nameOf(slot).equals(slotNames.get(slot)))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean canBeGenerated(Class<?> type)
+    {
+        if (!type.isInterface() || type.getClassLoader() == null || !isAccessible(type, type))
+        {
+            return false;
+        }
+
+        for (Method method : type.getMethods())
+        {
+            if (Schema.isGetter(method))
+            {
+                if (!isAccessible(method.getReturnType(), type))
+                {
+                    return false;
+                }
+            }
+            else if (Modifier.isAbstract(method.getModifiers()) && !isImmutableNodeMethod(method))
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static boolean isImmutableNodeMethod(Method method)
+    {
+        return method.getName().equals("values") && method.getParameterCount() == 0;
+    }
+
+    private static boolean isAccessible(Class<?> type, Class<?> from)
+    {
+        while (type.isArray())
+        {
+            type = type.getComponentType();
+        }
+
+        if (type.isPrimitive())
+        {
+            return true;
+        }
+
+        final boolean isSamePackage = type.getClassLoader() == from.getClassLoader() //
+            && type.getPackage() == from.getPackage();
+
+        for (Class<?> current = type; current != null; current = current.getEnclosingClass())
+        {
+            final int modifiers = current.getModifiers();
+            if (Modifier.isPrivate(modifiers) || !Modifier.isPublic(modifiers) && !isSamePackage)
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    // ClassValue may compute concurrently, a class name can only be defined once per class loader
+    private static synchronized Class<?> accessorClassFor(Class<?> type) throws ReflectiveOperationException
+    {
+        final AccessorClassWriter writer = new AccessorClassWriter(type);
+
+        try
+        {
+            return Class.forName(writer.className(), false, type.getClassLoader());
+        }
+        catch (ClassNotFoundException e)
+        {
+            return defineClass(type, writer.className(), writer.toByteArray());
+        }
+    }
+
+    private static Class<?> defineClass(Class<?> type, String className, byte[] bytes)
+        throws ReflectiveOperationException
+    {
+        try
+        {
+            final Method privateLookupIn = MethodHandles.class.getMethod("privateLookupIn", Class.class,
+                MethodHandles.Lookup.class);
+            final Object lookup = privateLookupIn.invoke(null, type, MethodHandles.lookup());
+            return (Class<?>) MethodHandles.Lookup.class.getMethod("defineClass", byte[].class).invoke(lookup, bytes);
+        }
+        catch (NoSuchMethodException e)
+        {
+            final Method defineClass = ClassLoader.class.getDeclaredMethod("defineClass", String.class, byte[].class,
+                int.class, int.class, ProtectionDomain.class);
+            defineClass.setAccessible(true);
+            return (Class<?>) defineClass.invoke(type.getClassLoader(), className, bytes, 0, bytes.length,
+                type.getProtectionDomain());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxyFor(Class<T> type, Map<String, Object> values)
+    {
+        return (T) Proxy.newProxyInstance( //
+            Immutable.ImmutableNode.class.getClassLoader(), //
+            new Class<?>[]{type, Immutable.ImmutableNode.class}, //
+            new NodeInvocationHandler(values) //
+        );
+    }
+
+    private static class NodeInvocationHandler extends AbstractInvocationHandler
+    {
+        private final Map<String, Object> values;
+
+        private NodeInvocationHandler(Map<String, Object> values)
+        {
+            this.values = values;
+        }
+
+        @Override
+        protected Object handleInvocation(Object proxy, Method method, Object[] args) throws Throwable
+        {
+            if (method.getName().equals("values"))
+            {
+                return values;
+            }
+
+            final Class<?> returnType = method.getReturnType();
+
+            final Object value = Copy.defensiveCopyOf(values.get(method.getName()));
+            final Object returnValue = value == null
+                ? Defaults.defaultValue(returnType)
+                : value;
+            final boolean isCastable = returnValue == null || isAssignable(returnValue.getClass(), returnType);
+
+            return isCastable
+                ? returnValue
+                : proxyFor(returnType, dataStructure(returnValue));
+        }
+
+        @SuppressWarnings("unchecked")
+        private static Map<String, Object> dataStructure(Object value)
+        {
+            return (Map<String, Object>) value;
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package de.davherrmann.immutable;
+
+import static com.google.common.base.Throwables.propagate;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+// lock-free holder of the current immutable, updaters may be applied more than once and must not have side effects
+public class AtomicStore<I>
+{
+    private static final int YIELDS_BEFORE_PARKING = 4;
+    private static final long MAX_BACKOFF_NANOS = 1 << 20;
+    private static final int MAX_COMBINED_UPDATES = 1024;
+
+    private final AtomicReference<Immutable<I>> state;
+    private final Queue<PendingUpdate<I>> pendingUpdates;
+    private final AtomicBoolean isCombining = new AtomicBoolean();
+    private final PendingUpdate<?>[] combinedUpdates;
+
+    public AtomicStore(Immutable<I> initialState)
+    {
+        this(initialState, false);
+    }
+
+    private AtomicStore(Immutable<I> initialState, boolean combinesUpdates)
+    {
+        this.state = new AtomicReference<>(initialState);
+        this.pendingUpdates = combinesUpdates
+            ? new ConcurrentLinkedQueue<>()
+            : null;
+        this.combinedUpdates = combinesUpdates
+            ? new PendingUpdate<?>[MAX_COMBINED_UPDATES]
+            : null;
+    }
+
+    // flat combining: concurrent updaters are queued and one thread applies the whole queue in one write
+    public static <I> AtomicStore<I> combining(Immutable<I> initialState)
+    {
+        return new AtomicStore<>(initialState, true);
+    }
+
+    public Immutable<I> state()
+    {
+        return state.get();
+    }
+
+    public I path()
+    {
+        return state.get().path();
+    }
+
+    public Immutable<I> update(Function<Immutable<I>, Immutable<I>> updater)
+    {
+        return pendingUpdates == null
+            ? compareAndSet(updater)
+            : combine(updater);
+    }
+
+    public Immutable<I> set(Immutable<I> newState)
+    {
+        return update(oldState -> newState);
+    }
+
+    private Immutable<I> compareAndSet(Function<Immutable<I>, Immutable<I>> updater)
+    {
+        for (int failures = 0; ; failures++)
+        {
+            final Immutable<I> oldState = state.get();
+            final Immutable<I> newState = updater.apply(oldState);
+
+            if (newState == oldState || state.compareAndSet(oldState, newState))
+            {
+                return newState;
+            }
+
+            backOff(failures);
+        }
+    }
+
+    private Immutable<I> combine(Function<Immutable<I>, Immutable<I>> updater)
+    {
+        final PendingUpdate<I> pendingUpdate = new PendingUpdate<>(updater);
+        pendingUpdates.add(pendingUpdate);
+
+        for (int failures = 0; !pendingUpdate.isDone; failures++)
+        {
+            if (isCombining.compareAndSet(false, true))
+            {
+                try
+                {
+                    applyPendingUpdates();
+                }
+                finally
+                {
+                    isCombining.set(false);
+                }
+            }
+            else
+            {
+                backOff(failures);
+            }
+        }
+
+        if (pendingUpdate.failure != null)
+        {
+            throw propagate(pendingUpdate.failure);
+        }
+        return pendingUpdate.newState;
+    }
+
+    // only the combining thread writes the state, an updater that throws leaves the state of the others untouched
+    private void applyPendingUpdates()
+    {
+        Immutable<I> newState = state.get();
+        int count = 0;
+
+        for (PendingUpdate<I> pendingUpdate; count < MAX_COMBINED_UPDATES
+            && (pendingUpdate = pendingUpdates.poll()) != null; count++)
+        {
+            try
+            {
+                newState = pendingUpdate.updater.apply(newState);
+                pendingUpdate.newState = newState;
+            }
+            catch (RuntimeException | Error e)
+            {
+                pendingUpdate.failure = e;
+            }
+            combinedUpdates[count] = pendingUpdate;
+        }
+
+        state.set(newState);
+        for (int i = 0; i < count; i++)
+        {
+            combinedUpdates[i].isDone = true;
+            combinedUpdates[i] = null;
+        }
+    }
+
+    // yield first, then park for a random, exponentially growing time to spread retrying threads
+    static void backOff(int failures)
+    {
+        if (failures < YIELDS_BEFORE_PARKING)
+        {
+            Thread.yield();
+            return;
+        }
+
+        final long maxNanos = Math.min(MAX_BACKOFF_NANOS, 1L << Math.min(failures, 20));
+        LockSupport.parkNanos(ThreadLocalRandom.current().nextLong(maxNanos) + 1);
+    }
+
+    private static final class PendingUpdate<I>
+    {
+        private final Function<Immutable<I>, Immutable<I>> updater;
+        private Immutable<I> newState;
+        private Throwable failure;
+        private volatile boolean isDone;
+
+        private PendingUpdate(Function<Immutable<I>, Immutable<I>> updater)
+        {
+            this.updater = updater;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package de.davherrmann.immutable;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+// a leaf or node that differs between two versions, null stands for a missing value
+public final class Change
+{
+    private final Path path;
+    private final Object oldValue;
+    private final Object newValue;
+
+    public Change(Path path, Object oldValue, Object newValue)
+    {
+        this.path = path;
+        this.oldValue = oldValue;
+        this.newValue = newValue;
+    }
+
+    public Path path()
+    {
+        return path;
+    }
+
+    public Object oldValue()
+    {
+        return oldValue;
+    }
+
+    public Object newValue()
+    {
+        return newValue;
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o)
+            return true;
+        if (o == null || getClass() != o.getClass())
+            return false;
+        Change change = (Change) o;
+        return Objects.equals(path, change.path) //
+            && Compare.areEqual(oldValue, change.oldValue) //
+            && Compare.areEqual(newValue, change.newValue);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Arrays.deepHashCode(new Object[]{path, oldValue, newValue});
+    }
+
+    @Override
+    public String toString()
+    {
+        return path + ": " + oldValue + " -> " + newValue;
+    }
+}
@@ -0,0 +1,129 @@
+package de.davherrmann.immutable;
+
+import static de.davherrmann.immutable.NextImmutable.IMMUTABLE_NODE_ENTRY;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+// walks two versions depth first and yields changed leafs one at a time, nodes shared by both versions are skipped
+class ChangeIterator implements Iterator<Change>
+{
+    private final NextImmutable nextImmutable;
+    private final Deque<NodePair> pendingNodes = new ArrayDeque<>();
+    private NodePair currentNodes;
+    private Iterator<String> currentKeys;
+    private Change next;
+
+    ChangeIterator(NextImmutable nextImmutable, Map<String, Object> dataStructure0,
+        Map<String, Object> dataStructure1)
+    {
+        this(nextImmutable, Path.root(), dataStructure0, dataStructure1);
+    }
+
+    ChangeIterator(NextImmutable nextImmutable, Path path, Map<String, Object> dataStructure0,
+        Map<String, Object> dataStructure1)
+    {
+        this.nextImmutable = nextImmutable;
+        pendingNodes.push(new NodePair(path, dataStructure0, dataStructure1));
+    }
+
+    @Override
+    public boolean hasNext()
+    {
+        while (next == null)
+        {
+            if (currentKeys == null || !currentKeys.hasNext())
+            {
+                if (pendingNodes.isEmpty())
+                {
+                    return false;
+                }
+
+                currentNodes = pendingNodes.pop();
+                currentKeys = differentKeys(currentNodes.node0, currentNodes.node1).iterator();
+                continue;
+            }
+
+            next = changeFor(currentKeys.next());
+        }
+        return true;
+    }
+
+    @Override
+    public Change next()
+    {
+        if (!hasNext())
+        {
+            throw new NoSuchElementException();
+        }
+
+        final Change change = next;
+        next = null;
+        return change;
+    }
+
+    private Change changeFor(String key)
+    {
+        final Object oldValue = currentNodes.node0.get(key);
+        final Object newValue = currentNodes.node1.get(key);
+
+        if (oldValue == newValue || IMMUTABLE_NODE_ENTRY.getKey().equals(key))
+        {
+            return null;
+        }
+
+        final Path path = currentNodes.path.child(key);
+
+        if (nextImmutable.isDataStructure(oldValue) && nextImmutable.isDataStructure(newValue))
+        {
+            pendingNodes.push(new NodePair(path, nextImmutable.dataStructure(oldValue),
+                nextImmutable.dataStructure(newValue)));
+            return null;
+        }
+
+        return Compare.areEqual(oldValue, newValue)
+            ? null
+            : new Change(path, Copy.defensiveCopyOf(oldValue), Copy.defensiveCopyOf(newValue));
+    }
+
+    static Set<String> differentKeys(Map<String, Object> node0, Map<String, Object> node1)
+    {
+        final Set<String> keys = new LinkedHashSet<>();
+
+        if (node0 instanceof HashTrieMap && node1 instanceof HashTrieMap)
+        {
+            ((HashTrieMap) node0).collectDifferentKeys((HashTrieMap) node1, keys);
+        }
+        else if (node0 instanceof SlotNode && node1 instanceof SlotNode
+            && ((SlotNode) node0).schema() == ((SlotNode) node1).schema())
+        {
+            ((SlotNode) node0).collectDifferentKeys((SlotNode) node1, keys);
+        }
+        else
+        {
+            keys.addAll(node0.keySet());
+            keys.addAll(node1.keySet());
+        }
+
+        return keys;
+    }
+
+    private static class NodePair
+    {
+        private final Path path;
+        private final Map<String, Object> node0;
+        private final Map<String, Object> node1;
+
+        private NodePair(Path path, Map<String, Object> node0, Map<String, Object> node1)
+        {
+            this.path = path;
+            this.node0 = node0;
+            this.node1 = node1;
+        }
+    }
+}
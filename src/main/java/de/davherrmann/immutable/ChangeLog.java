@@ -0,0 +1,121 @@
+package de.davherrmann.immutable;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.collect.Lists.newArrayList;
+import static de.davherrmann.immutable.NextImmutable.IMMUTABLE_NODE_ENTRY;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+// paths written by a version relative to its parent version, versions share the entries of their parents
+final class ChangeLog
+{
+    private static final Path[] NO_PATHS = new Path[0];
+
+    private final ChangeLog parent;
+    private final Path[] paths;
+
+    private ChangeLog(ChangeLog parent, Path[] paths)
+    {
+        this.parent = parent;
+        this.paths = paths;
+    }
+
+    static ChangeLog start()
+    {
+        return new ChangeLog(null, NO_PATHS);
+    }
+
+    ChangeLog append(Path path)
+    {
+        return new ChangeLog(this, new Path[]{path});
+    }
+
+    ChangeLog append(Collection<Path> paths)
+    {
+        return new ChangeLog(this, paths.toArray(new Path[paths.size()]));
+    }
+
+    // folds the entries written after the given ancestor, paths below an also written path are dropped
+    Set<Path> pathsSince(ChangeLog ancestor)
+    {
+        final Deque<ChangeLog> entries = new ArrayDeque<>();
+
+        for (ChangeLog entry = this; entry != ancestor; entry = entry.parent)
+        {
+            checkArgument(entry != null, "The passed immutable is not a previous version of this immutable.");
+            entries.push(entry);
+        }
+
+        final Set<Path> writtenPaths = new LinkedHashSet<>();
+        for (ChangeLog entry : entries)
+        {
+            Collections.addAll(writtenPaths, entry.paths);
+        }
+
+        final Set<Path> foldedPaths = new LinkedHashSet<>();
+        for (Path path : writtenPaths)
+        {
+            if (!hasWrittenParent(path, writtenPaths))
+            {
+                foldedPaths.add(path);
+            }
+        }
+        return Collections.unmodifiableSet(foldedPaths);
+    }
+
+    private static boolean hasWrittenParent(Path path, Set<Path> writtenPaths)
+    {
+        for (Path parent = path.parent(); parent != null; parent = parent.parent())
+        {
+            if (writtenPaths.contains(parent))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static List<Path> leafPathsOf(NextImmutable nextImmutable, Map<String, Object> dataStructure)
+    {
+        final List<Path> paths = newArrayList();
+        collectLeafPaths(nextImmutable, Path.root(), dataStructure, paths);
+        return paths;
+    }
+
+    private static void collectLeafPaths(NextImmutable nextImmutable, Path path, Map<String, Object> dataStructure,
+        List<Path> paths)
+    {
+        // an empty nested node is still written when it was missing before
+        if (dataStructure.size() <= 1 && path != Path.root())
+        {
+            paths.add(path);
+            return;
+        }
+
+        for (Entry<String, Object> entry : dataStructure.entrySet())
+        {
+            if (IMMUTABLE_NODE_ENTRY.getKey().equals(entry.getKey()))
+            {
+                continue;
+            }
+
+            final Path nestedPath = path.child(entry.getKey());
+            if (nextImmutable.isDataStructure(entry.getValue()))
+            {
+                collectLeafPaths(nextImmutable, nestedPath, nextImmutable.dataStructure(entry.getValue()), paths);
+            }
+            else
+            {
+                paths.add(nestedPath);
+            }
+        }
+    }
+}
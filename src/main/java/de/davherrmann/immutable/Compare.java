@@ -1,6 +1,6 @@
 package de.davherrmann.immutable;
 
-import java.util.Arrays;
+import java.util.Objects;
 
 public final class Compare
 {
@@ -10,15 +10,17 @@ public final class Compare
 
     public static <T> boolean areEqual(T arg1, T arg2)
     {
-        if (arg1 == null || arg2 == null)
+        if (arg1 == arg2)
+        {
+            return true;
+        }
+        else if (arg1 == null || arg2 == null)
         {
             return arg1 == null && arg2 == null;
         }
-        else if (arg1 instanceof Object[] && arg2 instanceof Object[])
+        else if (arg1.getClass().isArray() && arg2.getClass().isArray())
         {
-            Object[] arr1 = (Object[]) arg1;
-            Object[] arr2 = (Object[]) arg2;
-            return Arrays.equals(arr1, arr2);
+            return Objects.deepEquals(arg1, arg2);
         }
         else
         {
@@ -0,0 +1,69 @@
+package de.davherrmann.immutable;
+
+import java.util.Map;
+
+// slot indices of a path's segments, resolved once per schema
+final class CompiledPath
+{
+    private final Schema schema;
+    private final Schema[] schemas;
+    private final int[] slots;
+
+    private CompiledPath(Schema schema, Path path)
+    {
+        this.schema = schema;
+        this.schemas = new Schema[path.size()];
+        this.slots = new int[path.size()];
+
+        Schema currentSchema = schema;
+        for (int i = 0; i < path.size(); i++)
+        {
+            final int slot = currentSchema == null
+                ? -1
+                : currentSchema.slotOf(path.get(i));
+
+            schemas[i] = currentSchema;
+            slots[i] = slot;
+            currentSchema = slot < 0
+                ? null
+                : currentSchema.nestedSchema(slot);
+        }
+    }
+
+    static CompiledPath of(Schema schema, Path path)
+    {
+        return new CompiledPath(schema, path);
+    }
+
+    Schema schema()
+    {
+        return schema;
+    }
+
+    Object valueIn(Map<String, Object> node, int index, String key)
+    {
+        return isSlotNodeAt(node, index)
+            ? ((SlotNode) node).valueAt(slots[index])
+            : node.get(key);
+    }
+
+    PersistentNode with(PersistentNode node, int index, String key, Object value)
+    {
+        return isSlotNodeAt(node, index)
+            ? ((SlotNode) node).withValueAt(slots[index], value)
+            : node.with(key, value);
+    }
+
+    // slot of the segment at index if node is a SlotNode of the compiled schema, -1 otherwise
+    int slotIn(Map<String, Object> node, int index)
+    {
+        return isSlotNodeAt(node, index)
+            ? slots[index]
+            : -1;
+    }
+
+    private boolean isSlotNodeAt(Map<String, Object> node, int index)
+    {
+        return slots[index] >= 0 && node instanceof SlotNode && ((SlotNode) node).schema() == schemas[index];
+    }
+}
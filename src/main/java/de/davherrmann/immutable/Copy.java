@@ -1,6 +1,6 @@
 package de.davherrmann.immutable;
 
-import static java.util.Arrays.copyOf;
+import java.lang.reflect.Array;
 
 public final class Copy
 {
@@ -11,6 +11,7 @@ public final class Copy
     // TODO is defensive copying task of NextImmutable? Or the layer above?
     // TODO extend for other mutable types!
     // TODO extract
+    // ImmutableArray and its primitive variants are never copied, prefer them or Immutable.getShared for large arrays
     @SuppressWarnings("unchecked")
     public static <T> T defensiveCopyOf(T value)
     {
@@ -21,8 +22,10 @@ public final class Copy
 
         if (value.getClass().isArray())
         {
-            final Object[] array = (Object[]) value;
-            return (T) copyOf(array, array.length);
+            final int length = Array.getLength(value);
+            final Object copy = Array.newInstance(value.getClass().getComponentType(), length);
+            System.arraycopy(value, 0, copy, 0, length);
+            return (T) copy;
         }
 
         return value;
@@ -0,0 +1,178 @@
+package de.davherrmann.immutable;
+
+import static com.google.common.collect.Maps.newHashMap;
+import static com.google.common.collect.Sets.newLinkedHashSet;
+import static de.davherrmann.immutable.NextImmutable.IMMUTABLE_NODE;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+// collects writes of a draft in a mutable tree and applies them to a data structure in one pass
+class DraftChanges
+{
+    private final NextImmutable nextImmutable;
+    private final ChangeNode root = new ChangeNode(false);
+    private final Set<Path> paths = newLinkedHashSet();
+
+    DraftChanges(NextImmutable nextImmutable)
+    {
+        this.nextImmutable = nextImmutable;
+    }
+
+    public boolean isEmpty()
+    {
+        return root.children.isEmpty();
+    }
+
+    public void set(List<String> path, Object value)
+    {
+        paths.add(Path.of(path));
+        ChangeNode node = root;
+
+        for (int i = 0; i < path.size() - 1; i++)
+        {
+            node = node.nestedNode(path.get(i));
+        }
+
+        node.set(path.get(path.size() - 1), value);
+    }
+
+    public Set<Path> paths()
+    {
+        return paths;
+    }
+
+    public Object get(Map<String, Object> dataStructure, List<String> path)
+    {
+        ChangeNode node = root;
+        Object baseValue = dataStructure;
+
+        for (int i = 0; i < path.size(); i++)
+        {
+            final String key = path.get(i);
+            final boolean isLast = i == path.size() - 1;
+            final Object nestedBaseValue = node.replacesBase || !nextImmutable.isDataStructure(baseValue)
+                ? null
+                : nextImmutable.dataStructure(baseValue).get(key);
+            final Object change = node.children.get(key);
+
+            if (change instanceof ChangeNode)
+            {
+                if (isLast)
+                {
+                    return apply(nestedBaseValue, (ChangeNode) change, nextImmutable.node(IMMUTABLE_NODE));
+                }
+
+                node = (ChangeNode) change;
+                baseValue = nestedBaseValue;
+                continue;
+            }
+
+            final Object value = change == null
+                ? nestedBaseValue
+                : nextImmutable.isDataStructure(change)
+                    ? nextImmutable.mergedValue(nestedBaseValue, change, nextImmutable.node(IMMUTABLE_NODE))
+                    : change;
+
+            if (isLast || value == null)
+            {
+                return Copy.defensiveCopyOf(value);
+            }
+
+            return nextImmutable.isDataStructure(value)
+                ? nextImmutable.getInPath(nextImmutable.dataStructure(value), path.subList(i + 1, path.size()))
+                : null;
+        }
+
+        return null;
+    }
+
+    public Map<String, Object> applyTo(Map<String, Object> dataStructure)
+    {
+        return apply(dataStructure, root, nextImmutable.node(dataStructure).emptyNode());
+    }
+
+    private PersistentNode apply(Object baseValue, ChangeNode node, PersistentNode emptyNode)
+    {
+        PersistentNode result = node.replacesBase || !nextImmutable.isDataStructure(baseValue)
+            ? emptyNode
+            : nextImmutable.node(nextImmutable.dataStructure(baseValue));
+
+        for (Entry<String, Object> change : node.children.entrySet())
+        {
+            final String key = change.getKey();
+            final Object oldValue = result.get(key);
+            final Object newValue = change.getValue();
+
+            result = result.with(key, newValue instanceof ChangeNode
+                ? apply(oldValue, (ChangeNode) newValue, result.emptyChild(key))
+                : nextImmutable.mergedValue(oldValue, newValue, result.emptyChild(key)));
+        }
+
+        return result;
+    }
+
+    private class ChangeNode
+    {
+        private final Map<String, Object> children = newHashMap();
+        private final boolean replacesBase;
+
+        private ChangeNode(boolean replacesBase)
+        {
+            this.replacesBase = replacesBase;
+        }
+
+        private ChangeNode nestedNode(String key)
+        {
+            final Object change = children.get(key);
+
+            if (change instanceof ChangeNode)
+            {
+                return (ChangeNode) change;
+            }
+
+            final ChangeNode nestedNode = new ChangeNode(change != null && !nextImmutable.isDataStructure(change));
+            if (nextImmutable.isDataStructure(change))
+            {
+                nestedNode.setAll(nextImmutable.dataStructure(change));
+            }
+            children.put(key, nestedNode);
+            return nestedNode;
+        }
+
+        private void set(String key, Object value)
+        {
+            if (!nextImmutable.isDataStructure(value))
+            {
+                children.put(key, Copy.defensiveCopyOf(value));
+                return;
+            }
+
+            final Object change = children.get(key);
+
+            if (change == null)
+            {
+                children.put(key, value);
+            }
+            else if (change instanceof ChangeNode || !nextImmutable.isDataStructure(change))
+            {
+                nestedNode(key).setAll(nextImmutable.dataStructure(value));
+            }
+            else
+            {
+                children.put(key, nextImmutable.merge(nextImmutable.dataStructure(change),
+                    nextImmutable.dataStructure(value)));
+            }
+        }
+
+        private void setAll(Map<String, Object> dataStructure)
+        {
+            for (Entry<String, Object> entry : dataStructure.entrySet())
+            {
+                set(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+}
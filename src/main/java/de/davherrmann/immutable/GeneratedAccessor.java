@@ -0,0 +1,142 @@
+package de.davherrmann.immutable;
+
+import static org.apache.commons.lang3.ClassUtils.isAssignable;
+
+import java.util.Map;
+
+import com.google.common.base.Defaults;
+
+// base class of the accessor classes generated by Accessors, getters are compiled to calls of the methods below
+public abstract class GeneratedAccessor implements Immutable.ImmutableNode
+{
+    private final Map<String, Object> values;
+    private final Schema schema;
+
+    protected GeneratedAccessor(Map<String, Object> values, Class<?> type)
+    {
+        this.values = values;
+        this.schema = Schema.of(type);
+    }
+
+    protected abstract GeneratedAccessor newInstance(Map<String, Object> values);
+
+    @Override
+    public Map<String, Object> values()
+    {
+        return values;
+    }
+
+    protected final Object object(int slot, String key, Class<?> type)
+    {
+        final Object value = Copy.defensiveCopyOf(value(slot, key));
+
+        if (value == null)
+        {
+            return Defaults.defaultValue(type);
+        }
+
+        return isAssignable(value.getClass(), type)
+            ? value
+            : Accessors.accessorFor(type, dataStructure(value));
+    }
+
+    protected final boolean booleanValue(int slot, String key)
+    {
+        if (hasSchemaOf(values))
+        {
+            return ((SlotNode) values).booleanAt(slot);
+        }
+
+        final Object value = value(slot, key);
+        return value != null && (Boolean) value;
+    }
+
+    protected final char charValue(int slot, String key)
+    {
+        final Object value = value(slot, key);
+        return value == null
+            ? 0
+            : (Character) value;
+    }
+
+    protected final byte byteValue(int slot, String key)
+    {
+        final Object value = value(slot, key);
+        return value == null
+            ? 0
+            : ((Number) value).byteValue();
+    }
+
+    protected final short shortValue(int slot, String key)
+    {
+        final Object value = value(slot, key);
+        return value == null
+            ? 0
+            : ((Number) value).shortValue();
+    }
+
+    protected final int intValue(int slot, String key)
+    {
+        if (hasSchemaOf(values))
+        {
+            return ((SlotNode) values).intAt(slot);
+        }
+
+        final Object value = value(slot, key);
+        return value == null
+            ? 0
+            : ((Number) value).intValue();
+    }
+
+    protected final long longValue(int slot, String key)
+    {
+        if (hasSchemaOf(values))
+        {
+            return ((SlotNode) values).longAt(slot);
+        }
+
+        final Object value = value(slot, key);
+        return value == null
+            ? 0
+            : ((Number) value).longValue();
+    }
+
+    protected final float floatValue(int slot, String key)
+    {
+        final Object value = value(slot, key);
+        return value == null
+            ? 0
+            : ((Number) value).floatValue();
+    }
+
+    protected final double doubleValue(int slot, String key)
+    {
+        if (hasSchemaOf(values))
+        {
+            return ((SlotNode) values).doubleAt(slot);
+        }
+
+        final Object value = value(slot, key);
+        return value == null
+            ? 0
+            : ((Number) value).doubleValue();
+    }
+
+    private Object value(int slot, String key)
+    {
+        return hasSchemaOf(values)
+            ? ((SlotNode) values).valueAt(slot)
+            : values.get(key);
+    }
+
+    private boolean hasSchemaOf(Map<String, Object> values)
+    {
+        return values instanceof SlotNode && ((SlotNode) values).schema() == schema;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> dataStructure(Object value)
+    {
+        return (Map<String, Object>) value;
+    }
+}
@@ -0,0 +1,697 @@
+package de.davherrmann.immutable;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.lang.System.arraycopy;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+// persistent hash array mapped trie: updates copy only the path to the changed entry
+public final class HashTrieMap extends AbstractMap<String, Object> implements PersistentNode
+{
+    private static final Object NOT_FOUND = new Object();
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+    private static final int MAX_DEPTH = 8;
+
+    private static final int EQUAL = 0;
+    private static final int NOT_EQUAL = 1;
+    private static final int UNKNOWN = 2;
+
+    private static final HashTrieMap EMPTY = new HashTrieMap(BitmapNode.EMPTY, 0);
+
+    private final TrieNode root;
+    private final int size;
+    private int hashCode;
+
+    private HashTrieMap(TrieNode root, int size)
+    {
+        this.root = root;
+        this.size = size;
+    }
+
+    public static HashTrieMap empty()
+    {
+        return EMPTY;
+    }
+
+    public static HashTrieMap copyOf(Map<String, ?> map)
+    {
+        if (map instanceof HashTrieMap)
+        {
+            return (HashTrieMap) map;
+        }
+
+        HashTrieMap result = EMPTY;
+        for (Entry<String, ?> entry : map.entrySet())
+        {
+            result = result.with(entry.getKey(), entry.getValue());
+        }
+        return result;
+    }
+
+    @Override
+    public HashTrieMap with(String key, Object value)
+    {
+        checkNotNull(key, "key must not be null");
+        checkNotNull(value, "value must not be null");
+
+        final int hash = hash(key);
+        final Object oldValue = root.find(key, hash, 0);
+
+        if (oldValue == value)
+        {
+            return this;
+        }
+
+        return new HashTrieMap(root.with(key, hash, value, 0), oldValue == NOT_FOUND
+            ? size + 1
+            : size);
+    }
+
+    @Override
+    public HashTrieMap without(String key)
+    {
+        final int hash = hash(key);
+
+        if (root.find(key, hash, 0) == NOT_FOUND)
+        {
+            return this;
+        }
+
+        final TrieNode newRoot = root.without(key, hash, 0);
+        return new HashTrieMap(newRoot == null
+            ? BitmapNode.EMPTY
+            : newRoot, size - 1);
+    }
+
+    @Override
+    public Object get(Object key)
+    {
+        if (!(key instanceof String))
+        {
+            return null;
+        }
+
+        final Object value = root.find((String) key, hash((String) key), 0);
+        return value == NOT_FOUND
+            ? null
+            : value;
+    }
+
+    @Override
+    public boolean containsKey(Object key)
+    {
+        return key instanceof String && root.find((String) key, hash((String) key), 0) != NOT_FOUND;
+    }
+
+    @Override
+    public int size()
+    {
+        return size;
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet()
+    {
+        return new AbstractSet<Entry<String, Object>>()
+        {
+            @Override
+            public Iterator<Entry<String, Object>> iterator()
+            {
+                return new EntryIterator(root);
+            }
+
+            @Override
+            public int size()
+            {
+                return size;
+            }
+        };
+    }
+
+    // walks the trie arrays directly, without iterator and entry objects
+    @Override
+    public void forEach(BiConsumer<? super String, ? super Object> action)
+    {
+        forEach(root.array, action);
+    }
+
+    private static void forEach(Object[] array, BiConsumer<? super String, ? super Object> action)
+    {
+        for (int i = 0; i < array.length; i += 2)
+        {
+            if (array[i] == null)
+            {
+                forEach(((TrieNode) array[i + 1]).array, action);
+            }
+            else
+            {
+                action.accept((String) array[i], array[i + 1]);
+            }
+        }
+    }
+
+    // Map#hashCode, computed once: nested nodes cache their hash as well, so new versions only hash what changed
+    @Override
+    public int hashCode()
+    {
+        int currentHashCode = hashCode;
+
+        if (currentHashCode == 0)
+        {
+            currentHashCode = root.entriesHashCode();
+            hashCode = currentHashCode;
+        }
+
+        return currentHashCode;
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (o == this)
+        {
+            return true;
+        }
+
+        if (!(o instanceof Map) || ((Map<?, ?>) o).size() != size)
+        {
+            return false;
+        }
+
+        if (o instanceof PersistentNode && o.hashCode() != hashCode())
+        {
+            return false;
+        }
+
+        if (o instanceof HashTrieMap)
+        {
+            final int result = compare(root, ((HashTrieMap) o).root);
+
+            if (result != UNKNOWN)
+            {
+                return result == EQUAL;
+            }
+        }
+
+        return super.equals(o);
+    }
+
+    // adds a superset of the keys whose values differ between both maps, shared trie nodes are skipped
+    void collectDifferentKeys(HashTrieMap other, Collection<String> keys)
+    {
+        collectDifferentKeys(root, other.root, keys);
+    }
+
+    private static void collectDifferentKeys(TrieNode node0, TrieNode node1, Collection<String> keys)
+    {
+        if (node0 == node1)
+        {
+            return;
+        }
+
+        if (!(node0 instanceof BitmapNode) || !(node1 instanceof BitmapNode))
+        {
+            collectKeys(node0.array, 0, node0.array.length, keys);
+            collectKeys(node1.array, 0, node1.array.length, keys);
+            return;
+        }
+
+        final int bitmap0 = ((BitmapNode) node0).bitmap;
+        final int bitmap1 = ((BitmapNode) node1).bitmap;
+        final Object[] array0 = node0.array;
+        final Object[] array1 = node1.array;
+        int index0 = 0;
+        int index1 = 0;
+
+        for (int bits = bitmap0 | bitmap1; bits != 0; bits &= bits - 1)
+        {
+            final int bit = Integer.lowestOneBit(bits);
+
+            if ((bitmap1 & bit) == 0)
+            {
+                collectKeys(array0, index0, index0 + 2, keys);
+                index0 += 2;
+            }
+            else if ((bitmap0 & bit) == 0)
+            {
+                collectKeys(array1, index1, index1 + 2, keys);
+                index1 += 2;
+            }
+            else
+            {
+                final Object key0 = array0[index0];
+                final Object key1 = array1[index1];
+                final Object value0 = array0[index0 + 1];
+                final Object value1 = array1[index1 + 1];
+
+                if (key0 == null && key1 == null)
+                {
+                    collectDifferentKeys((TrieNode) value0, (TrieNode) value1, keys);
+                }
+                else if (key0 == null || key1 == null || !key0.equals(key1))
+                {
+                    collectKeys(array0, index0, index0 + 2, keys);
+                    collectKeys(array1, index1, index1 + 2, keys);
+                }
+                else if (value0 != value1)
+                {
+                    keys.add((String) key0);
+                }
+
+                index0 += 2;
+                index1 += 2;
+            }
+        }
+    }
+
+    private static void collectKeys(Object[] array, int from, int to, Collection<String> keys)
+    {
+        for (int i = from; i < to; i += 2)
+        {
+            if (array[i] == null)
+            {
+                final Object[] nestedArray = ((TrieNode) array[i + 1]).array;
+                collectKeys(nestedArray, 0, nestedArray.length, keys);
+            }
+            else
+            {
+                keys.add((String) array[i]);
+            }
+        }
+    }
+
+    static boolean areEqualValues(Object value0, Object value1)
+    {
+        return value0 == value1 || value0 != null && value0.equals(value1);
+    }
+
+    // a key can only be stored at the position its hash leads to, so tries with the same keys mostly have the same
+    // shape, only nodes left behind by removals or collisions lead to UNKNOWN
+    private static int compare(TrieNode node0, TrieNode node1)
+    {
+        if (node0 == node1)
+        {
+            return EQUAL;
+        }
+
+        if (node0 instanceof CollisionNode && node1 instanceof CollisionNode)
+        {
+            return ((CollisionNode) node0).compare((CollisionNode) node1);
+        }
+
+        if (!(node0 instanceof BitmapNode) || !(node1 instanceof BitmapNode))
+        {
+            return UNKNOWN;
+        }
+
+        if (((BitmapNode) node0).bitmap != ((BitmapNode) node1).bitmap)
+        {
+            return NOT_EQUAL;
+        }
+
+        final Object[] array0 = node0.array;
+        final Object[] array1 = node1.array;
+        int result = EQUAL;
+
+        for (int i = 0; i < array0.length; i += 2)
+        {
+            final Object key0 = array0[i];
+            final Object key1 = array1[i];
+            final int entryResult = key0 == null && key1 == null
+                ? compare((TrieNode) array0[i + 1], (TrieNode) array1[i + 1])
+                : key0 == null || key1 == null
+                    ? UNKNOWN
+                    : key0.equals(key1) && areEqualValues(array0[i + 1], array1[i + 1])
+                        ? EQUAL
+                        : NOT_EQUAL;
+
+            if (entryResult == NOT_EQUAL)
+            {
+                return NOT_EQUAL;
+            }
+
+            if (entryResult == UNKNOWN)
+            {
+                result = UNKNOWN;
+            }
+        }
+
+        return result;
+    }
+
+    private static int hash(String key)
+    {
+        final int hash = key.hashCode();
+        return hash ^ (hash >>> 16);
+    }
+
+    private static int bitFor(int hash, int shift)
+    {
+        return 1 << ((hash >>> shift) & MASK);
+    }
+
+    // entries are stored as [key, value] pairs, a null key marks a nested node in the value slot
+    private abstract static class TrieNode
+    {
+        protected final Object[] array;
+
+        protected TrieNode(Object[] array)
+        {
+            this.array = array;
+        }
+
+        abstract Object find(String key, int hash, int shift);
+
+        abstract TrieNode with(String key, int hash, Object value, int shift);
+
+        abstract TrieNode without(String key, int hash, int shift);
+
+        int entriesHashCode()
+        {
+            int hashCode = 0;
+            for (int i = 0; i < array.length; i += 2)
+            {
+                hashCode += array[i] == null
+                    ? ((TrieNode) array[i + 1]).entriesHashCode()
+                    : array[i].hashCode() ^ array[i + 1].hashCode();
+            }
+            return hashCode;
+        }
+    }
+
+    private static final class BitmapNode extends TrieNode
+    {
+        private static final BitmapNode EMPTY = new BitmapNode(0, new Object[0]);
+
+        private final int bitmap;
+
+        private BitmapNode(int bitmap, Object[] array)
+        {
+            super(array);
+            this.bitmap = bitmap;
+        }
+
+        @Override
+        Object find(String key, int hash, int shift)
+        {
+            final int bit = bitFor(hash, shift);
+
+            if ((bitmap & bit) == 0)
+            {
+                return NOT_FOUND;
+            }
+
+            final int index = index(bit);
+            final Object existingKey = array[index];
+            final Object existingValue = array[index + 1];
+
+            if (existingKey == null)
+            {
+                return ((TrieNode) existingValue).find(key, hash, shift + BITS);
+            }
+
+            return key.equals(existingKey)
+                ? existingValue
+                : NOT_FOUND;
+        }
+
+        @Override
+        TrieNode with(String key, int hash, Object value, int shift)
+        {
+            final int bit = bitFor(hash, shift);
+            final int index = index(bit);
+
+            if ((bitmap & bit) == 0)
+            {
+                final Object[] newArray = new Object[array.length + 2];
+                arraycopy(array, 0, newArray, 0, index);
+                newArray[index] = key;
+                newArray[index + 1] = value;
+                arraycopy(array, index, newArray, index + 2, array.length - index);
+                return new BitmapNode(bitmap | bit, newArray);
+            }
+
+            final Object existingKey = array[index];
+            final Object existingValue = array[index + 1];
+
+            if (existingKey == null)
+            {
+                return replace(index + 1, ((TrieNode) existingValue).with(key, hash, value, shift + BITS));
+            }
+
+            if (key.equals(existingKey))
+            {
+                return replace(index + 1, value);
+            }
+
+            final TrieNode nestedNode = nodeOf( //
+                (String) existingKey, hash((String) existingKey), existingValue, //
+                key, hash, value, //
+                shift + BITS);
+            final Object[] newArray = array.clone();
+            newArray[index] = null;
+            newArray[index + 1] = nestedNode;
+            return new BitmapNode(bitmap, newArray);
+        }
+
+        @Override
+        TrieNode without(String key, int hash, int shift)
+        {
+            final int bit = bitFor(hash, shift);
+
+            if ((bitmap & bit) == 0)
+            {
+                return this;
+            }
+
+            final int index = index(bit);
+            final Object existingKey = array[index];
+
+            if (existingKey == null)
+            {
+                final TrieNode nestedNode = (TrieNode) array[index + 1];
+                final TrieNode newNestedNode = nestedNode.without(key, hash, shift + BITS);
+
+                if (newNestedNode == nestedNode)
+                {
+                    return this;
+                }
+
+                return newNestedNode == null
+                    ? remove(bit, index)
+                    : replace(index + 1, newNestedNode);
+            }
+
+            return key.equals(existingKey)
+                ? remove(bit, index)
+                : this;
+        }
+
+        private BitmapNode replace(int index, Object value)
+        {
+            final Object[] newArray = array.clone();
+            newArray[index] = value;
+            return new BitmapNode(bitmap, newArray);
+        }
+
+        private BitmapNode remove(int bit, int index)
+        {
+            if (bitmap == bit)
+            {
+                return null;
+            }
+
+            final Object[] newArray = new Object[array.length - 2];
+            arraycopy(array, 0, newArray, 0, index);
+            arraycopy(array, index + 2, newArray, index, array.length - index - 2);
+            return new BitmapNode(bitmap ^ bit, newArray);
+        }
+
+        private int index(int bit)
+        {
+            return 2 * Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        private static TrieNode nodeOf(String key0, int hash0, Object value0, String key1, int hash1, Object value1,
+            int shift)
+        {
+            if (hash0 == hash1)
+            {
+                return new CollisionNode(hash0, new Object[]{key0, value0, key1, value1});
+            }
+
+            return EMPTY //
+                .with(key0, hash0, value0, shift) //
+                .with(key1, hash1, value1, shift);
+        }
+    }
+
+    private static final class CollisionNode extends TrieNode
+    {
+        private final int hash;
+
+        private CollisionNode(int hash, Object[] array)
+        {
+            super(array);
+            this.hash = hash;
+        }
+
+        @Override
+        Object find(String key, int hash, int shift)
+        {
+            final int index = indexOf(key);
+            return index < 0
+                ? NOT_FOUND
+                : array[index + 1];
+        }
+
+        @Override
+        TrieNode with(String key, int hash, Object value, int shift)
+        {
+            if (hash != this.hash)
+            {
+                return new BitmapNode(bitFor(this.hash, shift), new Object[]{null, this}) //
+                    .with(key, hash, value, shift);
+            }
+
+            final int index = indexOf(key);
+
+            if (index >= 0)
+            {
+                final Object[] newArray = array.clone();
+                newArray[index + 1] = value;
+                return new CollisionNode(hash, newArray);
+            }
+
+            final Object[] newArray = new Object[array.length + 2];
+            arraycopy(array, 0, newArray, 0, array.length);
+            newArray[array.length] = key;
+            newArray[array.length + 1] = value;
+            return new CollisionNode(hash, newArray);
+        }
+
+        @Override
+        TrieNode without(String key, int hash, int shift)
+        {
+            final int index = indexOf(key);
+
+            if (index < 0)
+            {
+                return this;
+            }
+
+            if (array.length == 2)
+            {
+                return null;
+            }
+
+            final Object[] newArray = new Object[array.length - 2];
+            arraycopy(array, 0, newArray, 0, index);
+            arraycopy(array, index + 2, newArray, index, array.length - index - 2);
+            return new CollisionNode(hash, newArray);
+        }
+
+        private int compare(CollisionNode node)
+        {
+            if (hash != node.hash || array.length != node.array.length)
+            {
+                return NOT_EQUAL;
+            }
+
+            for (int i = 0; i < array.length; i += 2)
+            {
+                final int index = node.indexOf((String) array[i]);
+                if (index < 0 || !areEqualValues(array[i + 1], node.array[index + 1]))
+                {
+                    return NOT_EQUAL;
+                }
+            }
+
+            return EQUAL;
+        }
+
+        private int indexOf(String key)
+        {
+            for (int i = 0; i < array.length; i += 2)
+            {
+                if (key.equals(array[i]))
+                {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+
+    private static final class EntryIterator implements Iterator<Entry<String, Object>>
+    {
+        private final Object[][] arrays = new Object[MAX_DEPTH][];
+        private final int[] positions = new int[MAX_DEPTH];
+        private int depth;
+        private Entry<String, Object> next;
+
+        private EntryIterator(TrieNode root)
+        {
+            arrays[0] = root.array;
+            advance();
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            return next != null;
+        }
+
+        @Override
+        public Entry<String, Object> next()
+        {
+            if (next == null)
+            {
+                throw new NoSuchElementException();
+            }
+
+            final Entry<String, Object> current = next;
+            advance();
+            return current;
+        }
+
+        private void advance()
+        {
+            next = null;
+
+            while (depth >= 0)
+            {
+                final Object[] array = arrays[depth];
+                final int position = positions[depth];
+
+                if (position >= array.length)
+                {
+                    depth--;
+                    continue;
+                }
+
+                positions[depth] = position + 2;
+
+                if (array[position] == null)
+                {
+                    depth++;
+                    arrays[depth] = ((TrieNode) array[position + 1]).array;
+                    positions[depth] = 0;
+                }
+                else
+                {
+                    next = new SimpleImmutableEntry<>((String) array[position], array[position + 1]);
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -1,26 +1,31 @@
 package de.davherrmann.immutable;
 
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
 import static de.davherrmann.immutable.NextImmutable.IMMUTABLE_NODE;
 import static de.davherrmann.immutable.PathRecorder.pathRecorderInstanceFor;
-import static java.util.Collections.emptyList;
-import static org.apache.commons.lang3.ClassUtils.isAssignable;
 
-import java.lang.reflect.Method;
-import java.lang.reflect.Proxy;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Supplier;
-
-import com.google.common.base.Defaults;
+import java.util.stream.Stream;
 
 @com.google.gson.annotations.JsonAdapter(ImmutableTypeAdapter.class)
 public class Immutable<I>
 {
+    // number of entries below which a subtree is merged or diffed sequentially
+    public static final int PARALLEL_THRESHOLD = 4096;
+
     private final transient NextImmutable nextImmutable = new NextImmutable();
     private final Class<I> type;
     private final Map<String, Object> values;
+    private final transient ChangeLog changeLog;
 
     public Immutable(Class<I> type)
     {
@@ -28,9 +33,20 @@ public class Immutable<I>
     }
 
     protected Immutable(Class<I> type, Map<String, Object> initialValues)
+    {
+        this(type, initialValues, null);
+    }
+
+    private Immutable(Class<I> type, Map<String, Object> initialValues, ChangeLog changeLog)
     {
         this.values = initialValues;
         this.type = type;
+        this.changeLog = changeLog;
+    }
+
+    public static <I> Immutable<I> withSchema(Class<I> type)
+    {
+        return new Immutable<>(type, Schema.of(type).emptyNode());
     }
 
     public I path()
@@ -40,36 +56,53 @@ public class Immutable<I>
 
     public I asObject()
     {
-        return immutableFor(type, emptyList());
+        return Accessors.accessorFor(type, values);
     }
 
     public <T> In<T> in(Function<I, Supplier<T>> pathToMethod)
     {
-        return in(pathToMethod.apply(path()));
+        final PathRecorder.PathInfo pathInfo = pathRecorderInstanceFor(type).pathInfoFor(pathToMethod);
+        return new In<>(pathInfo.path(), pathInfo.defaultValue());
     }
 
     public <T> In<T> in(Supplier<T> method)
     {
         // TODO can we rely on method as defaultValue?
-        final T defaultValue = method.get();
-        return new In<>(pathRecorderInstanceFor(type).pathFor(method), defaultValue);
+        final PathRecorder.PathInfo pathInfo = pathRecorderInstanceFor(type).pathInfoFor(method);
+        return new In<>(pathInfo.path(), pathInfo.defaultValue());
+    }
+
+    public <T> In<T> in(Path path, T defaultValue)
+    {
+        return new In<>(path, defaultValue);
     }
 
     // TODO: these methods should be mixins -> you can define your own Immutable feature set!
     public <T> InList<T> inList(Function<I, Supplier<List<T>>> pathToMethod)
     {
-        return inList(pathToMethod.apply(path()));
+        return inList(pathRecorderInstanceFor(type).pathInfoFor(pathToMethod).path());
     }
 
+    // missing lists are updated as empty lists, whichever way the path is given
     public <T> InList<T> inList(Supplier<List<T>> method)
     {
-        final List<T> defaultValue = method.get();
-        return new InList<>(pathRecorderInstanceFor(type).pathFor(method), defaultValue);
+        return inList(pathRecorderInstanceFor(type).pathFor(method));
+    }
+
+    public <T> InList<T> inList(Path path)
+    {
+        return new InList<>(path, PersistentVector.empty());
     }
 
     public <T> T get(Function<I, Supplier<T>> method)
     {
-        return get(method.apply(path()));
+        return get(pathRecorderInstanceFor(type).pathInfoFor(method).path());
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T get(Path path)
+    {
+        return (T) nextImmutable.getInPath(values, path);
     }
 
     @SuppressWarnings("unchecked")
@@ -78,9 +111,60 @@ public class Immutable<I>
         return (T) nextImmutable.getInPath(values, pathRecorderInstanceFor(type).pathFor(method));
     }
 
+    // the stored instance without defensive copy, arrays are shared: callers must never modify what they read
+    @SuppressWarnings("unchecked")
+    public <T> T getShared(Path path)
+    {
+        return (T) nextImmutable.subtreeInPath(values, path);
+    }
+
+    public <T> T getShared(Supplier<T> method)
+    {
+        return getShared(pathRecorderInstanceFor(type).pathFor(method));
+    }
+
+    // unboxed reads, missing values are 0 or false
+    public int getInt(Path path)
+    {
+        return nextImmutable.getIntInPath(values, path);
+    }
+
+    public long getLong(Path path)
+    {
+        return nextImmutable.getLongInPath(values, path);
+    }
+
+    public double getDouble(Path path)
+    {
+        return nextImmutable.getDoubleInPath(values, path);
+    }
+
+    public boolean getBoolean(Path path)
+    {
+        return nextImmutable.getBooleanInPath(values, path);
+    }
+
+    // selectors are created once and shared by all versions, see Selector
+    public <T, R> Selector<I, R> selector(Supplier<T> method, Function<T, R> compute)
+    {
+        return Selector.of(pathRecorderInstanceFor(type).pathFor(method), compute);
+    }
+
+    public <T0, T1, R> Selector<I, R> selector(Supplier<T0> method0, Supplier<T1> method1,
+        BiFunction<T0, T1, R> compute)
+    {
+        final PathRecorder<I> pathRecorder = pathRecorderInstanceFor(type);
+        return Selector.of(pathRecorder.pathFor(method0), pathRecorder.pathFor(method1), compute);
+    }
+
+    public <R> R select(Selector<I, R> selector)
+    {
+        return selector.apply(this);
+    }
+
     public Immutable<I> merge(Immutable<I> immutable)
     {
-        return new Immutable<>(type, nextImmutable.merge(values, immutable.values()));
+        return next(nextImmutable.merge(values, immutable.values()), immutable.values());
     }
 
     public Immutable<I> diff(Immutable<I> immutable)
@@ -88,9 +172,116 @@ public class Immutable<I>
         return new Immutable<>(type, nextImmutable.diff(values, immutable.values()));
     }
 
+    // merge and diff of large trees on the common fork join pool, see NextImmutable#parallelMerge
+    public Immutable<I> parallelMerge(Immutable<I> immutable)
+    {
+        return parallelMerge(immutable, ForkJoinPool.commonPool(), PARALLEL_THRESHOLD);
+    }
+
+    public Immutable<I> parallelMerge(Immutable<I> immutable, ForkJoinPool pool, int threshold)
+    {
+        return next(nextImmutable.parallelMerge(values, immutable.values(), pool, threshold), immutable.values());
+    }
+
+    public Immutable<I> parallelDiff(Immutable<I> immutable)
+    {
+        return parallelDiff(immutable, ForkJoinPool.commonPool(), PARALLEL_THRESHOLD);
+    }
+
+    public Immutable<I> parallelDiff(Immutable<I> immutable, ForkJoinPool pool, int threshold)
+    {
+        return new Immutable<>(type, nextImmutable.parallelDiff(values, immutable.values(), pool, threshold));
+    }
+
+    // inverse of diff: this.diff(other) patched into this is equal to other
+    public Immutable<I> patch(Immutable<I> patch)
+    {
+        return next(nextImmutable.patch(values, patch.values()), patch.values());
+    }
+
+    public Stream<Change> changes(Immutable<I> immutable)
+    {
+        return nextImmutable.changes(values, immutable.values());
+    }
+
+    // versions derived from the returned immutable record the paths they write, see changedPathsSince
+    public Immutable<I> withChangeLog()
+    {
+        return new Immutable<>(type, values, ChangeLog.start());
+    }
+
+    public Set<Path> changedPathsSince(Immutable<I> previousVersion)
+    {
+        checkState(changeLog != null, "No change log was recorded. Did you call Immutable#withChangeLog()?");
+        checkArgument(previousVersion.changeLog != null, "The passed immutable is not a previous version of this "
+            + "immutable, it has no change log.");
+        return changeLog.pathsSince(previousVersion.changeLog);
+    }
+
+    // same changes as previousVersion.changes(this), but only the written paths are compared
+    public Stream<Change> changesSince(Immutable<I> previousVersion)
+    {
+        return nextImmutable.changes(previousVersion.values(), values, changedPathsSince(previousVersion));
+    }
+
+    public Immutable<I> produce(Consumer<Draft> recipe)
+    {
+        final Draft draft = new Draft();
+        recipe.accept(draft);
+
+        if (draft.changes.isEmpty())
+        {
+            return this;
+        }
+
+        final Map<String, Object> newValues = draft.changes.applyTo(values);
+        return newValues == values
+            ? this
+            : new Immutable<>(type, newValues, changeLog == null
+                ? null
+                : changeLog.append(draft.changes.paths()));
+    }
+
     public Immutable<I> clear()
     {
-        return new Immutable<>(type, IMMUTABLE_NODE);
+        return next(values instanceof PersistentNode
+            ? ((PersistentNode) values).emptyNode()
+            : IMMUTABLE_NODE, Path.root());
+    }
+
+    // writes that change nothing return this immutable, so its identity can be used to detect changes
+    private Immutable<I> next(Map<String, Object> newValues, Path writtenPath)
+    {
+        return newValues == values
+            ? this
+            : new Immutable<>(type, newValues, changeLog == null
+                ? null
+                : changeLog.append(writtenPath));
+    }
+
+    private Immutable<I> next(Map<String, Object> newValues, Map<String, Object> writtenValues)
+    {
+        return newValues == values
+            ? this
+            : new Immutable<>(type, newValues, changeLog == null
+                ? null
+                : changeLog.append(ChangeLog.leafPathsOf(nextImmutable, writtenValues)));
+    }
+
+    public Stream<NodeEntry> nodes()
+    {
+        return nextImmutable.nodes(values);
+    }
+
+    public Stream<NodeEntry> leaves()
+    {
+        return nextImmutable.leaves(values);
+    }
+
+    // nodes and leafs depth first with a reused path buffer, see PathVisitor
+    public void visit(PathVisitor visitor)
+    {
+        nextImmutable.visit(values, visitor);
     }
 
     public void visitNodes(final NodeVisitor visitor)
@@ -104,96 +295,166 @@ public class Immutable<I>
         return type;
     }
 
-    public class In<T>
+    public class In<T> extends AbstractIn<T, Immutable<I>>
     {
-        private final List<String> path;
-        private final Object defaultValue;
+        private final Path path;
 
         public In(List<String> path, Object defaultValue)
         {
-            this.path = path;
-            this.defaultValue = defaultValue;
+            super(defaultValue);
+            this.path = Path.of(path);
         }
 
-        public Immutable<I> set(T value)
+        public Immutable<I> setInt(int value)
         {
-            return new Immutable<>(type, nextImmutable.setIn(values, path, immutableNodeOr(value)));
+            return next(nextImmutable.setIntIn(values, path, value), path);
         }
 
-        public Immutable<I> set(Immutable<T> immutableValue)
+        public Immutable<I> setLong(long value)
         {
-            return set(immutableValue.asObject());
+            return next(nextImmutable.setLongIn(values, path, value), path);
         }
 
-        @SuppressWarnings("unchecked")
-        public Immutable<I> update(Function<T, T> updater)
+        public Immutable<I> setDouble(double value)
         {
-            return new Immutable<>( //
-                type, //
-                nextImmutable.updateIn( //
-                    values, //
-                    path, //
-                    value -> updater.apply((T) (value == null
-                        ? defaultValue
-                        : value))));
+            return next(nextImmutable.setDoubleIn(values, path, value), path);
         }
 
-        private Object immutableNodeOr(T value)
+        public Immutable<I> setBoolean(boolean value)
         {
-            return value instanceof ImmutableNode
-                ? ((ImmutableNode) value).values()
-                : value;
+            return next(nextImmutable.setBooleanIn(values, path, value), path);
+        }
+
+        @Override
+        Immutable<I> write(Object value)
+        {
+            return next(nextImmutable.setIn(values, path, value), path);
+        }
+
+        @Override
+        Object read()
+        {
+            return nextImmutable.getInPath(values, path);
         }
     }
 
-    public class InList<LT>
+    public class InList<LT> extends AbstractInList<LT, Immutable<I>>
     {
-        private final List<String> path;
-        private final List<LT> defaultValue;
+        private final Path path;
 
         public InList(List<String> path, List<LT> defaultValue)
         {
-            this.path = path;
-            this.defaultValue = defaultValue;
+            super(defaultValue);
+            this.path = Path.of(path);
+        }
+
+        @Override
+        Immutable<I> write(List<LT> value)
+        {
+            return next(nextImmutable.setIn(values, path, value), path);
+        }
+
+        @Override
+        Object read()
+        {
+            return nextImmutable.getInPath(values, path);
+        }
+    }
+
+    public class Draft
+    {
+        private final DraftChanges changes = new DraftChanges(nextImmutable);
+
+        private Draft()
+        {
+        }
+
+        public I path()
+        {
+            return Immutable.this.path();
+        }
+
+        public <T> DraftIn<T> in(Function<I, Supplier<T>> pathToMethod)
+        {
+            final PathRecorder.PathInfo pathInfo = pathRecorderInstanceFor(type).pathInfoFor(pathToMethod);
+            return new DraftIn<>(pathInfo.path(), pathInfo.defaultValue());
+        }
+
+        public <T> DraftIn<T> in(Supplier<T> method)
+        {
+            final PathRecorder.PathInfo pathInfo = pathRecorderInstanceFor(type).pathInfoFor(method);
+            return new DraftIn<>(pathInfo.path(), pathInfo.defaultValue());
         }
 
-        public Immutable<I> set(List<LT> value)
+        public <T> DraftInList<T> inList(Function<I, Supplier<List<T>>> pathToMethod)
         {
-            return new Immutable<>(type, nextImmutable.setIn(values, path, value));
+            return new DraftInList<>(pathRecorderInstanceFor(type).pathInfoFor(pathToMethod).path(),
+                PersistentVector.empty());
         }
 
-        public Immutable<I> set(ImmutableList<LT> value)
+        public <T> DraftInList<T> inList(Supplier<List<T>> method)
         {
-            return set(value.asList());
+            return new DraftInList<>(pathRecorderInstanceFor(type).pathFor(method), PersistentVector.empty());
         }
 
         @SuppressWarnings("unchecked")
-        public Immutable<I> update(Function<ImmutableList<LT>, ImmutableList<LT>> updater)
+        public <T> T get(Function<I, Supplier<T>> method)
         {
-            return new Immutable<>( //
-                type, //
-                nextImmutable.updateIn( //
-                    values, //
-                    path, //
-                    value -> updater.apply(value == null
-                        ? new ImmutableList<>()
-                        : new ImmutableList<LT>() //
-                            .addAll((List<LT>) value)) //
-                        .asList()));
+            return (T) changes.get(values, pathRecorderInstanceFor(type).pathInfoFor(method).path());
         }
 
-        // TODO check for redundant code!
         @SuppressWarnings("unchecked")
-        public Immutable<I> updateList(Function<List<LT>, List<LT>> updater)
+        public <T> T get(Supplier<T> method)
         {
-            return new Immutable<>( //
-                type, //
-                nextImmutable.updateIn( //
-                    values, //
-                    path, //
-                    value -> updater.apply(value == null
-                        ? defaultValue
-                        : (List<LT>) value)));
+            return (T) changes.get(values, pathRecorderInstanceFor(type).pathFor(method));
+        }
+
+        public class DraftIn<T> extends AbstractIn<T, Draft>
+        {
+            private final Path path;
+
+            private DraftIn(Path path, Object defaultValue)
+            {
+                super(defaultValue);
+                this.path = path;
+            }
+
+            @Override
+            Draft write(Object value)
+            {
+                changes.set(path, value);
+                return Draft.this;
+            }
+
+            @Override
+            Object read()
+            {
+                return changes.get(values, path);
+            }
+        }
+
+        public class DraftInList<LT> extends AbstractInList<LT, Draft>
+        {
+            private final Path path;
+
+            private DraftInList(Path path, List<LT> defaultValue)
+            {
+                super(defaultValue);
+                this.path = path;
+            }
+
+            @Override
+            Draft write(List<LT> value)
+            {
+                changes.set(path, value);
+                return Draft.this;
+            }
+
+            @Override
+            Object read()
+            {
+                return changes.get(values, path);
+            }
         }
     }
 
@@ -219,48 +480,6 @@ public class Immutable<I>
         return values;
     }
 
-    @SuppressWarnings("unchecked")
-    private <T> T immutableFor(Class<T> type, List<String> nestedPath)
-    {
-        return (T) Proxy.newProxyInstance( //
-            ImmutableNode.class.getClassLoader(), //
-            new Class<?>[]{type, ImmutableNode.class}, //
-            new ImmutableObjectInvocationHandler(nestedPath) //
-        );
-    }
-
-    private class ImmutableObjectInvocationHandler extends AbstractPathInvocationHandler
-    {
-        public ImmutableObjectInvocationHandler(List<String> path)
-        {
-            super(path);
-        }
-
-        @Override
-        protected Object handleInvocation(List<String> path, Method method) throws Throwable
-        {
-            if (method.getName().equals("values"))
-            {
-                return path.isEmpty()
-                    ? values
-                    : nextImmutable.getInPath(values, path);
-            }
-
-            final List<String> pathWithMethod = pathWith(method);
-            final Class<?> returnType = method.getReturnType();
-
-            final Object value = nextImmutable.getInPath(values, pathWithMethod);
-            final Object returnValue = value == null
-                ? Defaults.defaultValue(returnType)
-                : value;
-            final boolean isCastable = returnValue == null || isAssignable(returnValue.getClass(), returnType);
-
-            return isCastable
-                ? returnValue
-                : immutableFor(returnType, pathWithMethod);
-        }
-    }
-
     public interface ImmutableNode
     {
         Map<String, Object> values();
@@ -0,0 +1,92 @@
+package de.davherrmann.immutable;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import com.google.gson.annotations.JsonAdapter;
+
+// read-only array leaf: copied once when created, then stored and returned without defensive copies
+@JsonAdapter(ImmutableArrayTypeAdapterFactory.class)
+public final class ImmutableArray<E> implements Iterable<E>
+{
+    private final E[] values;
+
+    private ImmutableArray(E[] values)
+    {
+        this.values = values;
+    }
+
+    @SafeVarargs
+    @SuppressWarnings("varargs")
+    public static <E> ImmutableArray<E> of(E... values)
+    {
+        return copyOf(values);
+    }
+
+    public static <E> ImmutableArray<E> copyOf(E[] values)
+    {
+        return new ImmutableArray<>(values.clone());
+    }
+
+    static <E> ImmutableArray<E> wrap(E[] values)
+    {
+        return new ImmutableArray<>(values);
+    }
+
+    public int length()
+    {
+        return values.length;
+    }
+
+    public E get(int index)
+    {
+        return values[index];
+    }
+
+    public E[] toArray()
+    {
+        return values.clone();
+    }
+
+    public List<E> asList()
+    {
+        return Collections.unmodifiableList(Arrays.asList(values));
+    }
+
+    public Stream<E> stream()
+    {
+        return Arrays.stream(values);
+    }
+
+    @Override
+    public Iterator<E> iterator()
+    {
+        return asList().iterator();
+    }
+
+    E[] array()
+    {
+        return values;
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        return o == this || o instanceof ImmutableArray && Arrays.equals(values, ((ImmutableArray<?>) o).values);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Arrays.hashCode(values);
+    }
+
+    @Override
+    public String toString()
+    {
+        return Arrays.toString(values);
+    }
+}
@@ -0,0 +1,152 @@
+package de.davherrmann.immutable;
+
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.List;
+
+import com.google.common.collect.Lists;
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+// the immutable arrays are written as plain JSON arrays
+public class ImmutableArrayTypeAdapterFactory implements TypeAdapterFactory
+{
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type)
+    {
+        final Class<? super T> rawType = type.getRawType();
+
+        if (rawType == ImmutableIntArray.class)
+        {
+            final TypeAdapter<int[]> arrayAdapter = gson.getAdapter(int[].class);
+            return (TypeAdapter<T>) new ArrayTypeAdapter<ImmutableIntArray>()
+            {
+                @Override
+                void writeArray(JsonWriter out, ImmutableIntArray value) throws IOException
+                {
+                    arrayAdapter.write(out, value.array());
+                }
+
+                @Override
+                ImmutableIntArray readArray(JsonReader in) throws IOException
+                {
+                    return ImmutableIntArray.wrap(arrayAdapter.read(in));
+                }
+            };
+        }
+
+        if (rawType == ImmutableLongArray.class)
+        {
+            final TypeAdapter<long[]> arrayAdapter = gson.getAdapter(long[].class);
+            return (TypeAdapter<T>) new ArrayTypeAdapter<ImmutableLongArray>()
+            {
+                @Override
+                void writeArray(JsonWriter out, ImmutableLongArray value) throws IOException
+                {
+                    arrayAdapter.write(out, value.array());
+                }
+
+                @Override
+                ImmutableLongArray readArray(JsonReader in) throws IOException
+                {
+                    return ImmutableLongArray.wrap(arrayAdapter.read(in));
+                }
+            };
+        }
+
+        if (rawType == ImmutableDoubleArray.class)
+        {
+            final TypeAdapter<double[]> arrayAdapter = gson.getAdapter(double[].class);
+            return (TypeAdapter<T>) new ArrayTypeAdapter<ImmutableDoubleArray>()
+            {
+                @Override
+                void writeArray(JsonWriter out, ImmutableDoubleArray value) throws IOException
+                {
+                    arrayAdapter.write(out, value.array());
+                }
+
+                @Override
+                ImmutableDoubleArray readArray(JsonReader in) throws IOException
+                {
+                    return ImmutableDoubleArray.wrap(arrayAdapter.read(in));
+                }
+            };
+        }
+
+        if (rawType == ImmutableArray.class)
+        {
+            return (TypeAdapter<T>) objectArrayAdapter(gson, type.getType());
+        }
+
+        return null;
+    }
+
+    private static TypeAdapter<ImmutableArray<Object>> objectArrayAdapter(Gson gson, Type type)
+    {
+        final TypeToken<?> elementType = TypeToken.get(type instanceof ParameterizedType
+            ? ((ParameterizedType) type).getActualTypeArguments()[0]
+            : Object.class);
+        @SuppressWarnings("unchecked")
+        final TypeAdapter<Object> elementAdapter = (TypeAdapter<Object>) gson.getAdapter(elementType);
+
+        return new ArrayTypeAdapter<ImmutableArray<Object>>()
+        {
+            @Override
+            void writeArray(JsonWriter out, ImmutableArray<Object> value) throws IOException
+            {
+                out.beginArray();
+                for (Object element : value.array())
+                {
+                    elementAdapter.write(out, element);
+                }
+                out.endArray();
+            }
+
+            @Override
+            ImmutableArray<Object> readArray(JsonReader in) throws IOException
+            {
+                final List<Object> elements = Lists.newArrayList();
+                in.beginArray();
+                while (in.hasNext())
+                {
+                    elements.add(elementAdapter.read(in));
+                }
+                in.endArray();
+
+                final Object[] array = (Object[]) Array.newInstance(elementType.getRawType(), elements.size());
+                return ImmutableArray.wrap(elements.toArray(array));
+            }
+        };
+    }
+
+    private abstract static class ArrayTypeAdapter<A> extends TypeAdapter<A>
+    {
+        @Override
+        public void write(JsonWriter out, A value) throws IOException
+        {
+            if (value == null)
+            {
+                out.nullValue();
+                return;
+            }
+            writeArray(out, value);
+        }
+
+        @Override
+        public A read(JsonReader in) throws IOException
+        {
+            return readArray(in);
+        }
+
+        abstract void writeArray(JsonWriter out, A value) throws IOException;
+
+        abstract A readArray(JsonReader in) throws IOException;
+    }
+}
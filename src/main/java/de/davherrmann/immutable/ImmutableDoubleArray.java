@@ -0,0 +1,77 @@
+package de.davherrmann.immutable;
+
+import java.util.Arrays;
+import java.util.stream.DoubleStream;
+
+import com.google.gson.annotations.JsonAdapter;
+
+// read-only double[] leaf without boxing, see ImmutableArray
+@JsonAdapter(ImmutableArrayTypeAdapterFactory.class)
+public final class ImmutableDoubleArray
+{
+    private final double[] values;
+
+    private ImmutableDoubleArray(double[] values)
+    {
+        this.values = values;
+    }
+
+    public static ImmutableDoubleArray of(double... values)
+    {
+        return copyOf(values);
+    }
+
+    public static ImmutableDoubleArray copyOf(double[] values)
+    {
+        return new ImmutableDoubleArray(values.clone());
+    }
+
+    static ImmutableDoubleArray wrap(double[] values)
+    {
+        return new ImmutableDoubleArray(values);
+    }
+
+    public int length()
+    {
+        return values.length;
+    }
+
+    public double get(int index)
+    {
+        return values[index];
+    }
+
+    public double[] toArray()
+    {
+        return values.clone();
+    }
+
+    public DoubleStream stream()
+    {
+        return Arrays.stream(values);
+    }
+
+    double[] array()
+    {
+        return values;
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        return o == this //
+            || o instanceof ImmutableDoubleArray && Arrays.equals(values, ((ImmutableDoubleArray) o).values);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Arrays.hashCode(values);
+    }
+
+    @Override
+    public String toString()
+    {
+        return Arrays.toString(values);
+    }
+}
@@ -0,0 +1,77 @@
+package de.davherrmann.immutable;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+import com.google.gson.annotations.JsonAdapter;
+
+// read-only int[] leaf without boxing, see ImmutableArray
+@JsonAdapter(ImmutableArrayTypeAdapterFactory.class)
+public final class ImmutableIntArray
+{
+    private final int[] values;
+
+    private ImmutableIntArray(int[] values)
+    {
+        this.values = values;
+    }
+
+    public static ImmutableIntArray of(int... values)
+    {
+        return copyOf(values);
+    }
+
+    public static ImmutableIntArray copyOf(int[] values)
+    {
+        return new ImmutableIntArray(values.clone());
+    }
+
+    static ImmutableIntArray wrap(int[] values)
+    {
+        return new ImmutableIntArray(values);
+    }
+
+    public int length()
+    {
+        return values.length;
+    }
+
+    public int get(int index)
+    {
+        return values[index];
+    }
+
+    public int[] toArray()
+    {
+        return values.clone();
+    }
+
+    public IntStream stream()
+    {
+        return Arrays.stream(values);
+    }
+
+    int[] array()
+    {
+        return values;
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        return o == this //
+            || o instanceof ImmutableIntArray && Arrays.equals(values, ((ImmutableIntArray) o).values);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Arrays.hashCode(values);
+    }
+
+    @Override
+    public String toString()
+    {
+        return Arrays.toString(values);
+    }
+}
@@ -4,37 +4,57 @@ import java.util.List;
 
 import com.google.gson.annotations.JsonAdapter;
 
-@JsonAdapter(ImmutableListTypeAdapter.class)
+@JsonAdapter(ImmutableListTypeAdapterFactory.class)
 public class ImmutableList<I>
 {
-    private final List<I> values;
+    private final PersistentVector<I> values;
 
     public ImmutableList()
     {
-        this(com.google.common.collect.ImmutableList.of());
+        this(PersistentVector.empty());
     }
 
-    private ImmutableList(List<I> initialValues)
+    private ImmutableList(PersistentVector<I> initialValues)
     {
         this.values = initialValues;
     }
 
-    // TODO add(Immutable<I> immutableItem) & addAll(ImmutableList<I> immutableItems)?
+    public static <I> ImmutableList<I> copyOf(List<I> items)
+    {
+        return new ImmutableList<>(PersistentVector.copyOf(items));
+    }
+
+    // TODO add(Immutable<I> immutableItem)?
 
     public ImmutableList<I> add(I item)
     {
-        return new ImmutableList<>(com.google.common.collect.ImmutableList.<I>builder() //
-            .addAll(values) //
-            .add(item) //
-            .build());
+        return new ImmutableList<>(values.plus(item));
     }
 
     public ImmutableList<I> addAll(List<I> items)
     {
-        return new ImmutableList<>(com.google.common.collect.ImmutableList.<I>builder() //
-            .addAll(values) //
-            .addAll(items) //
-            .build());
+        return new ImmutableList<>(values.plusAll(items));
+    }
+
+    // pushes the leaf arrays of items instead of single items
+    public ImmutableList<I> addAll(ImmutableList<I> items)
+    {
+        return new ImmutableList<>(values.plusAll(items.values));
+    }
+
+    public I get(int index)
+    {
+        return values.get(index);
+    }
+
+    public ImmutableList<I> set(int index, I item)
+    {
+        return new ImmutableList<>(values.with(index, item));
+    }
+
+    public ImmutableList<I> slice(int fromIndex, int toIndex)
+    {
+        return new ImmutableList<>(values.slice(fromIndex, toIndex));
     }
 
     public List<I> asList()
@@ -1,12 +1,14 @@
 package de.davherrmann.immutable;
 
 import java.io.IOException;
+import java.lang.reflect.Type;
 import java.util.List;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.TypeAdapter;
 import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 import com.google.gson.stream.JsonWriter;
 
 public class ImmutableListTypeAdapter extends TypeAdapter<ImmutableList<?>>
@@ -15,16 +17,36 @@ public class ImmutableListTypeAdapter extends TypeAdapter<ImmutableList<?>>
         .registerTypeAdapterFactory(new ImmutableTypeAdapterFactory()) //
         .create();
 
+    private final NodeReader nodeReader = new NodeReader(gson);
+    private final Type elementType;
+
+    public ImmutableListTypeAdapter()
+    {
+        this(null);
+    }
+
+    // elementType may be null to read the elements without a type
+    ImmutableListTypeAdapter(Type elementType)
+    {
+        this.elementType = elementType;
+    }
+
     @Override
     public void write(JsonWriter out, ImmutableList<?> value) throws IOException
     {
         gson.getAdapter(List.class).write(out, value.asList());
     }
 
+    // without element type objects with the immutableNode marker become nodes, integral numbers ints or longs
     @Override
     public ImmutableList<?> read(JsonReader in) throws IOException
     {
-        // TODO implement gson read
-        return null;
+        if (in.peek() == JsonToken.NULL)
+        {
+            in.nextNull();
+            return null;
+        }
+
+        return ImmutableList.copyOf(nodeReader.readList(in, elementType));
     }
 }
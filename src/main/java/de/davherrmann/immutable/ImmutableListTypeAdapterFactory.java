@@ -0,0 +1,28 @@
+package de.davherrmann.immutable;
+
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+
+// passes the element type of ImmutableList<E> to the adapter, so the elements are read as E
+public class ImmutableListTypeAdapterFactory implements TypeAdapterFactory
+{
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type)
+    {
+        if (type.getRawType() != ImmutableList.class)
+        {
+            return null;
+        }
+
+        final Type listType = type.getType();
+        return (TypeAdapter<T>) new ImmutableListTypeAdapter(listType instanceof ParameterizedType
+            ? ((ParameterizedType) listType).getActualTypeArguments()[0]
+            : null);
+    }
+}
@@ -0,0 +1,77 @@
+package de.davherrmann.immutable;
+
+import java.util.Arrays;
+import java.util.stream.LongStream;
+
+import com.google.gson.annotations.JsonAdapter;
+
+// read-only long[] leaf without boxing, see ImmutableArray
+@JsonAdapter(ImmutableArrayTypeAdapterFactory.class)
+public final class ImmutableLongArray
+{
+    private final long[] values;
+
+    private ImmutableLongArray(long[] values)
+    {
+        this.values = values;
+    }
+
+    public static ImmutableLongArray of(long... values)
+    {
+        return copyOf(values);
+    }
+
+    public static ImmutableLongArray copyOf(long[] values)
+    {
+        return new ImmutableLongArray(values.clone());
+    }
+
+    static ImmutableLongArray wrap(long[] values)
+    {
+        return new ImmutableLongArray(values);
+    }
+
+    public int length()
+    {
+        return values.length;
+    }
+
+    public long get(int index)
+    {
+        return values[index];
+    }
+
+    public long[] toArray()
+    {
+        return values.clone();
+    }
+
+    public LongStream stream()
+    {
+        return Arrays.stream(values);
+    }
+
+    long[] array()
+    {
+        return values;
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        return o == this //
+            || o instanceof ImmutableLongArray && Arrays.equals(values, ((ImmutableLongArray) o).values);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Arrays.hashCode(values);
+    }
+
+    @Override
+    public String toString()
+    {
+        return Arrays.toString(values);
+    }
+}
@@ -0,0 +1,15 @@
+package de.davherrmann.immutable;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// marks state interfaces for the immutable-processor, which generates <Name>Value and <Name>Paths next to them
+@Documented
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.TYPE)
+public @interface ImmutableState
+{
+}
@@ -1,14 +1,19 @@
 package de.davherrmann.immutable;
 
+import static de.davherrmann.immutable.NextImmutable.IMMUTABLE_NODE;
+
 import java.io.IOException;
+import java.io.StringReader;
 import java.util.Map;
 
 import org.slf4j.Logger;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
 import com.google.gson.TypeAdapter;
 import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 import com.google.gson.stream.JsonWriter;
 
 public class ImmutableTypeAdapter<T> extends TypeAdapter<Immutable<T>>
@@ -17,6 +22,8 @@ public class ImmutableTypeAdapter<T> extends TypeAdapter<Immutable<T>>
         .registerTypeAdapterFactory(new ImmutableTypeAdapterFactory()) //
         .create();
 
+    private final NodeReader nodeReader = new NodeReader(gson);
+
     private final static Logger log = org.slf4j.LoggerFactory.getLogger(ImmutableTypeAdapter.class);
 
     @Override
@@ -26,11 +33,56 @@ public class ImmutableTypeAdapter<T> extends TypeAdapter<Immutable<T>>
         gson.getAdapter(ImmutableJSONWrapper.class).write(out, jsonWrapper);
     }
 
+    // streams the data into nodes typed by the getters of type, data written before type is buffered until the type
+    // is known
     @Override
+    @SuppressWarnings("unchecked")
     public Immutable<T> read(JsonReader in) throws IOException
     {
-        final ImmutableJSONWrapper jsonWrapper = gson.fromJson(in, ImmutableJSONWrapper.class);
-        return new Immutable<>(classFor(jsonWrapper.fullQualifiedType()), jsonWrapper.data());
+        if (in.peek() == JsonToken.NULL)
+        {
+            in.nextNull();
+            return null;
+        }
+
+        Class<T> type = null;
+        Map<String, Object> data = IMMUTABLE_NODE;
+        JsonElement bufferedData = null;
+
+        in.beginObject();
+        while (in.hasNext())
+        {
+            final String name = in.nextName();
+            if ("type".equals(name) && in.peek() != JsonToken.NULL)
+            {
+                type = classFor(in.nextString());
+            }
+            else if ("data".equals(name) && in.peek() != JsonToken.NULL)
+            {
+                if (type == null)
+                {
+                    bufferedData = gson.getAdapter(JsonElement.class).read(in);
+                }
+                else
+                {
+                    data = nodeReader.readNode(in, type);
+                }
+            }
+            else
+            {
+                in.skipValue();
+            }
+        }
+        in.endObject();
+
+        if (bufferedData != null)
+        {
+            data = nodeReader.readNode(new JsonReader(new StringReader(bufferedData.toString())), type);
+        }
+
+        return new Immutable<>(type == null
+            ? (Class<T>) Object.class
+            : type, data);
     }
 
     @SuppressWarnings("unchecked")
@@ -58,15 +110,5 @@ public class ImmutableTypeAdapter<T> extends TypeAdapter<Immutable<T>>
             this.type = type;
             this.data = data;
         }
-
-        public String fullQualifiedType()
-        {
-            return type;
-        }
-
-        public Map<String, Object> data()
-        {
-            return data;
-        }
     }
 }
@@ -8,6 +8,7 @@ import com.google.gson.TypeAdapter;
 import com.google.gson.TypeAdapterFactory;
 import com.google.gson.reflect.TypeToken;
 import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 import com.google.gson.stream.JsonWriter;
 
 public class ImmutableTypeAdapterFactory implements TypeAdapterFactory
@@ -17,6 +18,9 @@ public class ImmutableTypeAdapterFactory implements TypeAdapterFactory
     {
         if (Immutable.ImmutableNode.class.isAssignableFrom(type.getRawType()))
         {
+            final Class<?> nodeType = nodeTypeOf(type.getRawType());
+            final NodeReader nodeReader = new NodeReader(gson);
+
             return new TypeAdapter<T>()
             {
                 @Override
@@ -26,14 +30,43 @@ public class ImmutableTypeAdapterFactory implements TypeAdapterFactory
                 }
 
                 @Override
+                @SuppressWarnings("unchecked")
                 public T read(JsonReader in) throws IOException
                 {
-                    // TODO implement gson read
-                    return null;
+                    if (in.peek() == JsonToken.NULL)
+                    {
+                        in.nextNull();
+                        return null;
+                    }
+
+                    final Map<String, Object> values = nodeReader.readNode(in, nodeType);
+                    return nodeType == null
+                        ? (T) (Immutable.ImmutableNode) () -> values
+                        : (T) Accessors.accessorFor(nodeType, values);
                 }
             };
         }
 
         return null;
     }
+
+    // the interface a proxy or generated accessor implements, null for ImmutableNode itself
+    private static Class<?> nodeTypeOf(Class<?> rawType)
+    {
+        if (rawType.isInterface())
+        {
+            return rawType == Immutable.ImmutableNode.class
+                ? null
+                : rawType;
+        }
+
+        for (Class<?> type : rawType.getInterfaces())
+        {
+            if (type != Immutable.ImmutableNode.class)
+            {
+                return type;
+            }
+        }
+        return null;
+    }
 }
@@ -0,0 +1,143 @@
+package de.davherrmann.immutable;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static com.google.common.collect.Maps.newHashMap;
+import static de.davherrmann.immutable.ChangeIterator.differentKeys;
+import static de.davherrmann.immutable.Compare.areEqual;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// listeners indexed by the segments of their paths: a commit only walks the subtrees that are different instances,
+// so the dispatch cost depends on the changed paths and not on the number of listeners
+final class ListenerTrie<L>
+{
+    private final Node<L> root = new Node<>(null, null);
+    private static final Runnable NO_VISITOR = () -> {
+    };
+
+    synchronized Subscription add(Path path, L listener)
+    {
+        Node<L> node = root;
+        for (String segment : path)
+        {
+            node = node.child(segment);
+        }
+        node.listeners.add(listener);
+
+        final Node<L> listenerNode = node;
+        return () -> remove(listenerNode, listener);
+    }
+
+    private synchronized void remove(Node<L> node, L listener)
+    {
+        for (int i = 0; i < node.listeners.size(); i++)
+        {
+            if (node.listeners.get(i) == listener)
+            {
+                node.listeners.remove(i);
+                node.removeIfEmpty();
+                return;
+            }
+        }
+    }
+
+    // listeners whose path is a prefix of a changed path or lies below one
+    List<L> affectedBy(Map<String, Object> oldValues, Map<String, Object> newValues)
+    {
+        return affectedBy(oldValues, newValues, NO_VISITOR);
+    }
+
+    // visitor runs for every trie node the walk collects listeners from, tests count the dispatch cost with it
+    synchronized List<L> affectedBy(Map<String, Object> oldValues, Map<String, Object> newValues, Runnable visitor)
+    {
+        final List<L> affected = newArrayList();
+        collect(root, oldValues, newValues, affected, visitor);
+        return affected;
+    }
+
+    private void collect(Node<L> node, Object oldValue, Object newValue, List<L> affected, Runnable visitor)
+    {
+        if (oldValue == newValue || !isNode(oldValue) && !isNode(newValue) && areEqual(oldValue, newValue))
+        {
+            return;
+        }
+
+        visitor.run();
+        affected.addAll(node.listeners);
+        if (node.children.isEmpty() || !isNode(oldValue) && !isNode(newValue))
+        {
+            return;
+        }
+
+        // many subscribed siblings: only look at the ones whose key changed
+        if (node.children.size() > 1 && isNode(oldValue) && isNode(newValue))
+        {
+            final Set<String> changedKeys = differentKeys(asNode(oldValue), asNode(newValue));
+            if (changedKeys.size() < node.children.size())
+            {
+                for (String key : changedKeys)
+                {
+                    final Node<L> child = node.children.get(key);
+                    if (child != null)
+                    {
+                        collect(child, childOf(oldValue, key), childOf(newValue, key), affected, visitor);
+                    }
+                }
+                return;
+            }
+        }
+
+        for (Node<L> child : node.children.values())
+        {
+            collect(child, childOf(oldValue, child.segment), childOf(newValue, child.segment), affected, visitor);
+        }
+    }
+
+    private static boolean isNode(Object value)
+    {
+        return value instanceof Map;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> asNode(Object value)
+    {
+        return (Map<String, Object>) value;
+    }
+
+    private static Object childOf(Object value, String segment)
+    {
+        return isNode(value)
+            ? ((Map<?, ?>) value).get(segment)
+            : null;
+    }
+
+    private static final class Node<L>
+    {
+        private final Node<L> parent;
+        private final String segment;
+        private final Map<String, Node<L>> children = newHashMap();
+        private final List<L> listeners = newArrayList();
+
+        private Node(Node<L> parent, String segment)
+        {
+            this.parent = parent;
+            this.segment = segment;
+        }
+
+        private Node<L> child(String segment)
+        {
+            return children.computeIfAbsent(segment, key -> new Node<>(this, key));
+        }
+
+        private void removeIfEmpty()
+        {
+            if (parent != null && listeners.isEmpty() && children.isEmpty())
+            {
+                parent.children.remove(segment);
+                parent.removeIfEmpty();
+            }
+        }
+    }
+}
@@ -1,38 +1,121 @@
 package de.davherrmann.immutable;
 
-import static com.google.common.base.Joiner.on;
 import static com.google.common.collect.Iterables.getOnlyElement;
-import static com.google.common.collect.Lists.newArrayList;
 import static de.davherrmann.immutable.Compare.areEqual;
 import static java.util.Optional.empty;
-import static java.util.stream.Collectors.toMap;
 
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Function;
 import java.util.stream.Stream;
-
-import com.google.common.collect.ImmutableMap;
+import java.util.stream.StreamSupport;
 
 public class NextImmutable
 {
-    public static Map<String, Object> IMMUTABLE_NODE = ImmutableMap.<String, Object>builder() //
-        .put("immutableNode", true) //
-        .build();
+    public static Map<String, Object> IMMUTABLE_NODE = HashTrieMap.empty().with("immutableNode", true);
     public static Entry<String, Object> IMMUTABLE_NODE_ENTRY = getOnlyElement(IMMUTABLE_NODE.entrySet());
 
     public Object getInPath(Map<String, Object> dataStructure, List<String> path)
     {
-        final Object nestedValue = dataStructure.get(path.get(0));
+        return Copy.defensiveCopyOf(subtreeInPath(dataStructure, path));
+    }
+
+    // the stored instance without defensive copies, the root for an empty path
+    Object subtreeInPath(Map<String, Object> dataStructure, List<String> path)
+    {
+        if (path.isEmpty())
+        {
+            return dataStructure;
+        }
+
+        final CompiledPath compiledPath = compiledPathFor(dataStructure, path);
+        Map<String, Object> node = dataStructure;
+
+        for (int i = 0; ; i++)
+        {
+            final String key = path.get(i);
+            final Object nestedValue = compiledPath == null
+                ? node.get(key)
+                : compiledPath.valueIn(node, i, key);
+
+            if (i == path.size() - 1 || nestedValue == null)
+            {
+                return nestedValue;
+            }
+
+            node = dataStructure(nestedValue);
+        }
+    }
+
+    public int getIntInPath(Map<String, Object> dataStructure, List<String> path)
+    {
+        final CompiledPath compiledPath = compiledPathFor(dataStructure, path);
+        final Map<String, Object> node = parentNodeIn(dataStructure, path, compiledPath);
+        final int slot = slotIn(node, path, compiledPath);
+
+        if (slot >= 0)
+        {
+            return ((SlotNode) node).intAt(slot);
+        }
+
+        final Object value = leafIn(node, path);
+        return value == null
+            ? 0
+            : ((Number) value).intValue();
+    }
+
+    public long getLongInPath(Map<String, Object> dataStructure, List<String> path)
+    {
+        final CompiledPath compiledPath = compiledPathFor(dataStructure, path);
+        final Map<String, Object> node = parentNodeIn(dataStructure, path, compiledPath);
+        final int slot = slotIn(node, path, compiledPath);
+
+        if (slot >= 0)
+        {
+            return ((SlotNode) node).longAt(slot);
+        }
+
+        final Object value = leafIn(node, path);
+        return value == null
+            ? 0
+            : ((Number) value).longValue();
+    }
+
+    public double getDoubleInPath(Map<String, Object> dataStructure, List<String> path)
+    {
+        final CompiledPath compiledPath = compiledPathFor(dataStructure, path);
+        final Map<String, Object> node = parentNodeIn(dataStructure, path, compiledPath);
+        final int slot = slotIn(node, path, compiledPath);
 
-        if (path.size() == 1 || nestedValue == null)
+        if (slot >= 0)
         {
-            return Copy.defensiveCopyOf(nestedValue);
+            return ((SlotNode) node).doubleAt(slot);
         }
 
-        return getInPath(dataStructure(nestedValue), path.subList(1, path.size()));
+        final Object value = leafIn(node, path);
+        return value == null
+            ? 0
+            : ((Number) value).doubleValue();
+    }
+
+    public boolean getBooleanInPath(Map<String, Object> dataStructure, List<String> path)
+    {
+        final CompiledPath compiledPath = compiledPathFor(dataStructure, path);
+        final Map<String, Object> node = parentNodeIn(dataStructure, path, compiledPath);
+        final int slot = slotIn(node, path, compiledPath);
+
+        if (slot >= 0)
+        {
+            return ((SlotNode) node).booleanAt(slot);
+        }
+
+        final Object value = leafIn(node, path);
+        return value != null && (Boolean) value;
     }
 
     public Map<String, Object> updateIn(Map<String, Object> dataStructure, List<String> path,
@@ -43,112 +126,357 @@ public class NextImmutable
 
     public Map<String, Object> setIn(final Map<String, Object> dataStructure, final List<String> path, Object value)
     {
-        return merge(dataStructure, changeForSinglePath(path, value));
+        return marked(setIn(dataStructure, path, 0, value, compiledPathFor(dataStructure, path)));
+    }
+
+    public Map<String, Object> setIntIn(Map<String, Object> dataStructure, List<String> path, int value)
+    {
+        return marked(setPrimitiveIn(dataStructure, path, 0, int.class, value,
+            compiledPathFor(dataStructure, path)));
+    }
+
+    public Map<String, Object> setLongIn(Map<String, Object> dataStructure, List<String> path, long value)
+    {
+        return marked(setPrimitiveIn(dataStructure, path, 0, long.class, value,
+            compiledPathFor(dataStructure, path)));
+    }
+
+    public Map<String, Object> setDoubleIn(Map<String, Object> dataStructure, List<String> path, double value)
+    {
+        return marked(setPrimitiveIn(dataStructure, path, 0, double.class, SlotNode.bitsOf(value),
+            compiledPathFor(dataStructure, path)));
+    }
+
+    public Map<String, Object> setBooleanIn(Map<String, Object> dataStructure, List<String> path, boolean value)
+    {
+        return marked(setPrimitiveIn(dataStructure, path, 0, boolean.class, SlotNode.bitsOf(value),
+            compiledPathFor(dataStructure, path)));
     }
 
     public Map<String, Object> merge(final Map<String, Object> dataStructure, final Map<String, Object> changes)
     {
-        return ImmutableMap.<String, Object>builder() //
-            .putAll(Stream.of(dataStructure, changes, IMMUTABLE_NODE) //
-                .map(Map::entrySet) //
-                .flatMap(Collection::stream) //
-                .collect(toMap( //
-                    Entry::getKey, //
-                    e -> Copy.defensiveCopyOf(e.getValue()), //
-                    (oldValue, newValue) -> isDataStructure(oldValue) && isDataStructure(newValue)
-                        ? merge(dataStructure(oldValue), dataStructure(newValue))
-                        : newValue))) //
-            .build();
+        PersistentNode result = node(dataStructure);
+
+        for (Entry<String, Object> change : changes.entrySet())
+        {
+            final String key = change.getKey();
+            result = result.with(key, mergedValue(result.get(key), change.getValue(), result.emptyChild(key)));
+        }
+
+        return result.with(IMMUTABLE_NODE_ENTRY.getKey(), IMMUTABLE_NODE_ENTRY.getValue());
     }
 
     public Map<String, Object> diff(Map<String, Object> dataStructure0, Map<String, Object> dataStructure1)
     {
-        return ImmutableMap.<String, Object>builder() //
-            .putAll(Stream.of(dataStructure0, dataStructure1, IMMUTABLE_NODE) //
-                .map(Map::entrySet) //
-                .flatMap(Collection::stream) //
-                .filter(e -> IMMUTABLE_NODE_ENTRY.equals(e) //
-                    || !areEqual(dataStructure0.get(e.getKey()), dataStructure1.get(e.getKey()))) //
-                .collect(toMap( //
-                    Entry::getKey, //
-                    e -> {
-                        final String key = e.getKey();
-                        final Object oldValue = dataStructure0.get(key);
-                        final Object newValue = dataStructure1.get(key);
-                        return newValue == null
-                            ? empty()
-                            : isDataStructure(oldValue) && isDataStructure(newValue)
-                                ? diff(dataStructure(oldValue), dataStructure(newValue))
-                                : newValue;
-                    }, //
-                    (oldValue, newValue) -> newValue))) //
-            .build();
+        PersistentNode result = node(IMMUTABLE_NODE);
+
+        for (String key : ChangeIterator.differentKeys(dataStructure0, dataStructure1))
+        {
+            final Object oldValue = dataStructure0.get(key);
+            final Object newValue = dataStructure1.get(key);
+
+            if (oldValue == newValue)
+            {
+                continue;
+            }
+
+            if (isDataStructure(oldValue) && isDataStructure(newValue))
+            {
+                final Map<String, Object> nestedDiff = diff(dataStructure(oldValue), dataStructure(newValue));
+                if (!isEmptyDiff(nestedDiff))
+                {
+                    result = result.with(key, nestedDiff);
+                }
+            }
+            else if (!areEqual(oldValue, newValue))
+            {
+                result = result.with(key, newValue == null
+                    ? empty()
+                    : newValue);
+            }
+        }
+
+        return result;
+    }
+
+    // nested nodes with equal leaves are left out of a diff, even if equals tells them apart (e.g. array leaves)
+    static boolean isEmptyDiff(Map<String, Object> diff)
+    {
+        return IMMUTABLE_NODE.equals(diff);
+    }
+
+    // same results as merge and diff, subtrees with more entries than the threshold are merged or diffed in parallel
+    public Map<String, Object> parallelMerge(Map<String, Object> dataStructure, Map<String, Object> changes,
+        ForkJoinPool pool, int threshold)
+    {
+        return new ParallelNodes(this, pool, threshold).merge(dataStructure, changes);
+    }
+
+    public Map<String, Object> parallelDiff(Map<String, Object> dataStructure0, Map<String, Object> dataStructure1,
+        ForkJoinPool pool, int threshold)
+    {
+        return new ParallelNodes(this, pool, threshold).diff(dataStructure0, dataStructure1);
+    }
+
+    // applies a diff in one pass: Optional.empty() removes a key, nested diffs are patched into the nested nodes
+    public Map<String, Object> patch(final Map<String, Object> dataStructure, final Map<String, Object> patch)
+    {
+        PersistentNode result = node(dataStructure);
+
+        for (Entry<String, Object> change : patch.entrySet())
+        {
+            final String key = change.getKey();
+            final Object value = change.getValue();
+
+            if (IMMUTABLE_NODE_ENTRY.getKey().equals(key))
+            {
+                continue;
+            }
+
+            if (isRemoval(value))
+            {
+                result = result.without(key);
+            }
+            else if (isDataStructure(value))
+            {
+                final Object oldValue = result.get(key);
+                result = result.with(key, patch(isDataStructure(oldValue)
+                    ? dataStructure(oldValue)
+                    : result.emptyChild(key), dataStructure(value)));
+            }
+            else
+            {
+                result = result.with(key, unchangedOr(result.get(key), value));
+            }
+        }
+
+        return result;
+    }
+
+    public Stream<Change> changes(Map<String, Object> dataStructure0, Map<String, Object> dataStructure1)
+    {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize( //
+            new ChangeIterator(this, dataStructure0, dataStructure1), //
+            Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    // only compares the values in the given paths, the paths must not contain each other
+    public Stream<Change> changes(Map<String, Object> dataStructure0, Map<String, Object> dataStructure1,
+        Collection<Path> paths)
+    {
+        return paths.stream().flatMap(path -> {
+            final Object oldValue = valueIn(dataStructure0, path);
+            final Object newValue = valueIn(dataStructure1, path);
+
+            if (oldValue == newValue)
+            {
+                return Stream.empty();
+            }
+
+            if (isDataStructure(oldValue) && isDataStructure(newValue))
+            {
+                return StreamSupport.stream(Spliterators.spliteratorUnknownSize( //
+                    new ChangeIterator(this, path, dataStructure(oldValue), dataStructure(newValue)), //
+                    Spliterator.ORDERED | Spliterator.NONNULL), false);
+            }
+
+            return areEqual(oldValue, newValue)
+                ? Stream.empty()
+                : Stream.of(new Change(path, oldValue, newValue));
+        });
+    }
+
+    // all nodes and leafs depth first, splittable for parallel streams; the order of siblings is unspecified
+    public Stream<NodeEntry> nodes(Map<String, Object> dataStructure)
+    {
+        return StreamSupport.stream(new NodeSpliterator(this, dataStructure, false), false);
+    }
+
+    public Stream<NodeEntry> leaves(Map<String, Object> dataStructure)
+    {
+        return StreamSupport.stream(new NodeSpliterator(this, dataStructure, true), false);
+    }
+
+    public void visit(Map<String, Object> dataStructure, PathVisitor visitor)
+    {
+        new PathWalker(this, visitor).walk(dataStructure);
     }
 
     public void visitNodes(final Map<String, Object> dataStructure, final NodeVisitor nodeVisitor)
     {
-        visitNodes(dataStructure, newArrayList(), nodeVisitor, false);
+        nodes(dataStructure).forEach(entry -> nodeVisitor.visit(entry.pathString(), entry.value()));
     }
 
     public void visitLeafs(final Map<String, Object> dataStructure, final NodeVisitor nodeVisitor)
     {
-        visitNodes(dataStructure, newArrayList(), nodeVisitor, true);
+        leaves(dataStructure).forEach(entry -> nodeVisitor.visit(entry.pathString(), entry.value()));
     }
 
-    private void visitNodes(final Map<?, ?> values, final List<String> path, final NodeVisitor nodeVisitor,
-        boolean visitLeafsOnly)
+    // same as setIn, but SlotNodes store the value without boxing it
+    private PersistentNode setPrimitiveIn(final Map<String, Object> dataStructure, final List<String> path,
+        final int index, final Class<?> type, final long bits, final CompiledPath compiledPath)
     {
-        values.entrySet().stream() //
-            .filter(e -> !IMMUTABLE_NODE_ENTRY.equals(e)) //
-            .forEach(e -> {
-                final List<String> nestedPath = newArrayList(path);
-                nestedPath.add(e.getKey().toString());
+        final PersistentNode node = node(dataStructure);
+        final String key = path.get(index);
 
-                if (!visitLeafsOnly)
-                {
-                    nodeVisitor.visit(on(".").join(nestedPath), e.getValue());
-                }
+        if (index == path.size() - 1)
+        {
+            final int slot = compiledPath == null
+                ? -1
+                : compiledPath.slotIn(node, index);
 
-                if (isDataStructure(e.getValue()))
-                {
-                    visitNodes((Map<?, ?>) e.getValue(), nestedPath, nodeVisitor, visitLeafsOnly);
-                }
-                else if (visitLeafsOnly)
-                {
-                    nodeVisitor.visit(on(".").join(nestedPath), e.getValue());
-                }
-            });
+            return slot >= 0
+                ? ((SlotNode) node).withPrimitiveAt(slot, type, bits)
+                : node.with(key, unchangedOr(node.get(key), SlotNode.boxed(type, bits)));
+        }
+
+        final Object oldValue = compiledPath == null
+            ? node.get(key)
+            : compiledPath.valueIn(node, index, key);
+        final PersistentNode newValue = setPrimitiveIn(isDataStructure(oldValue)
+            ? dataStructure(oldValue)
+            : node.emptyChild(key), path, index + 1, type, bits, compiledPath);
+
+        return compiledPath == null
+            ? node.with(key, newValue)
+            : compiledPath.with(node, index, key, newValue);
     }
 
-    private Map<String, Object> changeForSinglePath(final List<String> path, final Object value)
+    private Map<String, Object> parentNodeIn(Map<String, Object> dataStructure, List<String> path,
+        CompiledPath compiledPath)
     {
-        // TODO test first!
-        /*if (path.size() < 1)
+        Map<String, Object> node = dataStructure;
+
+        for (int i = 0; i < path.size() - 1; i++)
         {
-            throw new IllegalArgumentException("path must have a size greater than one");
-        }*/
+            final String key = path.get(i);
+            final Object nestedValue = compiledPath == null
+                ? node.get(key)
+                : compiledPath.valueIn(node, i, key);
 
-        if (path.size() == 1)
+            if (!isDataStructure(nestedValue))
+            {
+                return null;
+            }
+
+            node = dataStructure(nestedValue);
+        }
+
+        return node;
+    }
+
+    private int slotIn(Map<String, Object> node, List<String> path, CompiledPath compiledPath)
+    {
+        return node == null || compiledPath == null
+            ? -1
+            : compiledPath.slotIn(node, path.size() - 1);
+    }
+
+    private Object leafIn(Map<String, Object> node, List<String> path)
+    {
+        return node == null
+            ? null
+            : node.get(path.get(path.size() - 1));
+    }
+
+    private Object valueIn(Map<String, Object> dataStructure, Path path)
+    {
+        return path.isEmpty()
+            ? dataStructure
+            : getInPath(dataStructure, path);
+    }
+
+    private PersistentNode setIn(final Map<String, Object> dataStructure, final List<String> path, final int index,
+        final Object value, final CompiledPath compiledPath)
+    {
+        final PersistentNode node = node(dataStructure);
+        final String key = path.get(index);
+        final Object oldValue = compiledPath == null
+            ? node.get(key)
+            : compiledPath.valueIn(node, index, key);
+
+        final Object newValue = index == path.size() - 1
+            ? mergedValue(oldValue, value, node.emptyChild(key))
+            : setIn(isDataStructure(oldValue)
+                ? dataStructure(oldValue)
+                : node.emptyChild(key), path, index + 1, value, compiledPath);
+
+        return compiledPath == null
+            ? node.with(key, newValue)
+            : compiledPath.with(node, index, key, newValue);
+    }
+
+    // like merge, writes mark a root that lacks the immutableNode entry
+    private PersistentNode marked(PersistentNode node)
+    {
+        return isDataStructure(node)
+            ? node
+            : node.with(IMMUTABLE_NODE_ENTRY.getKey(), IMMUTABLE_NODE_ENTRY.getValue());
+    }
+
+    // equal nodes and leafs keep their old instance, so writes that change nothing return the same data structure
+    Object mergedValue(final Object oldValue, final Object newValue, final PersistentNode emptyNode)
+    {
+        if (!isDataStructure(newValue))
         {
-            return ImmutableMap.<String, Object>builder() //
-                .put(IMMUTABLE_NODE_ENTRY) //
-                .put(path.get(0), value) //
-                .build();
+            return unchangedOr(oldValue, newValue);
         }
 
-        return ImmutableMap.<String, Object>builder() //
-            .put(IMMUTABLE_NODE_ENTRY) //
-            .put(path.get(0), changeForSinglePath(path.subList(1, path.size()), value)) //
-            .build();
+        if (isDataStructure(oldValue))
+        {
+            return merge(dataStructure(oldValue), dataStructure(newValue));
+        }
+
+        return newValue instanceof PersistentNode
+            ? newValue
+            : merge(emptyNode, dataStructure(newValue));
+    }
+
+    private Object unchangedOr(final Object oldValue, final Object newValue)
+    {
+        return oldValue != null && !isDataStructure(oldValue) && areEqual(oldValue, newValue)
+            ? oldValue
+            : Copy.defensiveCopyOf(newValue);
+    }
+
+    PersistentNode node(Map<String, Object> dataStructure)
+    {
+        if (dataStructure instanceof PersistentNode)
+        {
+            return (PersistentNode) dataStructure;
+        }
+
+        HashTrieMap node = HashTrieMap.empty();
+        for (Entry<String, Object> entry : dataStructure.entrySet())
+        {
+            final Object value = entry.getValue();
+            node = node.with(entry.getKey(), isDataStructure(value)
+                ? node(dataStructure(value))
+                : Copy.defensiveCopyOf(value));
+        }
+        return node;
+    }
+
+    private CompiledPath compiledPathFor(Map<String, Object> dataStructure, List<String> path)
+    {
+        return dataStructure instanceof SlotNode && path instanceof Path
+            ? ((Path) path).compiledFor(((SlotNode) dataStructure).schema())
+            : null;
+    }
+
+    // diffs mark removed keys with Optional.empty(), any other Optional is a stored value
+    static boolean isRemoval(Object value)
+    {
+        return empty().equals(value);
     }
 
     @SuppressWarnings("unchecked")
-    private Map<String, Object> dataStructure(Object value)
+    Map<String, Object> dataStructure(Object value)
     {
         return (Map<String, Object>) value;
     }
 
-    private boolean isDataStructure(Object value)
+    boolean isDataStructure(Object value)
     {
         return value != null //
             && Map.class.isAssignableFrom(value.getClass()) //
@@ -0,0 +1,108 @@
+package de.davherrmann.immutable;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+// key and value of a node in the tree: the entry only links to its parent, the path is rendered when it is read
+public final class NodeEntry
+{
+    private final NodeEntry parent;
+    private final String key;
+    private final Object value;
+    private final int depth;
+    private final boolean isNode;
+
+    NodeEntry(NodeEntry parent, String key, Object value, boolean isNode)
+    {
+        this.parent = parent;
+        this.key = key;
+        this.value = value;
+        this.depth = parent == null
+            ? 1
+            : parent.depth + 1;
+        this.isNode = isNode;
+    }
+
+    public String key()
+    {
+        return key;
+    }
+
+    public Object value()
+    {
+        return value;
+    }
+
+    public int depth()
+    {
+        return depth;
+    }
+
+    public boolean isLeaf()
+    {
+        return !isNode;
+    }
+
+    // read-only view of the keys from the root down to this entry
+    public List<String> segments()
+    {
+        return new Segments();
+    }
+
+    public Path path()
+    {
+        return parent == null
+            ? Path.root().child(key)
+            : parent.path().child(key);
+    }
+
+    // same format as the NodeVisitor paths: "nestedPath.key"
+    public String pathString()
+    {
+        final StringBuilder builder = new StringBuilder();
+        appendPathTo(builder);
+        return builder.toString();
+    }
+
+    private void appendPathTo(StringBuilder builder)
+    {
+        if (parent != null)
+        {
+            parent.appendPathTo(builder);
+            builder.append('.');
+        }
+        builder.append(key);
+    }
+
+    @Override
+    public String toString()
+    {
+        return pathString() + "=" + value;
+    }
+
+    private final class Segments extends AbstractList<String> implements RandomAccess
+    {
+        @Override
+        public String get(int index)
+        {
+            if (index < 0 || index >= depth)
+            {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + depth);
+            }
+
+            NodeEntry entry = NodeEntry.this;
+            for (int i = depth - 1; i > index; i--)
+            {
+                entry = entry.parent;
+            }
+            return entry.key;
+        }
+
+        @Override
+        public int size()
+        {
+            return depth;
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package de.davherrmann.immutable;
+
+import static com.google.common.collect.Maps.newHashMap;
+import static de.davherrmann.immutable.NextImmutable.IMMUTABLE_NODE;
+import static de.davherrmann.immutable.NextImmutable.IMMUTABLE_NODE_ENTRY;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.Map;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+
+// builds nodes straight from the token stream: the getter return types of the interface decide whether a value is
+// a nested node, a list or a leaf of a specific type; values of unknown properties are read without a type
+final class NodeReader
+{
+    private static final ClassValue<Map<String, Type>> getterTypes = new ClassValue<Map<String, Type>>()
+    {
+        @Override
+        protected Map<String, Type> computeValue(Class<?> type)
+        {
+            final Map<String, Type> types = newHashMap();
+            for (Method method : type.getMethods())
+            {
+                if (Schema.isGetter(method))
+                {
+                    types.putIfAbsent(method.getName(), method.getGenericReturnType());
+                }
+            }
+            return types;
+        }
+    };
+
+    private final Gson gson;
+
+    NodeReader(Gson gson)
+    {
+        this.gson = gson;
+    }
+
+    // type may be null to read a node without schema, nodes of a type are built from the empty node of its schema
+    PersistentNode readNode(JsonReader in, Class<?> type) throws IOException
+    {
+        final boolean hasSchema = type != null && Schema.hasNestedSchema(type);
+        final Map<String, Type> types = hasSchema
+            ? getterTypes.get(type)
+            : null;
+
+        PersistentNode node = hasSchema
+            ? Schema.of(type).emptyNode()
+            : (PersistentNode) IMMUTABLE_NODE;
+        in.beginObject();
+        while (in.hasNext())
+        {
+            final String key = in.nextName();
+            if (IMMUTABLE_NODE_ENTRY.getKey().equals(key))
+            {
+                in.skipValue();
+                continue;
+            }
+
+            final Object value = readValue(in, types == null
+                ? null
+                : types.get(key));
+            if (value != null)
+            {
+                node = node.with(key, value);
+            }
+        }
+        in.endObject();
+        return node;
+    }
+
+    // elementType may be null to read the elements without a type
+    PersistentVector<Object> readList(JsonReader in, Type elementType) throws IOException
+    {
+        PersistentVector<Object> list = PersistentVector.empty();
+        in.beginArray();
+        while (in.hasNext())
+        {
+            list = list.plus(readValue(in, elementType));
+        }
+        in.endArray();
+        return list;
+    }
+
+    private Object readValue(JsonReader in, Type type) throws IOException
+    {
+        final Class<?> rawType = type == null
+            ? Object.class
+            : TypeToken.get(type).getRawType();
+
+        switch (in.peek())
+        {
+            case NULL:
+                in.nextNull();
+                return null;
+            case BEGIN_OBJECT:
+                if (Schema.hasNestedSchema(rawType))
+                {
+                    return readNode(in, rawType);
+                }
+                break;
+            case BEGIN_ARRAY:
+                if (List.class.isAssignableFrom(rawType) || rawType == ImmutableList.class)
+                {
+                    return readList(in, elementTypeOf(type));
+                }
+                break;
+            default:
+                break;
+        }
+
+        return rawType == Object.class
+            ? readUntyped(in)
+            : gson.getAdapter(TypeToken.get(type)).read(in);
+    }
+
+    // objects stay plain maps unless they carry the immutableNode marker, integral numbers become ints or longs
+    private Object readUntyped(JsonReader in) throws IOException
+    {
+        switch (in.peek())
+        {
+            case BEGIN_OBJECT:
+                HashTrieMap map = HashTrieMap.empty();
+                in.beginObject();
+                while (in.hasNext())
+                {
+                    final String key = in.nextName();
+                    final Object value = readUntyped(in);
+                    if (value != null)
+                    {
+                        map = map.with(key, value);
+                    }
+                }
+                in.endObject();
+                return map;
+            case BEGIN_ARRAY:
+                return readList(in, null);
+            case STRING:
+                return in.nextString();
+            case NUMBER:
+                return numberOf(in.nextString());
+            case BOOLEAN:
+                return in.nextBoolean();
+            default:
+                in.skipValue();
+                return null;
+        }
+    }
+
+    private static Object numberOf(String number)
+    {
+        try
+        {
+            final long value = Long.parseLong(number);
+            return value == (int) value
+                ? (Object) (int) value
+                : (Object) value;
+        }
+        catch (NumberFormatException e)
+        {
+            return Double.parseDouble(number);
+        }
+    }
+
+    private static Type elementTypeOf(Type listType)
+    {
+        return listType instanceof ParameterizedType
+            ? ((ParameterizedType) listType).getActualTypeArguments()[0]
+            : null;
+    }
+}
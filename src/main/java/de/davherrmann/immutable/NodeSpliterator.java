@@ -0,0 +1,157 @@
+package de.davherrmann.immutable;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static de.davherrmann.immutable.NextImmutable.IMMUTABLE_NODE_ENTRY;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+// depth-first walk over the nodes of a tree; splits hand off half of the remaining entries of the shallowest node,
+// which are the largest pending subtrees
+final class NodeSpliterator implements Spliterator<NodeEntry>
+{
+    private final NextImmutable nextImmutable;
+    private final boolean leavesOnly;
+    private final Deque<Frame> frames = new ArrayDeque<>();
+
+    NodeSpliterator(NextImmutable nextImmutable, Map<String, Object> dataStructure, boolean leavesOnly)
+    {
+        this(nextImmutable, leavesOnly);
+        frames.push(new Frame(null, dataStructure.entrySet().iterator()));
+    }
+
+    private NodeSpliterator(NextImmutable nextImmutable, boolean leavesOnly)
+    {
+        this.nextImmutable = nextImmutable;
+        this.leavesOnly = leavesOnly;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super NodeEntry> action)
+    {
+        while (!frames.isEmpty())
+        {
+            final Frame frame = frames.peek();
+            if (!frame.hasNext())
+            {
+                frames.pop();
+                continue;
+            }
+
+            final Entry<String, Object> entry = frame.next();
+            if (IMMUTABLE_NODE_ENTRY.getKey().equals(entry.getKey()))
+            {
+                continue;
+            }
+
+            final Object value = entry.getValue();
+            final boolean isNode = nextImmutable.isDataStructure(value);
+            final NodeEntry nodeEntry = new NodeEntry(frame.parent, entry.getKey(), value, isNode);
+
+            if (isNode)
+            {
+                frames.push(new Frame(nodeEntry, nextImmutable.dataStructure(value).entrySet().iterator()));
+            }
+
+            if (!leavesOnly || !isNode)
+            {
+                action.accept(nodeEntry);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public Spliterator<NodeEntry> trySplit()
+    {
+        final Iterator<Frame> shallowestFirst = frames.descendingIterator();
+        while (shallowestFirst.hasNext())
+        {
+            final Frame frame = shallowestFirst.next();
+            final Frame prefix = frame.splitOffHalf();
+
+            if (prefix != null)
+            {
+                final NodeSpliterator split = new NodeSpliterator(nextImmutable, leavesOnly);
+                split.frames.push(prefix);
+                return split;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public long estimateSize()
+    {
+        return Long.MAX_VALUE;
+    }
+
+    @Override
+    public int characteristics()
+    {
+        return NONNULL | IMMUTABLE;
+    }
+
+    // remaining entries of one node, read from its iterator until the node is split
+    private static final class Frame
+    {
+        private final NodeEntry parent;
+        private Iterator<Entry<String, Object>> iterator;
+        private List<Entry<String, Object>> entries;
+        private int index;
+
+        private Frame(NodeEntry parent, Iterator<Entry<String, Object>> iterator)
+        {
+            this.parent = parent;
+            this.iterator = iterator;
+        }
+
+        private Frame(NodeEntry parent, List<Entry<String, Object>> entries)
+        {
+            this.parent = parent;
+            this.entries = entries;
+        }
+
+        private boolean hasNext()
+        {
+            return iterator != null
+                ? iterator.hasNext()
+                : index < entries.size();
+        }
+
+        private Entry<String, Object> next()
+        {
+            return iterator != null
+                ? iterator.next()
+                : entries.get(index++);
+        }
+
+        private Frame splitOffHalf()
+        {
+            if (iterator != null)
+            {
+                entries = newArrayList(iterator);
+                iterator = null;
+                index = 0;
+            }
+
+            final int remaining = entries.size() - index;
+            if (remaining < 2)
+            {
+                return null;
+            }
+
+            final int middle = index + remaining / 2;
+            final Frame prefix = new Frame(parent, entries.subList(index, middle));
+            index = middle;
+            return prefix;
+        }
+    }
+}
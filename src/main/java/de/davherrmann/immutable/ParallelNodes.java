@@ -0,0 +1,216 @@
+package de.davherrmann.immutable;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static de.davherrmann.immutable.Compare.areEqual;
+import static de.davherrmann.immutable.NextImmutable.IMMUTABLE_NODE;
+import static de.davherrmann.immutable.NextImmutable.IMMUTABLE_NODE_ENTRY;
+import static java.util.Optional.empty;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+// merge and diff on a fork join pool: subtrees with more (estimated) entries than the threshold are forked,
+// smaller ones use the sequential NextImmutable code, so both produce the same nodes
+final class ParallelNodes
+{
+    private static final int SAMPLED_NODES = 4;
+    private static final int SAMPLE_BUDGET = 64;
+
+    private final NextImmutable nextImmutable;
+    private final ForkJoinPool pool;
+    private final int threshold;
+
+    ParallelNodes(NextImmutable nextImmutable, ForkJoinPool pool, int threshold)
+    {
+        this.nextImmutable = nextImmutable;
+        this.pool = pool;
+        this.threshold = threshold;
+    }
+
+    Map<String, Object> merge(Map<String, Object> dataStructure, Map<String, Object> changes)
+    {
+        return pool.invoke(new MergeTask(dataStructure, changes, estimatedSizeOf(changes)));
+    }
+
+    Map<String, Object> diff(Map<String, Object> dataStructure0, Map<String, Object> dataStructure1)
+    {
+        return pool.invoke(new DiffTask(dataStructure0, dataStructure1, estimatedSizeOf(dataStructure1)));
+    }
+
+    // estimated once for the root and passed down to the forked tasks: the entries of a level plus its nested nodes,
+    // whose size is estimated from the first few of them and from at most SAMPLE_BUDGET nodes in total
+    private long estimatedSizeOf(Map<String, Object> node)
+    {
+        return estimatedSizeOf(node, new int[]{SAMPLE_BUDGET});
+    }
+
+    private long estimatedSizeOf(Map<String, Object> node, int[] budget)
+    {
+        long nestedNodes = 0;
+        long sampledNodes = 0;
+        long sampledSize = 0;
+        for (Object value : node.values())
+        {
+            if (nextImmutable.isDataStructure(value))
+            {
+                if (sampledNodes < SAMPLED_NODES && budget[0] > 0)
+                {
+                    budget[0]--;
+                    sampledNodes++;
+                    sampledSize += estimatedSizeOf(nextImmutable.dataStructure(value), budget);
+                }
+                nestedNodes++;
+            }
+        }
+
+        // without budget left, nested nodes are assumed to be as large as this one
+        return nestedNodes == 0
+            ? node.size()
+            : node.size() + nestedNodes * (sampledNodes == 0
+                ? node.size()
+                : sampledSize / sampledNodes);
+    }
+
+    // the share of each nested node in the estimated size of its parent
+    private long nestedSizeOf(Map<String, Object> node, long estimatedSize)
+    {
+        long nestedNodes = 0;
+        for (Object value : node.values())
+        {
+            if (nextImmutable.isDataStructure(value))
+            {
+                nestedNodes++;
+            }
+        }
+        return nestedNodes == 0
+            ? 0
+            : (estimatedSize - node.size()) / nestedNodes;
+    }
+
+    private final class MergeTask extends RecursiveTask<Map<String, Object>>
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final Map<String, Object> dataStructure;
+        private final Map<String, Object> changes;
+        private final long estimatedSize;
+
+        private MergeTask(Map<String, Object> dataStructure, Map<String, Object> changes, long estimatedSize)
+        {
+            this.dataStructure = dataStructure;
+            this.changes = changes;
+            this.estimatedSize = estimatedSize;
+        }
+
+        @Override
+        protected Map<String, Object> compute()
+        {
+            if (estimatedSize <= threshold)
+            {
+                return nextImmutable.merge(dataStructure, changes);
+            }
+
+            final long nestedSize = nestedSizeOf(changes, estimatedSize);
+            PersistentNode result = nextImmutable.node(dataStructure);
+            final List<String> forkedKeys = newArrayList();
+            final List<ForkJoinTask<Map<String, Object>>> forkedTasks = newArrayList();
+
+            for (Entry<String, Object> change : changes.entrySet())
+            {
+                final String key = change.getKey();
+                final Object oldValue = result.get(key);
+                final Object newValue = change.getValue();
+
+                if (nextImmutable.isDataStructure(newValue)
+                    && (nextImmutable.isDataStructure(oldValue) || !(newValue instanceof PersistentNode)))
+                {
+                    forkedKeys.add(key);
+                    forkedTasks.add(new MergeTask(nextImmutable.isDataStructure(oldValue)
+                        ? nextImmutable.dataStructure(oldValue)
+                        : result.emptyChild(key), nextImmutable.dataStructure(newValue), nestedSize).fork());
+                }
+                else
+                {
+                    result = result.with(key, nextImmutable.mergedValue(oldValue, newValue, result.emptyChild(key)));
+                }
+            }
+
+            for (int i = 0; i < forkedTasks.size(); i++)
+            {
+                result = result.with(forkedKeys.get(i), forkedTasks.get(i).join());
+            }
+
+            return result.with(IMMUTABLE_NODE_ENTRY.getKey(), IMMUTABLE_NODE_ENTRY.getValue());
+        }
+    }
+
+    private final class DiffTask extends RecursiveTask<Map<String, Object>>
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final Map<String, Object> dataStructure0;
+        private final Map<String, Object> dataStructure1;
+        private final long estimatedSize;
+
+        private DiffTask(Map<String, Object> dataStructure0, Map<String, Object> dataStructure1, long estimatedSize)
+        {
+            this.dataStructure0 = dataStructure0;
+            this.dataStructure1 = dataStructure1;
+            this.estimatedSize = estimatedSize;
+        }
+
+        @Override
+        protected Map<String, Object> compute()
+        {
+            if (estimatedSize <= threshold)
+            {
+                return nextImmutable.diff(dataStructure0, dataStructure1);
+            }
+
+            final long nestedSize = nestedSizeOf(dataStructure1, estimatedSize);
+            PersistentNode result = nextImmutable.node(IMMUTABLE_NODE);
+            final List<String> forkedKeys = newArrayList();
+            final List<ForkJoinTask<Map<String, Object>>> forkedTasks = newArrayList();
+
+            for (String key : ChangeIterator.differentKeys(dataStructure0, dataStructure1))
+            {
+                final Object oldValue = dataStructure0.get(key);
+                final Object newValue = dataStructure1.get(key);
+
+                if (oldValue == newValue)
+                {
+                    continue;
+                }
+
+                // comparing nested nodes is as expensive as diffing them, the forked task finds out they are equal
+                if (nextImmutable.isDataStructure(oldValue) && nextImmutable.isDataStructure(newValue))
+                {
+                    forkedKeys.add(key);
+                    forkedTasks.add(new DiffTask(nextImmutable.dataStructure(oldValue),
+                        nextImmutable.dataStructure(newValue), nestedSize).fork());
+                }
+                else if (!areEqual(oldValue, newValue))
+                {
+                    result = result.with(key, newValue == null
+                        ? empty()
+                        : newValue);
+                }
+            }
+
+            for (int i = 0; i < forkedTasks.size(); i++)
+            {
+                final Map<String, Object> nestedDiff = forkedTasks.get(i).join();
+                if (!NextImmutable.isEmptyDiff(nestedDiff))
+                {
+                    result = result.with(forkedKeys.get(i), nestedDiff);
+                }
+            }
+
+            return result;
+        }
+    }
+}
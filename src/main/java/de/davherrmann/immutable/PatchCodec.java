@@ -0,0 +1,491 @@
+package de.davherrmann.immutable;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static com.google.common.collect.Maps.newLinkedHashMap;
+import static de.davherrmann.immutable.NextImmutable.IMMUTABLE_NODE;
+import static de.davherrmann.immutable.NextImmutable.IMMUTABLE_NODE_ENTRY;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.lang.reflect.Array;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Optional;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+// encodes the result of Immutable#diff for Immutable#patch: JSON uses null for removed keys and loses the exact
+// number types like every other JSON of this library, the binary format keeps them
+public final class PatchCodec
+{
+    private static final int FORMAT_VERSION = 1;
+
+    private static final byte NODE = 1;
+    private static final byte REMOVED = 2;
+    private static final byte NULL = 3;
+    private static final byte STRING = 4;
+    private static final byte BOOLEAN = 5;
+    private static final byte BYTE = 6;
+    private static final byte SHORT = 7;
+    private static final byte CHAR = 8;
+    private static final byte INT = 9;
+    private static final byte LONG = 10;
+    private static final byte FLOAT = 11;
+    private static final byte DOUBLE = 12;
+    private static final byte LIST = 13;
+    private static final byte ARRAY = 14;
+    private static final byte MAP = 15;
+    private static final byte ENUM = 16;
+    private static final byte IMMUTABLE_ARRAY = 17;
+    private static final byte IMMUTABLE_INT_ARRAY = 18;
+    private static final byte IMMUTABLE_LONG_ARRAY = 19;
+    private static final byte IMMUTABLE_DOUBLE_ARRAY = 20;
+
+    private static final Gson gson = new GsonBuilder() //
+        .registerTypeAdapterFactory(new ImmutableTypeAdapterFactory()) //
+        .create();
+
+    private static final NextImmutable nextImmutable = new NextImmutable();
+
+    private PatchCodec()
+    {
+    }
+
+    public static String toJson(Immutable<?> patch)
+    {
+        final StringWriter json = new StringWriter();
+
+        try (JsonWriter out = new JsonWriter(json))
+        {
+            out.setSerializeNulls(true);
+            writeJson(out, patch.values());
+        }
+        catch (IOException e)
+        {
+            throw new IllegalStateException("Could not write patch.", e);
+        }
+
+        return json.toString();
+    }
+
+    public static <I> Immutable<I> fromJson(String json, Class<I> type)
+    {
+        try (JsonReader in = new JsonReader(new StringReader(json)))
+        {
+            final PersistentNode values = nextImmutable.node(readJsonObject(in));
+            return new Immutable<>(type, //
+                values.with(IMMUTABLE_NODE_ENTRY.getKey(), IMMUTABLE_NODE_ENTRY.getValue()));
+        }
+        catch (IOException | IllegalStateException e)
+        {
+            throw new JsonParseException("Could not read patch.", e);
+        }
+    }
+
+    public static byte[] toBytes(Immutable<?> patch)
+    {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        try (DataOutputStream out = new DataOutputStream(bytes))
+        {
+            out.writeByte(FORMAT_VERSION);
+            writeBinary(out, patch.values());
+        }
+        catch (IOException e)
+        {
+            throw new IllegalStateException("Could not write patch.", e);
+        }
+
+        return bytes.toByteArray();
+    }
+
+    public static <I> Immutable<I> fromBytes(byte[] bytes, Class<I> type)
+    {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes)))
+        {
+            final int formatVersion = in.readByte();
+            if (formatVersion != FORMAT_VERSION)
+            {
+                throw new IllegalArgumentException("Unknown patch format version " + formatVersion + ".");
+            }
+
+            final Object values = readBinary(in, type.getClassLoader());
+            if (!nextImmutable.isDataStructure(values))
+            {
+                throw new IllegalArgumentException("A patch needs to start with a node.");
+            }
+            return new Immutable<>(type, nextImmutable.dataStructure(values));
+        }
+        catch (IOException | ClassNotFoundException e)
+        {
+            throw new IllegalArgumentException("Could not read patch.", e);
+        }
+    }
+
+    private static void writeJson(JsonWriter out, Object value) throws IOException
+    {
+        if (NextImmutable.isRemoval(value))
+        {
+            out.nullValue();
+        }
+        else if (value instanceof Map)
+        {
+            out.beginObject();
+            for (Entry<?, ?> entry : ((Map<?, ?>) value).entrySet())
+            {
+                out.name(entry.getKey().toString());
+                writeJson(out, entry.getValue());
+            }
+            out.endObject();
+        }
+        else if (value == null)
+        {
+            out.nullValue();
+        }
+        else
+        {
+            gson.toJson(value, value.getClass(), out);
+        }
+    }
+
+    private static Map<String, Object> readJsonObject(JsonReader in) throws IOException
+    {
+        final Map<String, Object> node = newLinkedHashMap();
+
+        in.beginObject();
+        while (in.hasNext())
+        {
+            final String key = in.nextName();
+            if (in.peek() == JsonToken.NULL)
+            {
+                in.nextNull();
+                node.put(key, Optional.empty());
+            }
+            else
+            {
+                node.put(key, readJson(in));
+            }
+        }
+        in.endObject();
+
+        return node;
+    }
+
+    private static Object readJson(JsonReader in) throws IOException
+    {
+        switch (in.peek())
+        {
+            case BEGIN_OBJECT:
+                return readJsonObject(in);
+            case BEGIN_ARRAY:
+            {
+                final List<Object> list = newArrayList();
+                in.beginArray();
+                while (in.hasNext())
+                {
+                    list.add(readJson(in));
+                }
+                in.endArray();
+                return PersistentVector.copyOf(list);
+            }
+            case STRING:
+                return in.nextString();
+            case NUMBER:
+                return in.nextDouble();
+            case BOOLEAN:
+                return in.nextBoolean();
+            case NULL:
+                in.nextNull();
+                return null;
+            default:
+                throw new IllegalStateException("Unexpected " + in.peek() + " in patch.");
+        }
+    }
+
+    private static void writeBinary(DataOutputStream out, Object value) throws IOException
+    {
+        if (value == null)
+        {
+            out.writeByte(NULL);
+        }
+        else if (NextImmutable.isRemoval(value))
+        {
+            out.writeByte(REMOVED);
+        }
+        else if (value instanceof Map)
+        {
+            final Map<?, ?> map = (Map<?, ?>) value;
+            final boolean isNode = nextImmutable.isDataStructure(map);
+
+            out.writeByte(isNode
+                ? NODE
+                : MAP);
+            out.writeInt(isNode
+                ? map.size() - 1
+                : map.size());
+            for (Entry<?, ?> entry : map.entrySet())
+            {
+                if (!isNode || !IMMUTABLE_NODE_ENTRY.getKey().equals(entry.getKey()))
+                {
+                    out.writeUTF(entry.getKey().toString());
+                    writeBinary(out, entry.getValue());
+                }
+            }
+        }
+        else if (value instanceof String)
+        {
+            final byte[] bytes = ((String) value).getBytes(StandardCharsets.UTF_8);
+            out.writeByte(STRING);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+        else if (value instanceof Boolean)
+        {
+            out.writeByte(BOOLEAN);
+            out.writeBoolean((Boolean) value);
+        }
+        else if (value instanceof Byte)
+        {
+            out.writeByte(BYTE);
+            out.writeByte((Byte) value);
+        }
+        else if (value instanceof Short)
+        {
+            out.writeByte(SHORT);
+            out.writeShort((Short) value);
+        }
+        else if (value instanceof Character)
+        {
+            out.writeByte(CHAR);
+            out.writeChar((Character) value);
+        }
+        else if (value instanceof Integer)
+        {
+            out.writeByte(INT);
+            out.writeInt((Integer) value);
+        }
+        else if (value instanceof Long)
+        {
+            out.writeByte(LONG);
+            out.writeLong((Long) value);
+        }
+        else if (value instanceof Float)
+        {
+            out.writeByte(FLOAT);
+            out.writeFloat((Float) value);
+        }
+        else if (value instanceof Double)
+        {
+            out.writeByte(DOUBLE);
+            out.writeDouble((Double) value);
+        }
+        else if (value instanceof List)
+        {
+            final List<?> list = (List<?>) value;
+            out.writeByte(LIST);
+            out.writeInt(list.size());
+            for (Object item : list)
+            {
+                writeBinary(out, item);
+            }
+        }
+        else if (value instanceof Object[])
+        {
+            final Object[] array = (Object[]) value;
+            out.writeByte(ARRAY);
+            out.writeUTF(array.getClass().getComponentType().getName());
+            out.writeInt(array.length);
+            for (Object item : array)
+            {
+                writeBinary(out, item);
+            }
+        }
+        else if (value instanceof ImmutableArray)
+        {
+            final Object[] array = ((ImmutableArray<?>) value).array();
+            out.writeByte(IMMUTABLE_ARRAY);
+            out.writeUTF(array.getClass().getComponentType().getName());
+            out.writeInt(array.length);
+            for (Object item : array)
+            {
+                writeBinary(out, item);
+            }
+        }
+        else if (value instanceof ImmutableIntArray)
+        {
+            final int[] array = ((ImmutableIntArray) value).array();
+            out.writeByte(IMMUTABLE_INT_ARRAY);
+            out.writeInt(array.length);
+            for (int item : array)
+            {
+                out.writeInt(item);
+            }
+        }
+        else if (value instanceof ImmutableLongArray)
+        {
+            final long[] array = ((ImmutableLongArray) value).array();
+            out.writeByte(IMMUTABLE_LONG_ARRAY);
+            out.writeInt(array.length);
+            for (long item : array)
+            {
+                out.writeLong(item);
+            }
+        }
+        else if (value instanceof ImmutableDoubleArray)
+        {
+            final double[] array = ((ImmutableDoubleArray) value).array();
+            out.writeByte(IMMUTABLE_DOUBLE_ARRAY);
+            out.writeInt(array.length);
+            for (double item : array)
+            {
+                out.writeDouble(item);
+            }
+        }
+        else if (value instanceof Enum)
+        {
+            out.writeByte(ENUM);
+            out.writeUTF(((Enum<?>) value).getDeclaringClass().getName());
+            out.writeUTF(((Enum<?>) value).name());
+        }
+        else
+        {
+            throw new IllegalArgumentException("Values of " + value.getClass() + " can not be written to a patch.");
+        }
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Object readBinary(DataInputStream in, ClassLoader classLoader)
+        throws IOException, ClassNotFoundException
+    {
+        final byte tag = in.readByte();
+
+        switch (tag)
+        {
+            case NODE:
+            {
+                PersistentNode node = nextImmutable.node(IMMUTABLE_NODE);
+                final int size = in.readInt();
+                for (int i = 0; i < size; i++)
+                {
+                    final String key = in.readUTF();
+                    node = node.with(key, readBinary(in, classLoader));
+                }
+                return node;
+            }
+            case MAP:
+            {
+                final Map<String, Object> map = newLinkedHashMap();
+                final int size = in.readInt();
+                for (int i = 0; i < size; i++)
+                {
+                    final String key = in.readUTF();
+                    map.put(key, readBinary(in, classLoader));
+                }
+                return map;
+            }
+            case REMOVED:
+                return Optional.empty();
+            case NULL:
+                return null;
+            case STRING:
+            {
+                final byte[] bytes = new byte[in.readInt()];
+                in.readFully(bytes);
+                return new String(bytes, StandardCharsets.UTF_8);
+            }
+            case BOOLEAN:
+                return in.readBoolean();
+            case BYTE:
+                return in.readByte();
+            case SHORT:
+                return in.readShort();
+            case CHAR:
+                return in.readChar();
+            case INT:
+                return in.readInt();
+            case LONG:
+                return in.readLong();
+            case FLOAT:
+                return in.readFloat();
+            case DOUBLE:
+                return in.readDouble();
+            case LIST:
+            {
+                final int size = in.readInt();
+                final List<Object> list = newArrayList();
+                for (int i = 0; i < size; i++)
+                {
+                    list.add(readBinary(in, classLoader));
+                }
+                return PersistentVector.copyOf(list);
+            }
+            case ARRAY:
+            {
+                final Class<?> componentType = Class.forName(in.readUTF(), false, classLoader);
+                final Object[] array = (Object[]) Array.newInstance(componentType, in.readInt());
+                for (int i = 0; i < array.length; i++)
+                {
+                    array[i] = readBinary(in, classLoader);
+                }
+                return array;
+            }
+            case IMMUTABLE_ARRAY:
+            {
+                final Class<?> componentType = Class.forName(in.readUTF(), false, classLoader);
+                final Object[] array = (Object[]) Array.newInstance(componentType, in.readInt());
+                for (int i = 0; i < array.length; i++)
+                {
+                    array[i] = readBinary(in, classLoader);
+                }
+                return ImmutableArray.wrap(array);
+            }
+            case IMMUTABLE_INT_ARRAY:
+            {
+                final int[] array = new int[in.readInt()];
+                for (int i = 0; i < array.length; i++)
+                {
+                    array[i] = in.readInt();
+                }
+                return ImmutableIntArray.wrap(array);
+            }
+            case IMMUTABLE_LONG_ARRAY:
+            {
+                final long[] array = new long[in.readInt()];
+                for (int i = 0; i < array.length; i++)
+                {
+                    array[i] = in.readLong();
+                }
+                return ImmutableLongArray.wrap(array);
+            }
+            case IMMUTABLE_DOUBLE_ARRAY:
+            {
+                final double[] array = new double[in.readInt()];
+                for (int i = 0; i < array.length; i++)
+                {
+                    array[i] = in.readDouble();
+                }
+                return ImmutableDoubleArray.wrap(array);
+            }
+            case ENUM:
+            {
+                final Class<? extends Enum> enumType = Class.forName(in.readUTF(), false, classLoader)
+                    .asSubclass(Enum.class);
+                return Enum.valueOf(enumType, in.readUTF());
+            }
+            default:
+                throw new IllegalArgumentException("Unknown value tag " + tag + " in patch.");
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package de.davherrmann.immutable;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.ConcurrentMap;
+
+import com.google.common.collect.MapMaker;
+
+// interned path: there is exactly one live instance per segment chain, so paths can be compared by reference;
+// children are held weakly, paths of data keys nobody references any more are garbage collected
+public final class Path extends AbstractList<String> implements RandomAccess
+{
+    private static final Path ROOT = new Path(null, new String[0], 1);
+    private static final CompiledPath[] NO_COMPILED_PATHS = new CompiledPath[0];
+    private static final int MAX_COMPILED_PATHS = 4;
+
+    private final Path parent;
+    private final String[] segments;
+    private final int hashCode;
+    private volatile ConcurrentMap<String, Path> children;
+    private volatile CompiledPath[] compiledPaths = NO_COMPILED_PATHS;
+
+    private Path(Path parent, String[] segments, int hashCode)
+    {
+        this.parent = parent;
+        this.segments = segments;
+        this.hashCode = hashCode;
+    }
+
+    public static Path root()
+    {
+        return ROOT;
+    }
+
+    public static Path of(String... segments)
+    {
+        Path path = ROOT;
+        for (String segment : segments)
+        {
+            path = path.child(segment);
+        }
+        return path;
+    }
+
+    public static Path of(List<String> segments)
+    {
+        if (segments instanceof Path)
+        {
+            return (Path) segments;
+        }
+
+        Path path = ROOT;
+        for (String segment : segments)
+        {
+            path = path.child(segment);
+        }
+        return path;
+    }
+
+    public Path child(String segment)
+    {
+        final ConcurrentMap<String, Path> currentChildren = children;
+        final Path child = currentChildren == null
+            ? null
+            : currentChildren.get(segment);
+
+        if (child != null)
+        {
+            return child;
+        }
+
+        checkNotNull(segment, "segment must not be null");
+
+        final String[] childSegments = new String[segments.length + 1];
+        System.arraycopy(segments, 0, childSegments, 0, segments.length);
+        childSegments[segments.length] = segment;
+
+        final Path newChild = new Path(this, childSegments, 31 * hashCode + segment.hashCode());
+        final Path existingChild = children().putIfAbsent(segment, newChild);
+        return existingChild == null
+            ? newChild
+            : existingChild;
+    }
+
+    // most paths are leafs, so the map is only created for the first child
+    private ConcurrentMap<String, Path> children()
+    {
+        if (children == null)
+        {
+            synchronized (this)
+            {
+                if (children == null)
+                {
+                    children = new MapMaker().concurrencyLevel(1).weakValues().makeMap();
+                }
+            }
+        }
+        return children;
+    }
+
+    public Path parent()
+    {
+        return parent;
+    }
+
+    public String lastSegment()
+    {
+        return segments.length == 0
+            ? null
+            : segments[segments.length - 1];
+    }
+
+    public boolean startsWith(Path path)
+    {
+        Path ancestor = this;
+        while (ancestor != null && ancestor.segments.length > path.segments.length)
+        {
+            ancestor = ancestor.parent;
+        }
+        return ancestor == path;
+    }
+
+    // one compiled path per schema the path is used with, the oldest is dropped beyond MAX_COMPILED_PATHS
+    CompiledPath compiledFor(Schema schema)
+    {
+        final CompiledPath[] currentCompiledPaths = compiledPaths;
+
+        for (CompiledPath compiledPath : currentCompiledPaths)
+        {
+            if (compiledPath.schema() == schema)
+            {
+                return compiledPath;
+            }
+        }
+
+        final int kept = Math.min(currentCompiledPaths.length, MAX_COMPILED_PATHS - 1);
+        final CompiledPath[] newCompiledPaths = new CompiledPath[kept + 1];
+        System.arraycopy(currentCompiledPaths, currentCompiledPaths.length - kept, newCompiledPaths, 0, kept);
+        newCompiledPaths[kept] = CompiledPath.of(schema, this);
+        compiledPaths = newCompiledPaths;
+        return newCompiledPaths[kept];
+    }
+
+    @Override
+    public String get(int index)
+    {
+        return segments[index];
+    }
+
+    @Override
+    public int size()
+    {
+        return segments.length;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return hashCode;
+    }
+
+    // paths are only created through child, so two paths with the same segments are the same instance; other lists
+    // are compared by their segments
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o)
+        {
+            return true;
+        }
+        return !(o instanceof Path) && super.equals(o);
+    }
+}
@@ -0,0 +1,67 @@
+package de.davherrmann.immutable;
+
+import static com.google.common.base.Preconditions.checkElementIndex;
+
+import java.util.Arrays;
+
+// path of the node a PathVisitor is visiting: the buffer is reused for every node, so copy what you want to keep
+public final class PathBuffer
+{
+    private String[] segments = new String[16];
+    private int depth;
+
+    public int depth()
+    {
+        return depth;
+    }
+
+    public String segment(int index)
+    {
+        return segments[checkElementIndex(index, depth)];
+    }
+
+    public String lastSegment()
+    {
+        return segment(depth - 1);
+    }
+
+    public Path toPath()
+    {
+        Path path = Path.root();
+        for (int i = 0; i < depth; i++)
+        {
+            path = path.child(segments[i]);
+        }
+        return path;
+    }
+
+    void push(String segment)
+    {
+        if (depth == segments.length)
+        {
+            segments = Arrays.copyOf(segments, depth * 2);
+        }
+        segments[depth++] = segment;
+    }
+
+    void pop()
+    {
+        segments[--depth] = null;
+    }
+
+    // same format as the NodeVisitor paths: "nestedPath.key"
+    @Override
+    public String toString()
+    {
+        final StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < depth; i++)
+        {
+            if (i > 0)
+            {
+                builder.append('.');
+            }
+            builder.append(segments[i]);
+        }
+        return builder.toString();
+    }
+}
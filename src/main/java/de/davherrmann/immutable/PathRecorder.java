@@ -1,35 +1,35 @@
 package de.davherrmann.immutable;
 
 import static com.google.common.base.Defaults.defaultValue;
-import static com.google.common.collect.Maps.newHashMap;
-import static java.util.Collections.emptyList;
 
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
-import java.util.List;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
 import java.util.function.Supplier;
 
 import javax.validation.constraints.NotNull;
 
 public class PathRecorder<I>
 {
-    private static ThreadLocal<Map<Class<?>, PathRecorder<?>>> pathRecorders = new ThreadLocal<Map<Class<?>, PathRecorder<?>>>()
+    private static final ClassValue<PathRecorder<?>> pathRecorders = new ClassValue<PathRecorder<?>>()
     {
         @Override
-        protected Map<Class<?>, PathRecorder<?>> initialValue()
+        protected PathRecorder<?> computeValue(Class<?> type)
         {
-            return newHashMap();
+            return new PathRecorder<>(type);
         }
     };
 
     private final I path;
 
-    private static ThreadLocal<PathInfo> lastPathInfo = new ThreadLocal<>();
+    // recorders and proxies are shared by all threads, only the path recorded by the last getter call is per thread
+    private static final ThreadLocal<PathInfo> lastPathInfo = new ThreadLocal<>();
 
     private PathRecorder(Class<I> type)
     {
-        this.path = pathFor(type, emptyList());
+        this.path = pathFor(type, Path.root());
     }
 
     public I path()
@@ -38,21 +38,23 @@ public class PathRecorder<I>
     }
 
     @NotNull
-    public List<String> pathFor(Supplier<?> method)
+    public Path pathFor(Supplier<?> method)
     {
-        return pathInfoFor(method).lastPath();
+        return pathInfoFor(method).path();
     }
 
     public Method methodFor(Supplier<?> method)
     {
-        return pathInfoFor(method).lastMethod();
+        return pathInfoFor(method).method();
     }
 
-    private PathInfo pathInfoFor(Supplier<?> method)
+    // lambdas are replayed on every call: a lambda may read state it does not capture (a flag, a static field) and
+    // call different getters each time
+    PathInfo pathInfoFor(Supplier<?> method)
     {
         lastPathInfo.set(null);
 
-        method.get();
+        final Object defaultValue = method.get();
 
         final PathInfo pathInfo = lastPathInfo.get();
 
@@ -60,11 +62,16 @@ public class PathRecorder<I>
         {
             throw new IllegalStateException("No path was recorded. Did you use the correct Immutable#path()?");
         }
-        return pathInfo;
+        return pathInfo.withDefaultValue(defaultValue);
+    }
+
+    PathInfo pathInfoFor(Function<I, ? extends Supplier<?>> pathToMethod)
+    {
+        return pathInfoFor(pathToMethod.apply(path));
     }
 
     @SuppressWarnings("unchecked")
-    private static <T> T pathFor(Class<T> type, List<String> nestedPath)
+    private static <T> T pathFor(Class<T> type, Path nestedPath)
     {
         return (T) Proxy.newProxyInstance( //
             type.getClassLoader(), //
@@ -75,56 +82,98 @@ public class PathRecorder<I>
     @SuppressWarnings("unchecked")
     public static <T> T pathInstanceFor(Class<T> type)
     {
-        pathRecorders.get().putIfAbsent(type, new PathRecorder<>(type));
-        return (T) pathRecorders.get().get(type).path();
+        return (T) pathRecorders.get(type).path();
     }
+
     @SuppressWarnings("unchecked")
     public static <T> PathRecorder<T> pathRecorderInstanceFor(Class<T> type)
     {
-        pathRecorders.get().putIfAbsent(type, new PathRecorder<>(type));
-        return (PathRecorder<T>) pathRecorders.get().get(type);
+        return (PathRecorder<T>) pathRecorders.get(type);
     }
 
     private static class PathInvocationHandler extends AbstractPathInvocationHandler
     {
-        public PathInvocationHandler(final List<String> nestedPath)
+        private final ConcurrentMap<Method, Result> results = new ConcurrentHashMap<>();
+
+        public PathInvocationHandler(final Path nestedPath)
         {
             super(nestedPath);
         }
 
         @Override
-        protected Object handleInvocation(List<String> path, Method method) throws Throwable
+        protected Object handleInvocation(Path path, Method method) throws Throwable
         {
-            final List<String> lastPath = pathWith(method);
-            lastPathInfo.set(new PathInfo()
+            Result result = results.get(method);
+
+            if (result == null)
             {
-                @Override
-                public Method lastMethod()
-                {
-                    return method;
-                }
-                @Override
-                public List<String> lastPath()
+                final Result newResult = resultFor(method);
+                result = results.putIfAbsent(method, newResult);
+                if (result == null)
                 {
-                    return lastPath;
+                    result = newResult;
                 }
-            });
+            }
 
+            lastPathInfo.set(result.pathInfo);
+            return result.returnValue;
+        }
+
+        private Result resultFor(Method method)
+        {
+            final Path lastPath = pathWith(method);
             final Class<?> returnType = method.getReturnType();
             final Object defaultValue = defaultValue(returnType);
 
-            return defaultValue != null || !returnType.isInterface()
+            return new Result(new PathInfo(lastPath, method, null), defaultValue != null || !returnType.isInterface()
                 ? defaultValue
-                : pathFor(returnType, lastPathInfo.get().lastPath());
+                : pathFor(returnType, lastPath));
         }
     }
 
-    private interface PathInfo
+    private static final class Result
     {
-        Method lastMethod();
+        private final PathInfo pathInfo;
+        private final Object returnValue;
 
-        List<String> lastPath();
+        private Result(PathInfo pathInfo, Object returnValue)
+        {
+            this.pathInfo = pathInfo;
+            this.returnValue = returnValue;
+        }
     }
 
-}
+    static final class PathInfo
+    {
+        private final Path path;
+        private final Method method;
+        private final Object defaultValue;
 
+        private PathInfo(Path path, Method method, Object defaultValue)
+        {
+            this.path = path;
+            this.method = method;
+            this.defaultValue = defaultValue;
+        }
+
+        Path path()
+        {
+            return path;
+        }
+
+        Method method()
+        {
+            return method;
+        }
+
+        Object defaultValue()
+        {
+            return defaultValue;
+        }
+
+        private PathInfo withDefaultValue(Object defaultValue)
+        {
+            return new PathInfo(path, method, defaultValue);
+        }
+    }
+}
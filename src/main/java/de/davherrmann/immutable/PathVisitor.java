@@ -0,0 +1,19 @@
+package de.davherrmann.immutable;
+
+import java.util.Map;
+
+// low-level alternative to NodeVisitor: the path is passed as a reused buffer, so visiting allocates nothing per node
+public interface PathVisitor
+{
+    // return false to skip the entries of the node, leaveNode is called anyway
+    default boolean enterNode(PathBuffer path, Map<String, Object> node)
+    {
+        return true;
+    }
+
+    default void leaveNode(PathBuffer path, Map<String, Object> node)
+    {
+    }
+
+    void visitLeaf(PathBuffer path, Object value);
+}
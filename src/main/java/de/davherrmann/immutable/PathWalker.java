@@ -0,0 +1,50 @@
+package de.davherrmann.immutable;
+
+import static de.davherrmann.immutable.NextImmutable.IMMUTABLE_NODE_ENTRY;
+
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+// one walker per walk: it is the action of every nested forEach, so descending allocates neither lambdas nor entries
+final class PathWalker implements BiConsumer<String, Object>
+{
+    private final NextImmutable nextImmutable;
+    private final PathVisitor visitor;
+    private final PathBuffer path = new PathBuffer();
+
+    PathWalker(NextImmutable nextImmutable, PathVisitor visitor)
+    {
+        this.nextImmutable = nextImmutable;
+        this.visitor = visitor;
+    }
+
+    void walk(Map<String, Object> dataStructure)
+    {
+        dataStructure.forEach(this);
+    }
+
+    @Override
+    public void accept(String key, Object value)
+    {
+        if (IMMUTABLE_NODE_ENTRY.getKey().equals(key))
+        {
+            return;
+        }
+
+        path.push(key);
+        if (nextImmutable.isDataStructure(value))
+        {
+            final Map<String, Object> node = nextImmutable.dataStructure(value);
+            if (visitor.enterNode(path, node))
+            {
+                node.forEach(this);
+            }
+            visitor.leaveNode(path, node);
+        }
+        else
+        {
+            visitor.visitLeaf(path, value);
+        }
+        path.pop();
+    }
+}
@@ -0,0 +1,22 @@
+package de.davherrmann.immutable;
+
+import static de.davherrmann.immutable.NextImmutable.IMMUTABLE_NODE;
+
+import java.util.Map;
+
+public interface PersistentNode extends Map<String, Object>
+{
+    PersistentNode with(String key, Object value);
+
+    PersistentNode without(String key);
+
+    default PersistentNode emptyNode()
+    {
+        return (PersistentNode) IMMUTABLE_NODE;
+    }
+
+    default PersistentNode emptyChild(String key)
+    {
+        return (PersistentNode) IMMUTABLE_NODE;
+    }
+}
@@ -0,0 +1,284 @@
+package de.davherrmann.immutable;
+
+import static com.google.common.base.Preconditions.checkPositionIndexes;
+import static java.lang.System.arraycopy;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+
+// persistent bit-partitioned vector trie with a tail buffer for cheap appends
+public final class PersistentVector<E> extends AbstractList<E> implements RandomAccess
+{
+    private static final int BITS = 5;
+    private static final int WIDTH = 1 << BITS;
+    private static final int MASK = WIDTH - 1;
+
+    private static final Object[] EMPTY_NODE = new Object[WIDTH];
+    private static final PersistentVector<?> EMPTY = new PersistentVector<>(0, BITS, EMPTY_NODE, new Object[0]);
+
+    private final int size;
+    private final int shift;
+    private final Object[] root;
+    private final Object[] tail;
+
+    private PersistentVector(int size, int shift, Object[] root, Object[] tail)
+    {
+        this.size = size;
+        this.shift = shift;
+        this.root = root;
+        this.tail = tail;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <E> PersistentVector<E> empty()
+    {
+        return (PersistentVector<E>) EMPTY;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <E> PersistentVector<E> copyOf(List<? extends E> items)
+    {
+        return items instanceof PersistentVector
+            ? (PersistentVector<E>) items
+            : PersistentVector.<E>empty().plusAll(items);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E get(int index)
+    {
+        if (index < 0 || index >= size)
+        {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        return (E) arrayFor(index)[index & MASK];
+    }
+
+    @Override
+    public int size()
+    {
+        return size;
+    }
+
+    @Override
+    public Iterator<E> iterator()
+    {
+        return new Iterator<E>()
+        {
+            private int index;
+            private Object[] array = size > 0
+                ? arrayFor(0)
+                : tail;
+
+            @Override
+            public boolean hasNext()
+            {
+                return index < size;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public E next()
+            {
+                if (index >= size)
+                {
+                    throw new NoSuchElementException();
+                }
+
+                if (index > 0 && (index & MASK) == 0)
+                {
+                    array = arrayFor(index);
+                }
+                return (E) array[index++ & MASK];
+            }
+        };
+    }
+
+    public PersistentVector<E> plus(E item)
+    {
+        if (size - tailOffset() < WIDTH)
+        {
+            final Object[] newTail = new Object[tail.length + 1];
+            arraycopy(tail, 0, newTail, 0, tail.length);
+            newTail[tail.length] = item;
+            return new PersistentVector<>(size + 1, shift, root, newTail);
+        }
+
+        return withPushedTail(new Object[]{item});
+    }
+
+    // appends whole leaf arrays instead of single items, the leaves of a vector are shared when both vectors end on
+    // a leaf boundary
+    @SuppressWarnings("unchecked")
+    public PersistentVector<E> plusAll(List<? extends E> items)
+    {
+        if (items instanceof PersistentVector)
+        {
+            return plusRange((PersistentVector<? extends E>) items, 0, items.size());
+        }
+
+        final Object[] array = items.toArray();
+        return plusChunk(array, 0, array.length);
+    }
+
+    // copies the range once into a compact vector, leaves are shared when fromIndex is on a leaf boundary
+    public PersistentVector<E> slice(int fromIndex, int toIndex)
+    {
+        checkPositionIndexes(fromIndex, toIndex, size);
+
+        return fromIndex == 0 && toIndex == size
+            ? this
+            : PersistentVector.<E>empty().plusRange(this, fromIndex, toIndex);
+    }
+
+    public PersistentVector<E> with(int index, E item)
+    {
+        if (index < 0 || index >= size)
+        {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+
+        if (index >= tailOffset())
+        {
+            final Object[] newTail = tail.clone();
+            newTail[index & MASK] = item;
+            return new PersistentVector<>(size, shift, root, newTail);
+        }
+
+        return new PersistentVector<>(size, shift, with(shift, root, index, item), tail);
+    }
+
+    private PersistentVector<E> plusRange(PersistentVector<? extends E> items, int fromIndex, int toIndex)
+    {
+        PersistentVector<E> result = this;
+        for (int index = fromIndex; index < toIndex; )
+        {
+            final Object[] leaf = items.arrayFor(index);
+            final int offset = index & MASK;
+            final int count = Math.min(leaf.length - offset, toIndex - index);
+
+            result = result.plusChunk(leaf, offset, count);
+            index += count;
+        }
+        return result;
+    }
+
+    // the chunk is shared as a leaf if it is a whole leaf that starts at the end of this vector's tree
+    private PersistentVector<E> plusChunk(Object[] chunk, int offset, int count)
+    {
+        PersistentVector<E> result = this;
+        while (count > 0)
+        {
+            final int tailLength = result.tail.length;
+            final int appended;
+
+            if (tailLength == WIDTH)
+            {
+                appended = Math.min(WIDTH, count);
+                result = result.withPushedTail(appended == WIDTH && offset == 0 && chunk.length == WIDTH
+                    ? chunk
+                    : Arrays.copyOfRange(chunk, offset, offset + appended));
+            }
+            else
+            {
+                appended = Math.min(WIDTH - tailLength, count);
+                final Object[] newTail = Arrays.copyOf(result.tail, tailLength + appended);
+                arraycopy(chunk, offset, newTail, tailLength, appended);
+                result = new PersistentVector<>(result.size + appended, result.shift, result.root, newTail);
+            }
+
+            offset += appended;
+            count -= appended;
+        }
+        return result;
+    }
+
+    // moves the full tail into the tree
+    private PersistentVector<E> withPushedTail(Object[] newTail)
+    {
+        final int newSize = size + newTail.length;
+
+        if ((size >>> BITS) > (1 << shift))
+        {
+            final Object[] newRoot = new Object[WIDTH];
+            newRoot[0] = root;
+            newRoot[1] = newPath(shift, tail);
+            return new PersistentVector<>(newSize, shift + BITS, newRoot, newTail);
+        }
+
+        return new PersistentVector<>(newSize, shift, pushTail(shift, root, tail), newTail);
+    }
+
+    private Object[] arrayFor(int index)
+    {
+        if (index >= tailOffset())
+        {
+            return tail;
+        }
+
+        Object[] node = root;
+        for (int level = shift; level > 0; level -= BITS)
+        {
+            node = (Object[]) node[(index >>> level) & MASK];
+        }
+        return node;
+    }
+
+    private int tailOffset()
+    {
+        return size < WIDTH
+            ? 0
+            : ((size - 1) >>> BITS) << BITS;
+    }
+
+    private Object[] pushTail(int level, Object[] parent, Object[] tailNode)
+    {
+        final int subIndex = ((size - 1) >>> level) & MASK;
+        final Object[] result = parent.clone();
+
+        if (level == BITS)
+        {
+            result[subIndex] = tailNode;
+        }
+        else
+        {
+            final Object[] child = (Object[]) parent[subIndex];
+            result[subIndex] = child == null
+                ? newPath(level - BITS, tailNode)
+                : pushTail(level - BITS, child, tailNode);
+        }
+        return result;
+    }
+
+    private static Object[] newPath(int level, Object[] node)
+    {
+        if (level == 0)
+        {
+            return node;
+        }
+
+        final Object[] result = new Object[WIDTH];
+        result[0] = newPath(level - BITS, node);
+        return result;
+    }
+
+    private static Object[] with(int level, Object[] node, int index, Object item)
+    {
+        final Object[] result = node.clone();
+
+        if (level == 0)
+        {
+            result[index & MASK] = item;
+        }
+        else
+        {
+            final int subIndex = (index >>> level) & MASK;
+            result[subIndex] = with(level - BITS, (Object[]) node[subIndex], index, item);
+        }
+        return result;
+    }
+}
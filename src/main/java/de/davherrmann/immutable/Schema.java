@@ -0,0 +1,162 @@
+package de.davherrmann.immutable;
+
+import static com.google.common.collect.Maps.newHashMap;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+
+// slot layout of the nodes of one interface type, shared by all of its SlotNodes
+final class Schema
+{
+    private static final ClassValue<Schema> schemas = new ClassValue<Schema>()
+    {
+        @Override
+        protected Schema computeValue(Class<?> type)
+        {
+            return new Schema(type);
+        }
+    };
+
+    private final Class<?> type;
+    private final String[] names;
+    private final Class<?>[] types;
+    private final Map<String, Integer> slots = newHashMap();
+    private final Schema[] nestedSchemas;
+    private final int[] primitiveIndices;
+    private final int primitiveCount;
+    private final SlotNode emptyNode;
+
+    private Schema(Class<?> type)
+    {
+        final Map<String, Method> getters = new TreeMap<>();
+        for (Method method : type.getMethods())
+        {
+            if (isGetter(method))
+            {
+                getters.putIfAbsent(method.getName(), method);
+            }
+        }
+
+        this.type = type;
+        this.names = getters.keySet().toArray(new String[getters.size()]);
+        this.types = getters.values().stream().map(Method::getReturnType).toArray(Class<?>[]::new);
+        this.nestedSchemas = new Schema[names.length];
+        this.primitiveIndices = new int[names.length];
+
+        int primitiveIndex = 0;
+        for (int i = 0; i < names.length; i++)
+        {
+            slots.put(names[i], i);
+            primitiveIndices[i] = isStoredUnboxed(types[i])
+                ? primitiveIndex++
+                : -1;
+        }
+        this.primitiveCount = primitiveIndex;
+
+        this.emptyNode = new SlotNode(this);
+    }
+
+    static Schema of(Class<?> type)
+    {
+        return schemas.get(type);
+    }
+
+    Class<?> type()
+    {
+        return type;
+    }
+
+    int size()
+    {
+        return names.length;
+    }
+
+    int slotOf(String name)
+    {
+        final Integer slot = slots.get(name);
+        return slot == null
+            ? -1
+            : slot;
+    }
+
+    String nameOf(int slot)
+    {
+        return names[slot];
+    }
+
+    Class<?> typeOf(int slot)
+    {
+        return types[slot];
+    }
+
+    // int, long, double and boolean getters have a primitive slot in addition to their object slot
+    int primitiveIndexOf(int slot)
+    {
+        return primitiveIndices[slot];
+    }
+
+    int primitiveCount()
+    {
+        return primitiveCount;
+    }
+
+    Schema nestedSchema(int slot)
+    {
+        if (nestedSchemas[slot] == null && hasNestedSchema(types[slot]))
+        {
+            nestedSchemas[slot] = of(types[slot]);
+        }
+        return nestedSchemas[slot];
+    }
+
+    SlotNode emptyNode()
+    {
+        return emptyNode;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "Schema" + Arrays.toString(names) + " of " + type.getName();
+    }
+
+    static boolean isGetter(Method method)
+    {
+        return method.getParameterCount() == 0 //
+            && method.getReturnType() != void.class //
+            && !Modifier.isStatic(method.getModifiers()) //
+            && !method.isDefault() //
+            && !isDeclaredBy(Object.class, method) //
+            && !isDeclaredBy(Immutable.ImmutableNode.class, method);
+    }
+
+    private static boolean isDeclaredBy(Class<?> type, Method method)
+    {
+        try
+        {
+            type.getMethod(method.getName());
+            return true;
+        }
+        catch (NoSuchMethodException e)
+        {
+            return false;
+        }
+    }
+
+    private static boolean isStoredUnboxed(Class<?> type)
+    {
+        return type == int.class || type == long.class || type == double.class || type == boolean.class;
+    }
+
+    static boolean hasNestedSchema(Class<?> type)
+    {
+        return type.isInterface() //
+            && !Collection.class.isAssignableFrom(type) //
+            && !Map.class.isAssignableFrom(type) //
+            && !type.getName().startsWith("java.");
+    }
+}
@@ -0,0 +1,201 @@
+package de.davherrmann.immutable;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.collect.Lists.newArrayList;
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static java.util.Collections.unmodifiableList;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+// memoised view of an immutable: recomputed only when one of its input subtrees is a different instance
+public final class Selector<I, R>
+{
+    private static final int DEFAULT_CACHE_SIZE = 16;
+
+    private final NextImmutable nextImmutable = new NextImmutable();
+    private final List<Path> paths;
+    private final Function<List<Object>, R> compute;
+    private final int cacheSize;
+    private final Map<Inputs, R> cache;
+
+    private long hits;
+    private long misses;
+
+    private Selector(List<Path> paths, Function<List<Object>, R> compute, int cacheSize)
+    {
+        checkArgument(cacheSize > 0, "cache size must be positive: %s", cacheSize);
+
+        this.paths = paths;
+        this.compute = compute;
+        this.cacheSize = cacheSize;
+        this.cache = new LinkedHashMap<Inputs, R>(16, 0.75f, true)
+        {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Inputs, R> eldest)
+            {
+                return size() > Selector.this.cacheSize;
+            }
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <I, T, R> Selector<I, R> of(Path path, Function<T, R> compute)
+    {
+        return of(singletonList(path), inputs -> compute.apply((T) inputs.get(0)));
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <I, T0, T1, R> Selector<I, R> of(Path path0, Path path1, BiFunction<T0, T1, R> compute)
+    {
+        return of(asList(path0, path1), inputs -> compute.apply((T0) inputs.get(0), (T1) inputs.get(1)));
+    }
+
+    public static <I, R> Selector<I, R> of(List<Path> paths, Function<List<Object>, R> compute)
+    {
+        return new Selector<>(unmodifiableList(newArrayList(paths)), compute, DEFAULT_CACHE_SIZE);
+    }
+
+    // a selector with the same inputs and compute function, but an own empty cache of the given size
+    public Selector<I, R> withCacheSize(int cacheSize)
+    {
+        return new Selector<>(paths, compute, cacheSize);
+    }
+
+    public R apply(Immutable<I> immutable)
+    {
+        final Object[] subtrees = new Object[paths.size()];
+        for (int i = 0; i < subtrees.length; i++)
+        {
+            subtrees[i] = nextImmutable.subtreeInPath(immutable.values(), paths.get(i));
+        }
+        final Inputs inputs = new Inputs(subtrees);
+
+        synchronized (cache)
+        {
+            final R cachedValue = cache.get(inputs);
+            if (cachedValue != null || cache.containsKey(inputs))
+            {
+                hits++;
+                return cachedValue;
+            }
+            misses++;
+        }
+
+        final List<Object> values = newArrayList();
+        for (Object subtree : subtrees)
+        {
+            values.add(Copy.defensiveCopyOf(subtree));
+        }
+        final R value = compute.apply(unmodifiableList(values));
+
+        synchronized (cache)
+        {
+            cache.put(inputs, value);
+        }
+        return value;
+    }
+
+    public List<Path> paths()
+    {
+        return paths;
+    }
+
+    public long hits()
+    {
+        synchronized (cache)
+        {
+            return hits;
+        }
+    }
+
+    public long misses()
+    {
+        synchronized (cache)
+        {
+            return misses;
+        }
+    }
+
+    public int size()
+    {
+        synchronized (cache)
+        {
+            return cache.size();
+        }
+    }
+
+    // subtrees are compared by identity, boxed primitives by value because unboxed slots are boxed on every read
+    private static final class Inputs
+    {
+        private final Object[] subtrees;
+        private final int hashCode;
+
+        private Inputs(Object[] subtrees)
+        {
+            this.subtrees = subtrees;
+            this.hashCode = hashCodeOf(subtrees);
+        }
+
+        private static int hashCodeOf(Object[] subtrees)
+        {
+            int hashCode = 1;
+            for (Object subtree : subtrees)
+            {
+                hashCode = 31 * hashCode + (isComparedByValue(subtree)
+                    ? subtree.hashCode()
+                    : System.identityHashCode(subtree));
+            }
+            return hashCode;
+        }
+
+        private static boolean isComparedByValue(Object subtree)
+        {
+            return subtree instanceof Number || subtree instanceof Boolean || subtree instanceof Character;
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (o == this)
+            {
+                return true;
+            }
+
+            if (!(o instanceof Inputs) || ((Inputs) o).hashCode != hashCode)
+            {
+                return false;
+            }
+
+            final Object[] otherSubtrees = ((Inputs) o).subtrees;
+            for (int i = 0; i < subtrees.length; i++)
+            {
+                final Object subtree = subtrees[i];
+                if (subtree != otherSubtrees[i] && !(isComparedByValue(subtree) && subtree.equals(otherSubtrees[i])))
+                {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return hashCode;
+        }
+
+        @Override
+        public String toString()
+        {
+            return Arrays.toString(subtrees);
+        }
+    }
+}
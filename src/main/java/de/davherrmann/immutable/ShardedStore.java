@@ -0,0 +1,258 @@
+package de.davherrmann.immutable;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkElementIndex;
+import static de.davherrmann.immutable.AtomicStore.backOff;
+import static de.davherrmann.immutable.ChangeIterator.differentKeys;
+import static de.davherrmann.immutable.PathRecorder.pathRecorderInstanceFor;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+
+import com.google.common.collect.ImmutableMap;
+
+// the top-level properties of the state are split into shards that are updated independently,
+// so writers of different shards never conflict. Snapshots reassemble the whole state when it is read.
+public class ShardedStore<I>
+{
+    private static final String IMMUTABLE_NODE_KEY = "immutableNode";
+    private static final int MAX_COLLECT_FAILURES = 8;
+
+    private final NextImmutable nextImmutable = new NextImmutable();
+    private final Class<I> type;
+    private final PersistentNode emptyNode;
+    private final ToIntFunction<String> partition;
+    private final AtomicReferenceArray<Shard> shards;
+    // writers publish in shared mode, a snapshot that keeps failing collects in exclusive mode
+    private final StampedLock publishLock = new StampedLock();
+
+    private ShardedStore(Immutable<I> initialState, int shardCount, ToIntFunction<String> partition)
+    {
+        checkArgument(shardCount > 0, "shard count must be positive: %s", shardCount);
+
+        final PersistentNode values = nextImmutable.node(initialState.values());
+        final PersistentNode[] shardValues = new PersistentNode[shardCount];
+        Arrays.fill(shardValues, values.emptyNode());
+
+        for (Map.Entry<String, Object> entry : values.entrySet())
+        {
+            if (!IMMUTABLE_NODE_KEY.equals(entry.getKey()))
+            {
+                final int shard = checkElementIndex(partition.applyAsInt(entry.getKey()), shardCount, "shard");
+                shardValues[shard] = shardValues[shard].with(entry.getKey(), entry.getValue());
+            }
+        }
+
+        this.type = initialState.type();
+        this.emptyNode = values.emptyNode();
+        this.partition = partition;
+        this.shards = new AtomicReferenceArray<>(shardCount);
+        for (int i = 0; i < shardCount; i++)
+        {
+            shards.set(i, new Shard(shardValues[i]));
+        }
+    }
+
+    // one shard per top-level property, keys that are no property of the type share an extra shard
+    public static <I> ShardedStore<I> byTopLevelProperty(Immutable<I> initialState)
+    {
+        final ImmutableMap.Builder<String, Integer> shardIndices = ImmutableMap.builder();
+        final String[] properties = Arrays.stream(initialState.type().getMethods()) //
+            .filter(Schema::isGetter) //
+            .map(Method::getName) //
+            .distinct() //
+            .sorted() //
+            .toArray(String[]::new);
+        for (int i = 0; i < properties.length; i++)
+        {
+            shardIndices.put(properties[i], i);
+        }
+
+        final Map<String, Integer> shardIndexOf = shardIndices.build();
+        return new ShardedStore<>(initialState, properties.length + 1,
+            key -> shardIndexOf.getOrDefault(key, properties.length));
+    }
+
+    // the partition maps top-level keys to shard indices in [0, shardCount)
+    public static <I> ShardedStore<I> partitionedBy(Immutable<I> initialState, int shardCount,
+        ToIntFunction<String> partition)
+    {
+        return new ShardedStore<>(initialState, shardCount, partition);
+    }
+
+    public I path()
+    {
+        return pathRecorderInstanceFor(type).path();
+    }
+
+    public int shardCount()
+    {
+        return shards.length();
+    }
+
+    public Immutable<I> state()
+    {
+        return snapshot().immutable();
+    }
+
+    // double collect: the shards are read until two reads in a row see the same writes. Under steady writes this
+    // may never happen, so after a few failures the writers are held off for one collect
+    public Snapshot<I> snapshot()
+    {
+        Shard[] collected = collect();
+        for (int failures = 0; failures < MAX_COLLECT_FAILURES; failures++)
+        {
+            final Shard[] recollected = collect();
+            if (Arrays.equals(collected, recollected))
+            {
+                return new Snapshot<>(this, collected);
+            }
+            collected = recollected;
+            backOff(failures);
+        }
+
+        final long stamp = publishLock.writeLock();
+        try
+        {
+            return new Snapshot<>(this, collect());
+        }
+        finally
+        {
+            publishLock.unlockWrite(stamp);
+        }
+    }
+
+    private Shard[] collect()
+    {
+        final Shard[] collected = new Shard[shards.length()];
+        for (int i = 0; i < collected.length; i++)
+        {
+            collected[i] = shards.get(i);
+        }
+        return collected;
+    }
+
+    // the updater sees only the properties of the shard the top-level property belongs to and must not write others
+    public Immutable<I> update(Supplier<?> topLevelProperty, Function<Immutable<I>, Immutable<I>> updater)
+    {
+        return update(pathRecorderInstanceFor(type).pathFor(topLevelProperty), updater);
+    }
+
+    public Immutable<I> update(Path path, Function<Immutable<I>, Immutable<I>> updater)
+    {
+        checkArgument(!path.isEmpty(), "the root path belongs to no shard");
+
+        final int index = shardIndexOf(path.get(0));
+        for (int failures = 0; ; failures++)
+        {
+            final Shard shard = shards.get(index);
+            final Immutable<I> oldState = new Immutable<>(type, shard.values);
+            final Immutable<I> newState = updater.apply(oldState);
+
+            if (newState == oldState || newState.values() == shard.values)
+            {
+                return newState;
+            }
+
+            final PersistentNode newValues = nextImmutable.node(newState.values());
+            checkKeysOf(shard.values, newValues, index);
+
+            if (publish(index, shard, new Shard(newValues)))
+            {
+                return newState;
+            }
+
+            backOff(failures);
+        }
+    }
+
+    private boolean publish(int index, Shard shard, Shard newShard)
+    {
+        final long stamp = publishLock.readLock();
+        try
+        {
+            return shards.compareAndSet(index, shard, newShard);
+        }
+        finally
+        {
+            publishLock.unlockRead(stamp);
+        }
+    }
+
+    private int shardIndexOf(String key)
+    {
+        return checkElementIndex(partition.applyAsInt(key), shards.length(), "shard");
+    }
+
+    // the old values passed the check, so only the keys the updater changed can belong to another shard
+    private void checkKeysOf(PersistentNode oldValues, PersistentNode newValues, int index)
+    {
+        for (String key : differentKeys(oldValues, newValues))
+        {
+            checkArgument(IMMUTABLE_NODE_KEY.equals(key) || shardIndexOf(key) == index,
+                "%s belongs to shard %s and cannot be written in shard %s", key, shardIndexOf(key), index);
+        }
+    }
+
+    // a new instance per write, so the double collect also sees writes that restore earlier values
+    private static final class Shard
+    {
+        private final PersistentNode values;
+
+        private Shard(PersistentNode values)
+        {
+            this.values = values;
+        }
+    }
+
+    // consistent view of all shards at one point in time
+    public static final class Snapshot<I>
+    {
+        private final ShardedStore<I> store;
+        private final Shard[] shards;
+        private Immutable<I> immutable;
+
+        private Snapshot(ShardedStore<I> store, Shard[] shards)
+        {
+            this.store = store;
+            this.shards = shards;
+        }
+
+        // reads from the shard of the path without reassembling the state
+        @SuppressWarnings("unchecked")
+        public <T> T get(Path path)
+        {
+            return path.isEmpty()
+                ? (T) immutable().values()
+                : (T) store.nextImmutable.getInPath(shards[store.shardIndexOf(path.get(0))].values, path);
+        }
+
+        public <T> T get(Supplier<T> method)
+        {
+            return get(pathRecorderInstanceFor(store.type).pathFor(method));
+        }
+
+        public synchronized Immutable<I> immutable()
+        {
+            if (immutable == null)
+            {
+                PersistentNode values = store.emptyNode;
+                for (Shard shard : shards)
+                {
+                    for (Map.Entry<String, Object> entry : shard.values.entrySet())
+                    {
+                        values = values.with(entry.getKey(), entry.getValue());
+                    }
+                }
+                immutable = new Immutable<>(store.type, values);
+            }
+            return immutable;
+        }
+    }
+}
@@ -0,0 +1,477 @@
+package de.davherrmann.immutable;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static de.davherrmann.immutable.NextImmutable.IMMUTABLE_NODE;
+import static de.davherrmann.immutable.NextImmutable.IMMUTABLE_NODE_ENTRY;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+// node with one array slot per getter of its schema, keys outside of the schema are kept in a trie
+// int, long, double and boolean values are kept unboxed: their slot holds UNBOXED and the value is in primitives
+final class SlotNode extends AbstractMap<String, Object> implements PersistentNode
+{
+    private static final String MARKER = IMMUTABLE_NODE_ENTRY.getKey();
+    private static final Object UNBOXED = new Object();
+
+    private final Schema schema;
+    private final Object[] slots;
+    private final long[] primitives;
+    private final HashTrieMap extraValues;
+    private final int size;
+    private int hashCode;
+
+    SlotNode(Schema schema)
+    {
+        this(schema, new Object[schema.size()], new long[schema.primitiveCount()], HashTrieMap.empty(), 1);
+    }
+
+    private SlotNode(Schema schema, Object[] slots, long[] primitives, HashTrieMap extraValues, int size)
+    {
+        this.schema = schema;
+        this.slots = slots;
+        this.primitives = primitives;
+        this.extraValues = extraValues;
+        this.size = size;
+    }
+
+    Schema schema()
+    {
+        return schema;
+    }
+
+    Object valueAt(int slot)
+    {
+        final Object value = slots[slot];
+        return value == UNBOXED
+            ? boxedValueAt(slot)
+            : value;
+    }
+
+    int intAt(int slot)
+    {
+        final Object value = slots[slot];
+        return value == UNBOXED
+            ? (int) primitives[schema.primitiveIndexOf(slot)]
+            : value == null
+                ? 0
+                : ((Number) value).intValue();
+    }
+
+    long longAt(int slot)
+    {
+        final Object value = slots[slot];
+        return value == UNBOXED
+            ? primitives[schema.primitiveIndexOf(slot)]
+            : value == null
+                ? 0
+                : ((Number) value).longValue();
+    }
+
+    double doubleAt(int slot)
+    {
+        final Object value = slots[slot];
+        return value == UNBOXED
+            ? Double.longBitsToDouble(primitives[schema.primitiveIndexOf(slot)])
+            : value == null
+                ? 0
+                : ((Number) value).doubleValue();
+    }
+
+    boolean booleanAt(int slot)
+    {
+        final Object value = slots[slot];
+        return value == UNBOXED
+            ? primitives[schema.primitiveIndexOf(slot)] != 0
+            : value != null && (Boolean) value;
+    }
+
+    // bits of a value of the primitive type, see bitsOf, values of other slot types are boxed
+    SlotNode withPrimitiveAt(int slot, Class<?> type, long bits)
+    {
+        return schema.typeOf(slot) == type
+            ? withPrimitiveAt(slot, bits)
+            : withValueAt(slot, boxed(type, bits));
+    }
+
+    SlotNode withValueAt(int slot, Object value)
+    {
+        final Object oldValue = slots[slot];
+
+        if (oldValue == value)
+        {
+            return this;
+        }
+
+        if (value != null && isUnboxable(schema.typeOf(slot), value))
+        {
+            return withPrimitiveAt(slot, bitsOf(value));
+        }
+
+        final Object[] newSlots = slots.clone();
+        newSlots[slot] = value;
+        return new SlotNode(schema, newSlots, primitives, extraValues, size //
+            + (oldValue == null
+            ? 1
+            : 0) //
+            - (value == null
+            ? 1
+            : 0));
+    }
+
+    // a slot that is already unboxed shares the slots array, only the primitives are copied
+    private SlotNode withPrimitiveAt(int slot, long bits)
+    {
+        final int primitiveIndex = schema.primitiveIndexOf(slot);
+        final Object oldValue = slots[slot];
+
+        if (oldValue == UNBOXED && primitives[primitiveIndex] == bits)
+        {
+            return this;
+        }
+
+        final long[] newPrimitives = primitives.clone();
+        newPrimitives[primitiveIndex] = bits;
+
+        if (oldValue == UNBOXED)
+        {
+            return new SlotNode(schema, slots, newPrimitives, extraValues, size);
+        }
+
+        final Object[] newSlots = slots.clone();
+        newSlots[slot] = UNBOXED;
+        return new SlotNode(schema, newSlots, newPrimitives, extraValues, oldValue == null
+            ? size + 1
+            : size);
+    }
+
+    private Object boxedValueAt(int slot)
+    {
+        return boxed(schema.typeOf(slot), primitives[schema.primitiveIndexOf(slot)]);
+    }
+
+    static Object boxed(Class<?> type, long bits)
+    {
+        if (type == int.class)
+        {
+            return (int) bits;
+        }
+        if (type == long.class)
+        {
+            return bits;
+        }
+        if (type == double.class)
+        {
+            return Double.longBitsToDouble(bits);
+        }
+        return bits != 0;
+    }
+
+    private int hashCodeAt(int slot)
+    {
+        final Object value = slots[slot];
+
+        if (value != UNBOXED)
+        {
+            return value.hashCode();
+        }
+
+        final Class<?> type = schema.typeOf(slot);
+        final long bits = primitives[schema.primitiveIndexOf(slot)];
+
+        if (type == int.class)
+        {
+            return Integer.hashCode((int) bits);
+        }
+        if (type == boolean.class)
+        {
+            return Boolean.hashCode(bits != 0);
+        }
+        return Long.hashCode(bits);
+    }
+
+    private boolean isEqualAt(int slot, SlotNode other)
+    {
+        if (slots[slot] == UNBOXED && other.slots[slot] == UNBOXED)
+        {
+            final int primitiveIndex = schema.primitiveIndexOf(slot);
+            return primitives[primitiveIndex] == other.primitives[primitiveIndex];
+        }
+
+        return HashTrieMap.areEqualValues(valueAt(slot), other.valueAt(slot));
+    }
+
+    private static boolean isUnboxable(Class<?> type, Object value)
+    {
+        return type == int.class && value instanceof Integer //
+            || type == long.class && value instanceof Long //
+            || type == double.class && value instanceof Double //
+            || type == boolean.class && value instanceof Boolean;
+    }
+
+    private static long bitsOf(Object value)
+    {
+        if (value instanceof Double)
+        {
+            return bitsOf((double) (Double) value);
+        }
+        if (value instanceof Boolean)
+        {
+            return bitsOf((boolean) (Boolean) value);
+        }
+        return ((Number) value).longValue();
+    }
+
+    // doubles are stored with their canonical bits, so equal bits mean equal values
+    static long bitsOf(double value)
+    {
+        return Double.doubleToLongBits(value);
+    }
+
+    static long bitsOf(boolean value)
+    {
+        return value
+            ? 1
+            : 0;
+    }
+
+    @Override
+    public SlotNode with(String key, Object value)
+    {
+        checkNotNull(value, "value must not be null");
+
+        if (MARKER.equals(key))
+        {
+            return this;
+        }
+
+        final int slot = schema.slotOf(key);
+
+        if (slot >= 0)
+        {
+            return withValueAt(slot, value);
+        }
+
+        final HashTrieMap newExtraValues = extraValues.with(key, value);
+        return newExtraValues == extraValues
+            ? this
+            : new SlotNode(schema, slots, primitives, newExtraValues,
+                size - extraValues.size() + newExtraValues.size());
+    }
+
+    @Override
+    public SlotNode without(String key)
+    {
+        final int slot = schema.slotOf(key);
+
+        if (slot >= 0)
+        {
+            return withValueAt(slot, null);
+        }
+
+        final HashTrieMap newExtraValues = extraValues.without(key);
+        return newExtraValues == extraValues
+            ? this
+            : new SlotNode(schema, slots, primitives, newExtraValues, size - 1);
+    }
+
+    @Override
+    public PersistentNode emptyNode()
+    {
+        return schema.emptyNode();
+    }
+
+    @Override
+    public PersistentNode emptyChild(String key)
+    {
+        final int slot = schema.slotOf(key);
+        final Schema nestedSchema = slot < 0
+            ? null
+            : schema.nestedSchema(slot);
+
+        return nestedSchema == null
+            ? (PersistentNode) IMMUTABLE_NODE
+            : nestedSchema.emptyNode();
+    }
+
+    @Override
+    public Object get(Object key)
+    {
+        if (MARKER.equals(key))
+        {
+            return IMMUTABLE_NODE_ENTRY.getValue();
+        }
+
+        final int slot = key instanceof String
+            ? schema.slotOf((String) key)
+            : -1;
+
+        return slot >= 0
+            ? valueAt(slot)
+            : extraValues.get(key);
+    }
+
+    @Override
+    public boolean containsKey(Object key)
+    {
+        return get(key) != null;
+    }
+
+    @Override
+    public int size()
+    {
+        return size;
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet()
+    {
+        return new AbstractSet<Entry<String, Object>>()
+        {
+            @Override
+            public Iterator<Entry<String, Object>> iterator()
+            {
+                return new EntryIterator();
+            }
+
+            @Override
+            public int size()
+            {
+                return size;
+            }
+        };
+    }
+
+    // same entries as the iterator, without entry objects; unboxed slots are still boxed for the action
+    @Override
+    public void forEach(BiConsumer<? super String, ? super Object> action)
+    {
+        action.accept(IMMUTABLE_NODE_ENTRY.getKey(), IMMUTABLE_NODE_ENTRY.getValue());
+        for (int slot = 0; slot < slots.length; slot++)
+        {
+            if (slots[slot] != null)
+            {
+                action.accept(schema.nameOf(slot), valueAt(slot));
+            }
+        }
+        extraValues.forEach(action);
+    }
+
+    // adds a superset of the keys whose values differ, both nodes need to have the same schema
+    void collectDifferentKeys(SlotNode other, Collection<String> keys)
+    {
+        for (int slot = 0; slot < slots.length; slot++)
+        {
+            if (slots[slot] != other.slots[slot] || slots[slot] == UNBOXED && !isEqualAt(slot, other))
+            {
+                keys.add(schema.nameOf(slot));
+            }
+        }
+        extraValues.collectDifferentKeys(other.extraValues, keys);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        int currentHashCode = hashCode;
+
+        if (currentHashCode == 0)
+        {
+            currentHashCode = IMMUTABLE_NODE_ENTRY.hashCode() + extraValues.hashCode();
+            for (int slot = 0; slot < slots.length; slot++)
+            {
+                if (slots[slot] != null)
+                {
+                    currentHashCode += schema.nameOf(slot).hashCode() ^ hashCodeAt(slot);
+                }
+            }
+            hashCode = currentHashCode;
+        }
+
+        return currentHashCode;
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (o == this)
+        {
+            return true;
+        }
+
+        if (!(o instanceof Map) || ((Map<?, ?>) o).size() != size)
+        {
+            return false;
+        }
+
+        if (o instanceof PersistentNode && o.hashCode() != hashCode())
+        {
+            return false;
+        }
+
+        if (o instanceof SlotNode && ((SlotNode) o).schema == schema)
+        {
+            final SlotNode other = (SlotNode) o;
+            for (int slot = 0; slot < slots.length; slot++)
+            {
+                if (!isEqualAt(slot, other))
+                {
+                    return false;
+                }
+            }
+            return extraValues.equals(other.extraValues);
+        }
+
+        return super.equals(o);
+    }
+
+    private class EntryIterator implements Iterator<Entry<String, Object>>
+    {
+        private final Iterator<Entry<String, Object>> extraEntries = extraValues.entrySet().iterator();
+        private int slot = -1;
+
+        @Override
+        public boolean hasNext()
+        {
+            skipEmptySlots();
+            return slot < slots.length || extraEntries.hasNext();
+        }
+
+        @Override
+        public Entry<String, Object> next()
+        {
+            if (!hasNext())
+            {
+                throw new NoSuchElementException();
+            }
+
+            if (slot < 0)
+            {
+                slot++;
+                return IMMUTABLE_NODE_ENTRY;
+            }
+
+            if (slot < slots.length)
+            {
+                final int currentSlot = slot++;
+                return new SimpleImmutableEntry<>(schema.nameOf(currentSlot), valueAt(currentSlot));
+            }
+
+            return extraEntries.next();
+        }
+
+        private void skipEmptySlots()
+        {
+            while (slot >= 0 && slot < slots.length && slots[slot] == null)
+            {
+                slot++;
+            }
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package de.davherrmann.immutable;
+
+import static de.davherrmann.immutable.PathRecorder.pathRecorderInstanceFor;
+
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+// holds the current immutable and notifies the listeners of the paths an update changed
+public class Store<I>
+{
+    private final ListenerTrie<BiConsumer<Immutable<I>, Immutable<I>>> listeners = new ListenerTrie<>();
+    private volatile Immutable<I> state;
+
+    public Store(Immutable<I> initialState)
+    {
+        this.state = initialState;
+    }
+
+    public Immutable<I> state()
+    {
+        return state;
+    }
+
+    public I path()
+    {
+        return state.path();
+    }
+
+    // listeners are called with the old and the new state before update returns, outside of the lock: updates of
+    // other threads are not blocked by slow listeners, but may notify their listeners first
+    public Immutable<I> update(Function<Immutable<I>, Immutable<I>> updater)
+    {
+        final Immutable<I> oldState;
+        final Immutable<I> newState;
+        final List<BiConsumer<Immutable<I>, Immutable<I>>> affected;
+
+        synchronized (this)
+        {
+            oldState = state;
+            newState = updater.apply(oldState);
+            if (newState == oldState)
+            {
+                return newState;
+            }
+
+            state = newState;
+            affected = listeners.affectedBy(oldState.values(), newState.values());
+        }
+
+        affected.forEach(listener -> listener.accept(oldState, newState));
+        return newState;
+    }
+
+    public Immutable<I> set(Immutable<I> newState)
+    {
+        return update(oldState -> newState);
+    }
+
+    // the listener is called when something at the path or below it changes, so Path.root() observes every update
+    public Subscription subscribe(Path path, BiConsumer<Immutable<I>, Immutable<I>> listener)
+    {
+        return listeners.add(path, listener);
+    }
+
+    public Subscription subscribe(Supplier<?> method, BiConsumer<Immutable<I>, Immutable<I>> listener)
+    {
+        return subscribe(pathRecorderInstanceFor(state.type()).pathFor(method), listener);
+    }
+}
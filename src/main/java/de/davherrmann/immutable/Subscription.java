@@ -0,0 +1,7 @@
+package de.davherrmann.immutable;
+
+@FunctionalInterface
+public interface Subscription
+{
+    void unsubscribe();
+}
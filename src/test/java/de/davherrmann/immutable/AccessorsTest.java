@@ -0,0 +1,221 @@
+package de.davherrmann.immutable;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+import java.lang.reflect.Proxy;
+import java.util.List;
+
+import org.junit.Test;
+
+public class AccessorsTest
+{
+    private final Immutable<POJO> immutable = new Immutable<>(POJO.class);
+    private final POJO path = immutable.path();
+
+    @Test
+    public void asObject_usesGeneratedAccessor() throws Exception
+    {
+        // when
+        final POJO pojo = immutable.asObject();
+
+        // then
+        assertThat(pojo, is(instanceOf(GeneratedAccessor.class)));
+        assertThat(Proxy.isProxyClass(pojo.getClass()), is(false));
+    }
+
+    @Test
+    public void asObject_usesClassWrittenAtRuntime_notProxy() throws Exception
+    {
+        // when
+        final POJO pojo = immutable.in(path::count).set(1).asObject();
+        final POJO nested = immutable.in(path.nested()::count).set(2).asObject().nested();
+
+        // then
+        assertThat(Accessors.hasGeneratedAccessor(POJO.class), is(true));
+        assertThat(pojo.getClass().getName(), is(POJO.class.getName() + "$$ImmutableAccessor"));
+        assertThat(nested.getClass(), is(sameInstance(pojo.getClass())));
+        assertThat(pojo.count(), is(1));
+    }
+
+    @Test
+    public void isMissingDefineAccess_onlyAcceptsAccessFailures() throws Exception
+    {
+        // when / then
+        assertThat(Accessors.isMissingDefineAccess(new IllegalAccessException()), is(true));
+        assertThat(Accessors.isMissingDefineAccess(new SecurityException()), is(true));
+        assertThat(Accessors.isMissingDefineAccess(new ClassFormatError()), is(false));
+        assertThat(Accessors.isMissingDefineAccess(new NoSuchMethodException()), is(false));
+    }
+
+    @Test
+    public void asObject_returnsDefaultValues() throws Exception
+    {
+        // when
+        final POJO pojo = immutable.asObject();
+
+        // then
+        assertThat(pojo.title(), is(nullValue()));
+        assertThat(pojo.isActive(), is(false));
+        assertThat(pojo.count(), is(0));
+        assertThat(pojo.total(), is(0L));
+        assertThat(pojo.ratio(), is(0d));
+    }
+
+    @Test
+    public void asObject_returnsValues() throws Exception
+    {
+        // given
+        final Immutable<POJO> newImmutable = immutable //
+            .in(path::title).set("Foo") //
+            .in(path::isActive).set(true) //
+            .in(path::count).set(3) //
+            .in(path::total).set(4L) //
+            .in(path::ratio).set(0.5) //
+            .inList(path::titles).set(newArrayList("Bar"));
+
+        // when
+        final POJO pojo = newImmutable.asObject();
+
+        // then
+        assertThat(pojo.title(), is("Foo"));
+        assertThat(pojo.isActive(), is(true));
+        assertThat(pojo.count(), is(3));
+        assertThat(pojo.total(), is(4L));
+        assertThat(pojo.ratio(), is(0.5));
+        assertThat(pojo.titles(), is(newArrayList("Bar")));
+    }
+
+    @Test
+    public void asObject_returnsNestedObjects() throws Exception
+    {
+        // given
+        final Immutable<POJO> newImmutable = immutable.in(path.nested()::title).set("Foo");
+
+        // when
+        final POJO nested = newImmutable.asObject().nested();
+
+        // then
+        assertThat(nested, is(instanceOf(GeneratedAccessor.class)));
+        assertThat(nested.title(), is("Foo"));
+        assertThat(nested.nested(), is(nullValue()));
+    }
+
+    @Test
+    public void asObject_returnsValuesOfNode() throws Exception
+    {
+        // given
+        final Immutable<POJO> newImmutable = immutable.in(path.nested()::title).set("Foo");
+
+        // when
+        final POJO pojo = newImmutable.asObject();
+
+        // then
+        assertThat(((Immutable.ImmutableNode) pojo).values(), is(sameInstance(newImmutable.values())));
+        assertThat(((Immutable.ImmutableNode) pojo.nested()).values(),
+            is(sameInstance(newImmutable.values().get("nested"))));
+    }
+
+    @Test
+    public void asObject_readsSlotNodes() throws Exception
+    {
+        // given
+        final Immutable<POJO> newImmutable = Immutable.withSchema(POJO.class) //
+            .in(path::count).set(2) //
+            .in(path.nested()::title).set("Foo");
+
+        // when
+        final POJO pojo = newImmutable.asObject();
+
+        // then
+        assertThat(pojo.count(), is(2));
+        assertThat(pojo.nested().title(), is("Foo"));
+    }
+
+    @Test
+    public void asObject_fallsBackToProxyForNonGetterMethods() throws Exception
+    {
+        // given
+        final Immutable<WithParameters> immutable = new Immutable<>(WithParameters.class);
+        final WithParameters path = immutable.path();
+
+        // when
+        final WithParameters withParameters = immutable.in(path::title).set("Foo").asObject();
+
+        // then
+        assertThat(Accessors.hasGeneratedAccessor(WithParameters.class), is(false));
+        assertThat(Proxy.isProxyClass(withParameters.getClass()), is(true));
+        assertThat(withParameters.title(), is("Foo"));
+    }
+
+    @Test
+    public void asObject_keepsDefaultMethods() throws Exception
+    {
+        // given
+        final Immutable<POJO> newImmutable = immutable.in(path::title).set("Foo");
+
+        // when
+        final POJO pojo = newImmutable.asObject();
+
+        // then
+        assertThat(pojo.upperCaseTitle(), is("FOO"));
+        assertThat(pojo, is(not(instanceOf(Proxy.class))));
+    }
+
+    @Test
+    public void asObject_ignoresValueClass_withSlotsOfOtherSchema() throws Exception
+    {
+        // given
+        final Immutable<Stale> immutable = new Immutable<>(Stale.class);
+        final Stale path = immutable.path();
+
+        // when
+        final Stale stale = immutable.in(path::count).set(42).in(path::title).set("Foo").asObject();
+
+        // then
+        assertThat(stale, is(not(instanceOf(AccessorsTest_StaleValue.class))));
+        assertThat(stale.count(), is(42));
+        assertThat(stale.title(), is("Foo"));
+    }
+
+    interface Stale
+    {
+        int count();
+
+        String title();
+    }
+
+    interface POJO
+    {
+        String title();
+
+        boolean isActive();
+
+        int count();
+
+        long total();
+
+        double ratio();
+
+        List<String> titles();
+
+        POJO nested();
+
+        default String upperCaseTitle()
+        {
+            return title().toUpperCase();
+        }
+    }
+
+    interface WithParameters
+    {
+        String title();
+
+        String titleWith(String suffix);
+    }
+}
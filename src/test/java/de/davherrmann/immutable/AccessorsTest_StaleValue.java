@@ -0,0 +1,36 @@
+package de.davherrmann.immutable;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+// a value class compiled for an older version of AccessorsTest.Stale, whose slots were in a different order
+@SuppressWarnings("unchecked")
+public final class AccessorsTest_StaleValue extends GeneratedAccessor implements AccessorsTest.Stale
+{
+    public static final List<String> SLOT_NAMES = Collections.unmodifiableList(Arrays.asList("title", "count"));
+
+    public AccessorsTest_StaleValue(Map<String, Object> values)
+    {
+        super(values, AccessorsTest.Stale.class);
+    }
+
+    @Override
+    protected GeneratedAccessor newInstance(Map<String, Object> values)
+    {
+        return new AccessorsTest_StaleValue(values);
+    }
+
+    @Override
+    public int count()
+    {
+        return intValue(1, "count");
+    }
+
+    @Override
+    public String title()
+    {
+        return (String) object(0, "title", String.class);
+    }
+}
@@ -0,0 +1,124 @@
+package de.davherrmann.immutable;
+
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+public class AtomicStoreTest
+{
+    private static final Path COUNT = Path.of("count");
+
+    @Rule
+    public final ExpectedException thrown = ExpectedException.none();
+
+    private final Immutable<POJO> immutable = new Immutable<>(POJO.class);
+    private final POJO path = immutable.path();
+
+    @Test
+    public void update_fromManyThreads_appliesEveryUpdate() throws Exception
+    {
+        // given
+        final AtomicStore<POJO> store = new AtomicStore<>(immutable);
+
+        // when
+        incrementConcurrently(store, 8, 1000);
+
+        // then
+        assertThat(store.state().getInt(COUNT), is(8000));
+    }
+
+    @Test
+    public void combining_update_fromManyThreads_appliesEveryUpdate() throws Exception
+    {
+        // given
+        final AtomicStore<POJO> store = AtomicStore.combining(immutable);
+
+        // when
+        incrementConcurrently(store, 8, 1000);
+
+        // then
+        assertThat(store.state().getInt(COUNT), is(8000));
+    }
+
+    @Test
+    public void update_returnsNewState() throws Exception
+    {
+        // given
+        final AtomicStore<POJO> store = AtomicStore.combining(immutable);
+
+        // when
+        final Immutable<POJO> newState = store.update(state -> state.in(path::title).set("Foo"));
+
+        // then
+        assertThat(store.state(), is(sameInstance(newState)));
+        assertThat(newState.get(path::title), is("Foo"));
+    }
+
+    @Test
+    public void combining_update_throwsFailureOfOwnUpdater() throws Exception
+    {
+        // given
+        final AtomicStore<POJO> store = AtomicStore.combining(immutable.in(path::title).set("Foo"));
+
+        // then
+        thrown.expect(IllegalStateException.class);
+        thrown.expectMessage("Bar");
+
+        // when
+        try
+        {
+            store.update(state -> {
+                throw new IllegalStateException("Bar");
+            });
+        }
+        finally
+        {
+            assertThat(store.state().get(path::title), is("Foo"));
+        }
+    }
+
+    private void incrementConcurrently(AtomicStore<POJO> store, int threads, int updates) throws Exception
+    {
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try
+        {
+            final List<Callable<Void>> tasks = IntStream.range(0, threads) //
+                .mapToObj(i -> (Callable<Void>) () -> {
+                    for (int update = 0; update < updates; update++)
+                    {
+                        store.update(state -> state.in(COUNT, 0).setInt(state.getInt(COUNT) + 1));
+                    }
+                    return null;
+                }) //
+                .collect(Collectors.toList());
+
+            for (Future<Void> future : executor.invokeAll(tasks))
+            {
+                future.get();
+            }
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+
+    private interface POJO
+    {
+        String title();
+
+        int count();
+    }
+}
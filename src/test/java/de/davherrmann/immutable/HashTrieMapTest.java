@@ -0,0 +1,224 @@
+package de.davherrmann.immutable;
+
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+
+public class HashTrieMapTest
+{
+    private final HashTrieMap map = HashTrieMap.empty() //
+        .with("A", "AFoo") //
+        .with("B", "BFoo");
+
+    @Test
+    public void with_addsEntry() throws Exception
+    {
+        // when
+        final HashTrieMap newMap = map.with("C", "CFoo");
+
+        // then
+        assertThat(newMap.get("C"), is("CFoo"));
+        assertThat(newMap.size(), is(3));
+    }
+
+    @Test
+    public void with_doesNotChangeOriginalMap() throws Exception
+    {
+        // when
+        map.with("A", "ABar");
+
+        // then
+        assertThat(map.get("A"), is("AFoo"));
+    }
+
+    @Test
+    public void with_returnsSameInstance_whenValueIsSameInstance() throws Exception
+    {
+        // when / then
+        assertThat(map.with("A", map.get("A")), is(sameInstance(map)));
+    }
+
+    @Test
+    public void without_removesEntry() throws Exception
+    {
+        // when
+        final HashTrieMap newMap = map.without("A");
+
+        // then
+        assertThat(newMap.get("A"), is(nullValue()));
+        assertThat(newMap.size(), is(1));
+        assertThat(map.get("A"), is("AFoo"));
+    }
+
+    @Test
+    public void with_worksWithCollidingHashes() throws Exception
+    {
+        // given
+        assertThat("Aa".hashCode(), is("BB".hashCode()));
+
+        // when
+        final HashTrieMap newMap = map.with("Aa", 1).with("BB", 2);
+
+        // then
+        assertThat(newMap.get("Aa"), is(1));
+        assertThat(newMap.get("BB"), is(2));
+        assertThat(newMap.without("Aa").get("BB"), is(2));
+        assertThat(newMap.without("Aa").containsKey("Aa"), is(false));
+    }
+
+    @Test
+    public void forEach_visitsAllEntries() throws Exception
+    {
+        // given
+        final Map<String, Object> expected = Maps.newHashMap();
+        HashTrieMap newMap = map.with("Aa", 1).with("BB", 2);
+        for (int i = 0; i < 1000; i++)
+        {
+            newMap = newMap.with("key" + i, i);
+        }
+        expected.putAll(newMap);
+
+        // when
+        final Map<String, Object> visited = Maps.newHashMap();
+        newMap.forEach(visited::put);
+
+        // then
+        assertThat(visited, is(expected));
+        assertThat(visited.size(), is(1004));
+    }
+
+    @Test
+    public void equals_worksWithOtherMaps() throws Exception
+    {
+        // when / then
+        assertThat(map, is(ImmutableMap.<String, Object>of("A", "AFoo", "B", "BFoo")));
+        assertThat(ImmutableMap.<String, Object>of("A", "AFoo", "B", "BFoo"), is(map));
+    }
+
+    @Test
+    public void withAndWithout_keepAllEntries_forManyKeys() throws Exception
+    {
+        // given
+        final Map<String, Object> expected = Maps.newHashMap();
+        HashTrieMap newMap = HashTrieMap.empty();
+
+        // when
+        for (int i = 0; i < 10000; i++)
+        {
+            expected.put("key" + i, i);
+            newMap = newMap.with("key" + i, i);
+        }
+        for (int i = 0; i < 10000; i += 3)
+        {
+            expected.remove("key" + i);
+            newMap = newMap.without("key" + i);
+        }
+
+        // then
+        assertThat(newMap, is(expected));
+        assertThat(newMap.size(), is(expected.size()));
+    }
+
+    @Test
+    public void hashCode_isMapHashCode() throws Exception
+    {
+        // given
+        final Map<String, Object> expected = Maps.newHashMap();
+        HashTrieMap newMap = HashTrieMap.empty();
+
+        // when
+        for (int i = 0; i < 1000; i++)
+        {
+            expected.put("key" + i, i);
+            newMap = newMap.with("key" + i, i);
+        }
+
+        // then
+        assertThat(newMap.hashCode(), is(expected.hashCode()));
+        assertThat(newMap.with("key0", -1).hashCode(), is(not(expected.hashCode())));
+    }
+
+    @Test
+    public void equals_comparesMapsWithDifferentHistories() throws Exception
+    {
+        // given
+        HashTrieMap map0 = HashTrieMap.empty();
+        HashTrieMap map1 = HashTrieMap.empty();
+
+        // when
+        for (int i = 0; i < 1000; i++)
+        {
+            map0 = map0.with("key" + i, i);
+            map1 = map1.with("key" + (999 - i), 999 - i).with("removed" + i, i);
+        }
+        for (int i = 0; i < 1000; i++)
+        {
+            map1 = map1.without("removed" + i);
+        }
+
+        // then
+        assertThat(map0, is(map1));
+        assertThat(map1, is(map0));
+        assertThat(map0.with("key500", -1), is(not(map1)));
+        assertThat(map0.without("key500").with("other", 500), is(not(map1)));
+    }
+
+    @Test
+    public void equals_comparesCollidingKeys() throws Exception
+    {
+        // given
+        final HashTrieMap map0 = HashTrieMap.empty().with("Aa", "Foo").with("BB", "Bar");
+        final HashTrieMap map1 = HashTrieMap.empty().with("BB", "Bar").with("Aa", "Foo");
+
+        // when / then
+        assertThat(map0, is(map1));
+        assertThat(map0, is(not(map1.with("Aa", "Baz"))));
+    }
+
+    @Test
+    public void equals_isTrue_forSharedValues_withoutComparingThem() throws Exception
+    {
+        // given
+        final CountingValue nested = new CountingValue();
+        final HashTrieMap map0 = HashTrieMap.empty().with("nested", nested).with("A", "Foo");
+        final HashTrieMap map1 = HashTrieMap.empty().with("A", "Foo").with("nested", nested);
+
+        // when / then
+        assertThat(map0, is(map1));
+        assertThat(nested.equalsCalls, is(0));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void put_isNotSupported() throws Exception
+    {
+        // when
+        map.put("A", "ABar");
+    }
+
+    private static class CountingValue
+    {
+        private int equalsCalls;
+
+        @Override
+        public boolean equals(Object o)
+        {
+            equalsCalls++;
+            return super.equals(o);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return 42;
+        }
+    }
+}
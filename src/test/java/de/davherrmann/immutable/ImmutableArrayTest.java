@@ -0,0 +1,149 @@
+package de.davherrmann.immutable;
+
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+public class ImmutableArrayTest
+{
+    @Rule
+    public final ExpectedException thrown = ExpectedException.none();
+
+    private final Immutable<POJO> immutable = new Immutable<>(POJO.class);
+    private final POJO path = immutable.path();
+
+    @Test
+    public void get_returnsStoredArray_withoutCopy() throws Exception
+    {
+        // given
+        final ImmutableIntArray numbers = ImmutableIntArray.of(1, 2, 3);
+        final ImmutableArray<String> titles = ImmutableArray.of("Foo", "Bar");
+
+        // when
+        final Immutable<POJO> newImmutable = immutable //
+            .in(path::numbers).set(numbers) //
+            .in(path.pojo()::titles).set(titles);
+
+        // then
+        assertThat(newImmutable.get(path::numbers), is(sameInstance(numbers)));
+        assertThat(newImmutable.asObject().numbers(), is(sameInstance(numbers)));
+        assertThat(newImmutable.asObject().pojo().titles(), is(sameInstance(titles)));
+        assertThat(newImmutable.merge(immutable.in(path::title).set("Foo")).get(path::numbers),
+            is(sameInstance(numbers)));
+    }
+
+    @Test
+    public void copyOf_isNotChangedByPassedArray() throws Exception
+    {
+        // given
+        final long[] values = {1, 2, 3};
+        final ImmutableLongArray array = ImmutableLongArray.copyOf(values);
+
+        // when
+        values[0] = 42;
+
+        // then
+        assertThat(array.get(0), is(1L));
+        assertThat(array.stream().sum(), is(6L));
+    }
+
+    @Test
+    public void asList_isReadOnly() throws Exception
+    {
+        // then
+        thrown.expect(UnsupportedOperationException.class);
+
+        // when
+        ImmutableArray.of("Foo").asList().set(0, "Bar");
+    }
+
+    @Test
+    public void equals_comparesValues() throws Exception
+    {
+        // when
+        final Immutable<POJO> immutable0 = immutable.in(path::measurements).set(ImmutableDoubleArray.of(1.5, 2));
+        final Immutable<POJO> immutable1 = immutable.in(path::measurements).set(ImmutableDoubleArray.of(1.5, 2));
+
+        // then
+        assertThat(immutable0, is(immutable1));
+        assertThat(immutable0.in(path::measurements).set(ImmutableDoubleArray.of(1.5, 2)),
+            is(sameInstance(immutable0)));
+    }
+
+    @Test
+    public void primitiveArrays_areCopiedAndCompared() throws Exception
+    {
+        // given
+        final int[] values = {1, 2, 3};
+        final Immutable<POJO> newImmutable = immutable.in(path::plainNumbers).set(values);
+
+        // when
+        values[0] = 42;
+
+        // then
+        assertThat(newImmutable.asObject().plainNumbers()[0], is(1));
+        assertThat(newImmutable.get(path::plainNumbers), is(not(sameInstance(newImmutable.get(path::plainNumbers)))));
+        assertThat(newImmutable.in(path::plainNumbers).set(new int[]{1, 2, 3}), is(sameInstance(newImmutable)));
+    }
+
+    @Test
+    public void getShared_returnsStoredPrimitiveArray_onAnyThread() throws Exception
+    {
+        // given
+        final Immutable<POJO> newImmutable = immutable.in(path::plainNumbers).set(new int[]{1, 2, 3});
+
+        // when
+        final int[] values0 = newImmutable.getShared(path::plainNumbers);
+        final int[] values1 = ForkJoinPool.commonPool()
+            .submit(() -> newImmutable.<int[]>getShared(path::plainNumbers))
+            .get();
+
+        // then
+        assertThat(values0, is(sameInstance(values1)));
+    }
+
+    @Test
+    public void gson_writesAndReadsPlainArrays() throws Exception
+    {
+        // given
+        final Gson gson = new Gson();
+
+        // when
+        final String json = gson.toJson(ImmutableIntArray.of(1, 2));
+        final ImmutableArray<String> titles = gson.fromJson("[\"Foo\",\"Bar\"]",
+            new TypeToken<ImmutableArray<String>>()
+            {
+            }.getType());
+
+        // then
+        assertThat(json, is("[1,2]"));
+        assertThat(gson.fromJson(json, ImmutableIntArray.class), is(ImmutableIntArray.of(1, 2)));
+        assertThat(titles, is(ImmutableArray.of("Foo", "Bar")));
+        assertThat(titles.toArray().getClass(), is((Object) String[].class));
+    }
+
+    private interface POJO
+    {
+        String title();
+
+        ImmutableIntArray numbers();
+
+        ImmutableDoubleArray measurements();
+
+        ImmutableArray<String> titles();
+
+        int[] plainNumbers();
+
+        POJO pojo();
+    }
+}
@@ -63,4 +63,41 @@ public class ImmutableListTest
         // then
         assertThat(newImmutableList.size(), is(newImmutableList.asList().size()));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void set_returnsNewImmutableList_withReplacedItem() throws Exception
+    {
+        // given
+        final ImmutableList<String> newImmutableList = immutableList.addAll(newArrayList("foo", "bar"));
+
+        // when
+        final ImmutableList<String> changedImmutableList = newImmutableList.set(1, "baz");
+
+        // then
+        assertThat(changedImmutableList.asList(), is(newArrayList("foo", "baz")));
+        assertThat(newImmutableList.get(1), is("bar"));
+    }
+
+    @Test
+    public void slice_returnsPartOfImmutableList() throws Exception
+    {
+        // given
+        final ImmutableList<String> newImmutableList = immutableList.addAll(newArrayList("foo", "bar", "baz"));
+
+        // when
+        final ImmutableList<String> slice = newImmutableList.slice(1, 3).add("qux");
+
+        // then
+        assertThat(slice.asList(), is(newArrayList("bar", "baz", "qux")));
+    }
+
+    @Test
+    public void addAll_concatenatesImmutableLists() throws Exception
+    {
+        // given
+        final ImmutableList<String> newImmutableList = immutableList.add("foo");
+
+        // when / then
+        assertThat(newImmutableList.addAll(newImmutableList).asList(), is(newArrayList("foo", "foo")));
+    }
+}
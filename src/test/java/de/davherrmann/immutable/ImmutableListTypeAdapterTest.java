@@ -2,10 +2,13 @@ package de.davherrmann.immutable;
 
 import static org.junit.Assert.assertThat;
 
+import java.util.Arrays;
+
 import org.hamcrest.core.Is;
 import org.junit.Test;
 
 import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
 
 public class ImmutableListTypeAdapterTest
 {
@@ -18,4 +21,33 @@ public class ImmutableListTypeAdapterTest
         // when / then
         assertThat(new Gson().toJson(immutableList), Is.is("[\"foo\",\"bar\"]"));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void deserialisingImmutableList_usingPlainGson_works() throws Exception
+    {
+        // given
+        final String json = "[\"foo\",1,{\"immutableNode\":true,\"bar\":2.5}]";
+
+        // when
+        final ImmutableList<?> immutableList = new Gson().fromJson(json, ImmutableList.class);
+
+        // then
+        assertThat(immutableList.asList(), Is.is(Arrays.<Object>asList("foo", 1,
+            HashTrieMap.empty().with("immutableNode", true).with("bar", 2.5))));
+    }
+
+    @Test
+    public void deserialisingImmutableList_readsElementsAsElementType() throws Exception
+    {
+        // given
+        final String json = "[1,2]";
+
+        // when
+        final ImmutableList<Long> immutableList = new Gson().fromJson(json, new TypeToken<ImmutableList<Long>>()
+        {
+        }.getType());
+
+        // then
+        assertThat(immutableList.asList(), Is.is(Arrays.asList(1L, 2L)));
+    }
+}
@@ -1,8 +1,11 @@
 package de.davherrmann.immutable;
 
 import static com.google.common.collect.Lists.newArrayList;
+import static com.google.common.collect.Sets.newLinkedHashSet;
 import static de.davherrmann.immutable.NextImmutable.IMMUTABLE_NODE;
+import static java.util.Collections.singleton;
 import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.sameInstance;
 import static org.hamcrest.core.Is.is;
 import static org.hamcrest.core.IsNot.not;
 import static org.junit.Assert.assertEquals;
@@ -12,6 +15,7 @@ import static org.junit.Assert.fail;
 
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 import org.junit.Ignore;
 import org.junit.Rule;
@@ -61,6 +65,20 @@ public class ImmutableTest
         assertNotNull(pojo);
     }
 
+    @Test
+    public void inPath_setsValueWithoutRecordedPath() throws Exception
+    {
+        // when
+        final Immutable<POJO> newImmutable = immutable //
+            .in(Path.of("pojo", "title"), (String) null).set("Foo") //
+            .inList(Path.of("titles")).set(newArrayList("Bar"));
+
+        // then
+        assertThat(newImmutable.get(path.pojo()::title), is("Foo"));
+        assertThat(newImmutable.get(Path.of("pojo", "title")), is("Foo"));
+        assertThat(newImmutable.<List<String>>get(Path.of("titles")), is(newArrayList("Bar")));
+    }
+
     @Test
     public void get_returnsDefaultBooleanValue() throws Exception
     {
@@ -236,6 +254,28 @@ public class ImmutableTest
         assertThat(newImmutable.asObject().titles(), is(newArrayList("foo", "bar")));
     }
 
+    @Test
+    public void updateList_passesEmptyList_forMissingList() throws Exception
+    {
+        // given
+        final List<List<String>> passedLists = newArrayList();
+
+        // when
+        immutable.inList(path::titles).updateList(list -> {
+            passedLists.add(list);
+            return list;
+        });
+        immutable.<String>inList(Path.of("titles")).updateList(list -> {
+            passedLists.add(list);
+            return list;
+        });
+
+        // then
+        assertThat(passedLists.size(), is(2));
+        assertThat(passedLists.get(0).isEmpty(), is(true));
+        assertThat(passedLists.get(1).isEmpty(), is(true));
+    }
+
     @Test
     public void get_returnsUpdatedList_whenImmutableListWasUpdated() throws Exception
     {
@@ -273,6 +313,154 @@ public class ImmutableTest
         assertThat(newImmutable.asObject().titleArray(), is(new String[]{"foo", "bar"}));
     }
 
+    @Test
+    public void changes_returnsChangedPaths() throws Exception
+    {
+        // given
+        final Immutable<POJO> oldImmutable = immutable.in(path.pojo()::title).set("Foo");
+
+        // when
+        final List<Change> changes = oldImmutable //
+            .changes(oldImmutable.in(path.pojo()::wantToClose).set(true)) //
+            .collect(Collectors.toList());
+
+        // then
+        assertThat(changes, is(newArrayList(new Change(Path.of("pojo", "wantToClose"), null, true))));
+    }
+
+    @Test
+    public void set_returnsSameInstance_whenValueIsEqual() throws Exception
+    {
+        // given
+        final Immutable<POJO> oldImmutable = immutable //
+            .in(path.pojo()::title).set("Foo") //
+            .inList(path::titles).set(newArrayList("Foo", "Bar")) //
+            .in(path::titleArray).set(new String[]{"Foo"});
+
+        // when / then
+        assertThat(oldImmutable.in(path.pojo()::title).set(new String("Foo")), is(sameInstance(oldImmutable)));
+        assertThat(oldImmutable.in(path.pojo()::title).update(String::trim), is(sameInstance(oldImmutable)));
+        assertThat(oldImmutable.inList(path::titles).set(newArrayList("Foo", "Bar")), is(sameInstance(oldImmutable)));
+        assertThat(oldImmutable.inList(path::titles).update(titles -> titles.set(0, "Foo")),
+            is(sameInstance(oldImmutable)));
+        assertThat(oldImmutable.in(path::titleArray).set(new String[]{"Foo"}), is(sameInstance(oldImmutable)));
+    }
+
+    @Test
+    public void merge_returnsSameInstance_whenNothingChanges() throws Exception
+    {
+        // given
+        final Immutable<POJO> oldImmutable = immutable //
+            .in(path.pojo()::title).set("Foo") //
+            .in(path::currentPage).set(1);
+
+        // when
+        final Immutable<POJO> mergedImmutable = oldImmutable.merge(immutable.in(path.pojo()::title).set("Foo"));
+        final Immutable<POJO> producedImmutable = oldImmutable.produce(draft -> draft //
+            .in(draft.path()::currentPage).set(1) //
+            .in(draft.path().pojo()::title).set("Foo"));
+
+        // then
+        assertThat(mergedImmutable, is(sameInstance(oldImmutable)));
+        assertThat(producedImmutable, is(sameInstance(oldImmutable)));
+    }
+
+    @Test
+    public void changedPathsSince_foldsWrittenPathsOfAllVersions() throws Exception
+    {
+        // given
+        final Immutable<POJO> firstVersion = immutable.in(path::title).set("Foo").withChangeLog();
+
+        // when
+        final Immutable<POJO> lastVersion = firstVersion //
+            .in(path.pojo()::title).set("Bar") //
+            .inList(path::titles).set(newArrayList("Baz")) //
+            .in(path.pojo()::currentPage).update(currentPage -> currentPage + 1) //
+            .in(path::pojo).set(new Immutable<>(POJO.class).in(path::wantToClose).set(true).asObject()) //
+            .merge(new Immutable<>(POJO.class).in(path.name()::firstname).set("Foo"));
+
+        // then
+        assertThat(lastVersion.changedPathsSince(firstVersion), is(newLinkedHashSet(newArrayList( //
+            Path.of("titles"), //
+            Path.of("pojo"), //
+            Path.of("name", "firstname")))));
+    }
+
+    @Test
+    public void changesSince_returnsSameChangesAsChanges() throws Exception
+    {
+        // given
+        final Immutable<POJO> firstVersion = immutable.in(path.pojo()::title).set("Foo").withChangeLog();
+
+        // when
+        final Immutable<POJO> lastVersion = firstVersion //
+            .in(path.pojo()::title).set("Bar") //
+            .in(path::title).set("Baz") //
+            .in(path.pojo()::title).set("Foo") //
+            .produce(draft -> draft.in(draft.path().pojo()::wantToClose).set(true));
+
+        // then
+        assertThat(lastVersion.changesSince(firstVersion).collect(Collectors.toList()), is(newArrayList( //
+            new Change(Path.of("title"), null, "Baz"), //
+            new Change(Path.of("pojo", "wantToClose"), null, true))));
+        assertThat(lastVersion.changesSince(firstVersion).collect(Collectors.toSet()),
+            is(firstVersion.changes(lastVersion).collect(Collectors.toSet())));
+    }
+
+    @Test
+    public void changesSince_comparesWholeTree_afterClear() throws Exception
+    {
+        // given
+        final Immutable<POJO> firstVersion = immutable.in(path.pojo()::title).set("Foo").withChangeLog();
+
+        // when
+        final Immutable<POJO> lastVersion = firstVersion.clear().in(path::title).set("Bar");
+
+        // then
+        assertThat(lastVersion.changedPathsSince(firstVersion), is(singleton(Path.root())));
+        assertThat(lastVersion.changesSince(firstVersion).collect(Collectors.toSet()),
+            is(firstVersion.changes(lastVersion).collect(Collectors.toSet())));
+    }
+
+    @Test
+    public void changedPathsSince_throwsMeaningfulError_forUnrelatedVersion() throws Exception
+    {
+        // given
+        final Immutable<POJO> version = immutable.withChangeLog().in(path::title).set("Foo");
+
+        // then
+        thrown.expect(IllegalArgumentException.class);
+        thrown.expectMessage("The passed immutable is not a previous version of this immutable.");
+
+        // when
+        version.changedPathsSince(immutable.withChangeLog());
+    }
+
+    @Test
+    public void changesSince_throwsMeaningfulError_forPreviousVersionWithoutChangeLog() throws Exception
+    {
+        // given
+        final Immutable<POJO> version = immutable.withChangeLog().in(path::title).set("Foo");
+
+        // then
+        thrown.expect(IllegalArgumentException.class);
+        thrown.expectMessage("The passed immutable is not a previous version of this immutable, it has no change log.");
+
+        // when
+        version.changesSince(immutable.in(path.pojo()::title).set("Bar"));
+    }
+
+    @Test
+    public void changedPathsSince_throwsMeaningfulError_withoutChangeLog() throws Exception
+    {
+        // then
+        thrown.expect(IllegalStateException.class);
+        thrown.expectMessage("No change log was recorded. Did you call Immutable#withChangeLog()?");
+
+        // when
+        immutable.in(path::title).set("Foo").changedPathsSince(immutable);
+    }
+
     @Test
     public void diff_ofImmutablesWithEqualStringSet_shouldBeEmpty() throws Exception
     {
@@ -360,6 +548,60 @@ public class ImmutableTest
         assertEquals(manuallyMergedImmutable, mergedImmutable);
     }
 
+    @Test
+    public void produce_appliesAllChanges() throws Exception
+    {
+        // when
+        final Immutable<POJO> newImmutable = immutable.produce(draft -> draft //
+            .in(path::title).set("Foo") //
+            .in(path.pojo()::wantToClose).set(true) //
+            .inList(path::titles).update(list -> list.add("Bar")));
+
+        // then
+        assertEquals(immutable //
+            .in(path::title).set("Foo") //
+            .in(path.pojo()::wantToClose).set(true) //
+            .inList(path::titles).update(list -> list.add("Bar")), newImmutable);
+    }
+
+    @Test
+    public void produce_readsPreviousChanges() throws Exception
+    {
+        // when
+        final Immutable<POJO> newImmutable = immutable.in(path::currentPage).set(1).produce(draft -> draft //
+            .in(path::currentPage).update(page -> page + 1) //
+            .in(path::currentPage).update(page -> page + 1) //
+            .in(path.pojo()::title).set(draft.get(path::currentPage) + ""));
+
+        // then
+        assertThat(newImmutable.get(path::currentPage), is(3));
+        assertThat(newImmutable.get(path.pojo()::title), is("3"));
+    }
+
+    @Test
+    public void produce_replacesValues_likeSequentialChanges() throws Exception
+    {
+        // given
+        final Immutable<POJO> initialImmutable = immutable.in(path.name()::firstname).set("Foo");
+
+        // when
+        final Immutable<POJO> newImmutable = initialImmutable.produce(draft -> draft //
+            .in(path::name).set(name("F", "B").asObject()) //
+            .in(path.name()::lastname).set("Bar"));
+
+        // then
+        assertEquals(initialImmutable //
+            .in(path::name).set(name("F", "B").asObject()) //
+            .in(path.name()::lastname).set("Bar"), newImmutable);
+    }
+
+    @Test
+    public void produce_returnsSameImmutable_whenNothingWasChanged() throws Exception
+    {
+        // when / then
+        assertThat(immutable.produce(draft -> draft.get(path::title)), is(sameInstance(immutable)));
+    }
+
     @Test
     public void type_returnsCorrectType() throws Exception
     {
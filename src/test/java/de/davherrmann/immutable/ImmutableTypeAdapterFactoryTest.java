@@ -72,7 +72,59 @@ public class ImmutableTypeAdapterFactoryTest
         System.out.println(gson.toJson(newImmutable));
         // then
         assertThat(gson.toJson(newImmutable),
-            is("{\"type\":\"de.davherrmann.immutable.ImmutableTypeAdapterFactoryTest$POJO\",\"data\":{\"names\":[{\"firstname\":\"A\",\"immutableNode\":true,\"lastname\":\"AFoo\"},{\"firstname\":\"B\",\"immutableNode\":true,\"lastname\":\"BFoo\"}],\"immutableNode\":true}}"));
+            is("{\"type\":\"de.davherrmann.immutable.ImmutableTypeAdapterFactoryTest$POJO\",\"data\":{\"immutableNode\":true,\"names\":[{\"firstname\":\"A\",\"immutableNode\":true,\"lastname\":\"AFoo\"},{\"firstname\":\"B\",\"immutableNode\":true,\"lastname\":\"BFoo\"}]}}"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void read_usesGetterTypes() throws Exception
+    {
+        // given
+        final String json = "{\"type\":\"de.davherrmann.immutable.ImmutableTypeAdapterFactoryTest$POJO\",\"data\":{"
+            + "\"currentPage\":2,\"wantToClose\":true,\"name\":{\"firstname\":\"Foo\"},"
+            + "\"names\":[{\"firstname\":\"A\"},{\"firstname\":\"B\"}],\"myMap\":{\"key\":\"value\"}}}";
+
+        // when
+        final Immutable<POJO> readImmutable = gson.fromJson(json, Immutable.class);
+
+        // then
+        final Map<String, Object> values = readImmutable.values();
+        assertThat(values.get("currentPage"), is((Object) 2));
+        assertThat(values.get("wantToClose"), is((Object) true));
+        assertThat(((Map<String, Object>) values.get("name")).get("immutableNode"), is((Object) true));
+        assertThat(((List<Map<String, Object>>) values.get("names")).get(1).get("immutableNode"), is((Object) true));
+        assertThat(readImmutable.asObject().myMap().get("key"), is("value"));
+        assertThat(readImmutable.asObject().name().firstname(), is("Foo"));
+        assertThat(readImmutable.asObject().currentPage(), is(2));
+    }
+
+    @Test
+    public void read_roundTripsValues() throws Exception
+    {
+        // given
+        final Immutable<POJO> newImmutable = immutable //
+            .in(path::currentPage).set(3) //
+            .in(path::wantToClose).set(true) //
+            .in(path.pojo()::title).set("Foo") //
+            .in(path::name).set(name("Foo", "Bar"));
+
+        // when / then
+        assertThat(gson.fromJson(gson.toJson(newImmutable), Immutable.class), is(newImmutable));
+    }
+
+    @Test
+    public void read_immutableNode_returnsAccessor() throws Exception
+    {
+        // given
+        final POJO.Name name = name("Foo", "Bar").asObject();
+
+        // when
+        final POJO.Name readName = gson.fromJson(gson.toJson(name), name.getClass());
+
+        // then
+        assertThat(readName.firstname(), is("Foo"));
+        assertThat(readName.lastname(), is("Bar"));
+        assertThat(((Immutable.ImmutableNode) readName).values(), is(((Immutable.ImmutableNode) name).values()));
     }
 
     private Immutable<POJO.Name> name(String firstname, String lastname)
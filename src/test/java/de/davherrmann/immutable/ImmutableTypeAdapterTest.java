@@ -1,5 +1,6 @@
 package de.davherrmann.immutable;
 
+import static org.hamcrest.CoreMatchers.instanceOf;
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertThat;
 
@@ -33,10 +34,30 @@ public class ImmutableTypeAdapterTest
         assertThat(((Immutable<POJO>) new Gson().fromJson(json, Immutable.class)).asObject().pojo().name(), is("Foo"));
     }
 
+    @Test
+    @SuppressWarnings("unchecked")
+    public void fromJson_readsDataBeforeTypeWithTypes() throws Exception
+    {
+        // given
+        final String json = "{\"data\":{\"count\":1,\"pojo\":{\"count\":2}},"
+            + "\"type\":\"de.davherrmann.immutable.ImmutableTypeAdapterTest$POJO\"}";
+
+        // when
+        final Immutable<POJO> newImmutable = new Gson().fromJson(json, Immutable.class);
+
+        // then
+        assertThat(newImmutable.get(Path.of("count")), is((Object) 1L));
+        assertThat(newImmutable.get(Path.of("pojo", "count")), is((Object) 2L));
+        assertThat(newImmutable.values(), is(instanceOf(SlotNode.class)));
+        assertThat(newImmutable.get(Path.of("pojo")), is(instanceOf(SlotNode.class)));
+    }
+
     private interface POJO
     {
         POJO pojo();
 
         String name();
+
+        long count();
     }
 }
\ No newline at end of file
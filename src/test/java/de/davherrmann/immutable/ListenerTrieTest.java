@@ -0,0 +1,52 @@
+package de.davherrmann.immutable;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class ListenerTrieTest
+{
+    private final ListenerTrie<String> listeners = new ListenerTrie<>();
+
+    @Test
+    public void affectedBy_visitsOnlyChangedSiblings() throws Exception
+    {
+        // given
+        HashTrieMap oldValues = HashTrieMap.empty();
+        for (int i = 0; i < 1000; i++)
+        {
+            listeners.add(Path.of("key" + i), "key" + i);
+            oldValues = oldValues.with("key" + i, i);
+        }
+        final HashTrieMap newValues = oldValues.with("key42", -1);
+
+        // when
+        final AtomicInteger visitedNodes = new AtomicInteger();
+        final List<String> affected = listeners.affectedBy(oldValues, newValues, visitedNodes::incrementAndGet);
+
+        // then
+        assertThat(affected, is(newArrayList("key42")));
+        assertThat(visitedNodes.get(), is(2));
+    }
+
+    @Test
+    public void affectedBy_visitsAllChildrenOfReplacedLeaf() throws Exception
+    {
+        // given
+        listeners.add(Path.of("pojo", "title"), "title");
+        listeners.add(Path.of("pojo", "name"), "name");
+        final HashTrieMap oldValues = HashTrieMap.empty().with("pojo", HashTrieMap.empty().with("title", "Foo"));
+        final HashTrieMap newValues = HashTrieMap.empty().with("pojo", "Bar");
+
+        // when
+        final List<String> affected = listeners.affectedBy(oldValues, newValues);
+
+        // then
+        assertThat(affected, is(newArrayList("title")));
+    }
+}
@@ -2,14 +2,25 @@ package de.davherrmann.immutable;
 
 import static com.google.common.collect.Lists.newArrayList;
 import static com.google.common.collect.Maps.newHashMap;
+import static com.google.common.collect.Sets.newHashSet;
 import static de.davherrmann.immutable.NextImmutable.IMMUTABLE_NODE_ENTRY;
 import static java.util.Optional.empty;
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toMap;
 import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertThat;
 
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.StreamSupport;
 
 import org.junit.Test;
 
@@ -130,6 +141,90 @@ public class NextImmutableTest
         assertThat(nextImmutable.getInPath(newImmutableDataStructure, newArrayList("C", "D")), is("DBar"));
     }
 
+    @Test
+    public void setIn_sharesUntouchedNestedData() throws Exception
+    {
+        // given
+        final Map<String, Object> dataStructure = nextImmutable.setIn(immutableDataStructure, newArrayList("A"),
+            "ABar");
+
+        // when
+        final Map<String, Object> newImmutableDataStructure = nextImmutable.setIn(dataStructure,
+            newArrayList("A"), "ABaz");
+
+        // then
+        assertThat(newImmutableDataStructure.get("C"), is(sameInstance(dataStructure.get("C"))));
+    }
+
+    @Test
+    public void setIn_returnsSameDataStructure_forEqualValue() throws Exception
+    {
+        // given
+        final Map<String, Object> dataStructure = nextImmutable.setIn(immutableDataStructure, Path.of("C", "D"),
+            "DBar");
+
+        // when
+        final Map<String, Object> newDataStructure = nextImmutable.setIn(dataStructure, Path.of("C", "D"),
+            new String("DBar"));
+
+        // then
+        assertThat(newDataStructure, is(sameInstance(dataStructure)));
+    }
+
+    @Test
+    public void merge_returnsSameDataStructure_forEqualChanges() throws Exception
+    {
+        // given
+        final Map<String, Object> dataStructure = nextImmutable.merge(immutableDataStructure, change("G", "GFoo"));
+
+        // when
+        final Map<String, Object> newDataStructure = nextImmutable.merge(dataStructure, immutableDataStructure);
+
+        // then
+        assertThat(newDataStructure, is(sameInstance(dataStructure)));
+    }
+
+    @Test
+    public void setIn_createsMissingNestedNodes() throws Exception
+    {
+        // given / when
+        final Map<String, Object> newImmutableDataStructure = nextImmutable.setIn(immutableDataStructure,
+            newArrayList("S", "T", "U"), "UBar");
+
+        // then
+        assertThat(nextImmutable.getInPath(newImmutableDataStructure, newArrayList("S", "T", "U")), is("UBar"));
+        assertThat(nextImmutable.getInPath(newImmutableDataStructure, newArrayList("S", "immutableNode")), is(true));
+    }
+
+    @Test
+    public void setIn_marksRootLikeMerge() throws Exception
+    {
+        // given
+        final Map<String, Object> unmarkedRoot = ImmutableMap.of("A", "AFoo");
+
+        // when
+        final Map<String, Object> setInRoot = nextImmutable.setIn(unmarkedRoot, newArrayList("B"), "BFoo");
+        final Map<String, Object> setIntInRoot = nextImmutable.setIntIn(unmarkedRoot, newArrayList("B"), 1);
+        final Map<String, Object> mergedRoot = nextImmutable.merge(unmarkedRoot, change("B", "BFoo"));
+
+        // then
+        assertThat(nextImmutable.isDataStructure(setInRoot), is(true));
+        assertThat(nextImmutable.isDataStructure(setIntInRoot), is(true));
+        assertThat(setInRoot, is(mergedRoot));
+    }
+
+    @Test
+    public void setIn_mergesNestedDataStructures() throws Exception
+    {
+        // given / when
+        final Map<String, Object> newImmutableDataStructure = nextImmutable.setIn(immutableDataStructure,
+            newArrayList("C"), change("D", "DBar"));
+
+        // then
+        assertThat(nextImmutable.getInPath(newImmutableDataStructure, newArrayList("C", "D")), is("DBar"));
+        assertThat(nextImmutable.getInPath(newImmutableDataStructure, newArrayList("C", "E")), is("EFoo"));
+    }
+
     @Test
     public void updateIn_worksAsSimpleMerge() throws Exception
     {
@@ -231,6 +326,123 @@ public class NextImmutableTest
                 .build()));
     }
 
+    @Test
+    public void patch_isInverseOfDiff() throws Exception
+    {
+        // given
+        final Map<String, Object> dataStructure = nextImmutable.setIn(immutableDataStructure, Path.of("S", "T"),
+            "TFoo");
+        final Map<String, Object> newDataStructure = ((PersistentNode) nextImmutable.setIn( //
+            nextImmutable.setIn(dataStructure, Path.of("C", "D"), "DBar"), //
+            Path.of("U", "V"), "VBar")).without("S").without("A");
+
+        // when
+        final Map<String, Object> patchedDataStructure = nextImmutable.patch(dataStructure,
+            nextImmutable.diff(dataStructure, newDataStructure));
+
+        // then
+        assertThat(patchedDataStructure, is(newDataStructure));
+        assertThat(patchedDataStructure.containsKey("S"), is(false));
+    }
+
+    @Test
+    public void patch_keepsPresentOptionals_andOnlyRemovesForEmptyOptional() throws Exception
+    {
+        // given
+        final Map<String, Object> patch = ImmutableMap.<String, Object>of("A", Optional.of("ABar"), "B", empty());
+
+        // when
+        final Map<String, Object> patched = nextImmutable.patch(immutableDataStructure, patch);
+
+        // then
+        assertThat(patched.get("A"), is((Object) Optional.of("ABar")));
+        assertThat(patched.containsKey("B"), is(false));
+    }
+
+    @Test
+    public void patch_sharesUntouchedNestedData() throws Exception
+    {
+        // given
+        final Map<String, Object> dataStructure = nextImmutable.setIn(immutableDataStructure, Path.of("S", "T"),
+            "TFoo");
+        final Map<String, Object> newDataStructure = nextImmutable.setIn(dataStructure, Path.of("C", "D"), "DBar");
+
+        // when
+        final Map<String, Object> patchedDataStructure = nextImmutable.patch(dataStructure,
+            nextImmutable.diff(dataStructure, newDataStructure));
+
+        // then
+        assertThat(patchedDataStructure.get("S"), is(sameInstance(dataStructure.get("S"))));
+        assertThat(nextImmutable.getInPath(patchedDataStructure, Path.of("C", "E")), is("EFoo"));
+    }
+
+    @Test
+    public void changes_returnsChangedLeafs() throws Exception
+    {
+        // given
+        final Map<String, Object> dataStructure = nextImmutable.merge(immutableDataStructure, change("G", "GFoo"));
+        final Map<String, Object> newDataStructure = nextImmutable.setIn( //
+            nextImmutable.setIn( //
+                nextImmutable.setIn(dataStructure, Path.of("C", "D"), "DBar"), //
+                Path.of("H"), "HFoo"), //
+            Path.of("A"), "AFoo");
+        final Map<String, Object> newDataStructureWithoutG = ((PersistentNode) newDataStructure).without("G");
+
+        // when
+        final List<Change> changes = nextImmutable.changes(dataStructure, newDataStructureWithoutG) //
+            .collect(toList());
+
+        // then
+        assertThat(changes, containsInAnyOrder( //
+            new Change(Path.of("C", "D"), "DFoo", "DBar"), //
+            new Change(Path.of("H"), null, "HFoo"), //
+            new Change(Path.of("G"), "GFoo", null)));
+    }
+
+    @Test
+    public void changes_skipsSharedNodes() throws Exception
+    {
+        // given
+        Map<String, Object> dataStructure = nextImmutable.merge(immutableDataStructure, change("G", "GFoo"));
+        for (int i = 0; i < 1000; i++)
+        {
+            dataStructure = nextImmutable.setIn(dataStructure, Path.of("large", "key" + i), new FailingEquals());
+        }
+        final Map<String, Object> newDataStructure = nextImmutable.setIn(dataStructure, Path.of("C", "D"), "DBar");
+
+        // when
+        final List<Change> changes = nextImmutable.changes(dataStructure, newDataStructure).collect(toList());
+
+        // then
+        assertThat(changes, is(newArrayList(new Change(Path.of("C", "D"), "DFoo", "DBar"))));
+    }
+
+    @Test
+    public void changes_isLazy() throws Exception
+    {
+        // given
+        Map<String, Object> dataStructure = nextImmutable.merge(immutableDataStructure, change("G", "GFoo"));
+        Map<String, Object> newDataStructure = dataStructure;
+        for (int i = 0; i < 100; i++)
+        {
+            newDataStructure = nextImmutable.setIn(newDataStructure, Path.of("key" + i), i);
+        }
+
+        // when
+        final Change change = nextImmutable.changes(dataStructure, newDataStructure).findFirst().get();
+
+        // then
+        assertThat(change.oldValue(), is(nullValue()));
+    }
+
+    @Test
+    public void changes_isEmpty_forEqualDataStructures() throws Exception
+    {
+        // when / then
+        assertThat(nextImmutable.changes(immutableDataStructure, nextImmutable.node(immutableDataStructure)).count(),
+            is(0L));
+    }
+
     @Test
     public void visit_visitsAllNodes() throws Exception
     {
@@ -254,6 +466,169 @@ public class NextImmutableTest
             .put("F", newHashMap()).build()));
     }
 
+    @Test
+    public void parallelMerge_isEqualToMerge() throws Exception
+    {
+        // given
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        final Map<String, Object> dataStructure = nextImmutable.node(tree(3, 6, "Foo"));
+        final Map<String, Object> changes = nextImmutable.merge(tree(3, 4, "Bar"), change("new", tree(2, 3, "Baz")));
+
+        // when
+        final Map<String, Object> mergedDataStructure = nextImmutable.parallelMerge(dataStructure, changes, pool, 4);
+
+        // then
+        assertThat(mergedDataStructure, is(nextImmutable.merge(dataStructure, changes)));
+        assertThat(nextImmutable.parallelMerge(dataStructure, dataStructure, pool, 4), is(sameInstance(dataStructure)));
+    }
+
+    @Test
+    public void parallelDiff_isEqualToDiff() throws Exception
+    {
+        // given
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        final Map<String, Object> dataStructure0 = nextImmutable.node(tree(3, 6, "Foo"));
+        final Map<String, Object> dataStructure1 = nextImmutable.merge(
+            nextImmutable.merge(dataStructure0, tree(3, 4, "Bar")), change("0", "Baz"));
+
+        // when
+        final Map<String, Object> diff = nextImmutable.parallelDiff(dataStructure0, dataStructure1, pool, 4);
+
+        // then
+        assertThat(diff, is(nextImmutable.diff(dataStructure0, dataStructure1)));
+        assertThat(nextImmutable.parallelDiff(dataStructure1, dataStructure0, pool, 4),
+            is(nextImmutable.diff(dataStructure1, dataStructure0)));
+    }
+
+    @Test
+    public void parallelDiff_leavesOutEqualUnsharedNodes() throws Exception
+    {
+        // given
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        final Map<String, Object> dataStructure0 = nextImmutable.node(tree(3, 6, "Foo"));
+        final Map<String, Object> dataStructure1 = nextImmutable.merge(nextImmutable.node(tree(3, 6, "Foo")),
+            change("0", "Baz"));
+
+        // when
+        final Map<String, Object> diff = nextImmutable.parallelDiff(dataStructure0, dataStructure1, pool, 4);
+
+        // then
+        assertThat(diff, is(nextImmutable.diff(dataStructure0, dataStructure1)));
+        assertThat(nextImmutable.parallelDiff(dataStructure0, nextImmutable.node(tree(3, 6, "Foo")), pool, 4),
+            is(NextImmutable.IMMUTABLE_NODE));
+    }
+
+    @Test
+    public void parallelDiff_isEqualToDiff_forArrayLeaves_belowAndAboveThreshold() throws Exception
+    {
+        // given
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        final Map<String, Object> dataStructure0 = nextImmutable.merge(nextImmutable.node(tree(2, 4, "Foo")),
+            change("x", change("arr", new int[]{1, 2})));
+        final Map<String, Object> dataStructure1 = nextImmutable.merge(
+            nextImmutable.merge(nextImmutable.node(tree(2, 4, "Foo")), change("x", change("arr", new int[]{1, 2}))),
+            change("y", "bar"));
+
+        // when
+        final Map<String, Object> diff = nextImmutable.diff(dataStructure0, dataStructure1);
+
+        // then
+        assertThat(diff, is(change("y", "bar")));
+        for (int threshold : new int[]{0, 4, 1000})
+        {
+            assertThat(nextImmutable.parallelDiff(dataStructure0, dataStructure1, pool, threshold), is(diff));
+            assertThat(nextImmutable.parallelDiff(dataStructure1, dataStructure0, pool, threshold),
+                is(nextImmutable.diff(dataStructure1, dataStructure0)));
+        }
+    }
+
+    @Test
+    public void leaves_streamsLeafsWithLazyPaths() throws Exception
+    {
+        // when
+        final Map<String, Object> leaves = nextImmutable.leaves(immutableDataStructure) //
+            .collect(toMap(NodeEntry::pathString, NodeEntry::value));
+
+        // then
+        assertThat(leaves, equalTo(ImmutableMap.<String, Object>builder() //
+            .put("A", "AFoo") //
+            .put("B", "BFoo") //
+            .put("C.D", "DFoo") //
+            .put("C.E", "EFoo") //
+            .put("F", newHashMap()).build()));
+    }
+
+    @Test
+    public void nodes_exposesPathSegments() throws Exception
+    {
+        // when
+        final NodeEntry entry = nextImmutable.nodes(immutableDataStructure) //
+            .filter(node -> node.key().equals("E")) //
+            .findFirst() //
+            .get();
+
+        // then
+        assertThat(entry.segments(), is(newArrayList("C", "E")));
+        assertThat(entry.path(), is(sameInstance(Path.of("C", "E"))));
+        assertThat(entry.depth(), is(2));
+        assertThat(entry.isLeaf(), is(true));
+        assertThat(nextImmutable.nodes(immutableDataStructure).filter(node -> !node.isLeaf()).count(), is(1L));
+    }
+
+    @Test
+    public void nodes_parallel_visitsEveryNodeOnce() throws Exception
+    {
+        // given
+        final Map<String, Object> dataStructure = nextImmutable.node(tree(3, 6, "Foo"));
+
+        // when
+        final List<String> paths = nextImmutable.nodes(dataStructure) //
+            .parallel() //
+            .map(NodeEntry::pathString) //
+            .collect(toList());
+
+        // then
+        assertThat(paths.size(), is(6 + 6 * 6 + 6 * 6 * 6 + 6 * 6 * 6 * 6));
+        assertThat(newHashSet(paths).size(), is(paths.size()));
+        assertThat(nextImmutable.leaves(dataStructure).parallel().filter(leaf -> leaf.value().equals("Foo5")).count(),
+            is(6L * 6 * 6));
+
+        final NodeSpliterator spliterator = new NodeSpliterator(nextImmutable, dataStructure, true);
+        spliterator.tryAdvance(leaf -> {
+        });
+        final Spliterator<NodeEntry> split = spliterator.trySplit();
+        assertThat(StreamSupport.stream(split, false).count() + StreamSupport.stream(spliterator, false).count(),
+            is(6L * 6 * 6 * 6 - 1));
+    }
+
+    private static class FailingEquals
+    {
+        @Override
+        public boolean equals(Object o)
+        {
+            throw new AssertionError("shared values must not be compared");
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return 0;
+        }
+    }
+
+    private Map<String, Object> tree(int depth, int width, String value)
+    {
+        final ImmutableMap.Builder<String, Object> builder = ImmutableMap.<String, Object>builder() //
+            .put(IMMUTABLE_NODE_ENTRY);
+        for (int i = 0; i < width; i++)
+        {
+            builder.put(String.valueOf(i), depth == 0
+                ? value + i
+                : tree(depth - 1, width, value));
+        }
+        return builder.build();
+    }
+
     // TODO do we need this method in NextImmutable?
     private Map<String, Object> change(String key, Object value)
     {
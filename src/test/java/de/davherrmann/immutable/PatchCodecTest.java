@@ -0,0 +1,111 @@
+package de.davherrmann.immutable;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+public class PatchCodecTest
+{
+    @Rule
+    public final ExpectedException thrown = ExpectedException.none();
+
+    private final Immutable<POJO> immutable = new Immutable<>(POJO.class);
+    private final POJO path = immutable.path();
+
+    private final Immutable<POJO> oldImmutable = immutable //
+        .in(path::title).set("Foo") //
+        .in(path.pojo()::title).set("Bar");
+    private final Immutable<POJO> newImmutable = oldImmutable //
+        .in(path.pojo()::title).set("Baz") //
+        .in(path.pojo()::currentPage).set(2) //
+        .in(path::titleArray).set(new String[]{"Foo", "Bar"}) //
+        .inList(path::titles).set(newArrayList("Foo")) //
+        .in(path::kind).set(Kind.BAR) //
+        .in(path::numbers).set(ImmutableIntArray.of(1, 2));
+
+    @Test
+    public void fromBytes_returnsPatchWithExactValues() throws Exception
+    {
+        // when
+        final Immutable<POJO> patch = PatchCodec.fromBytes(PatchCodec.toBytes(oldImmutable.diff(newImmutable)),
+            POJO.class);
+
+        // then
+        assertThat(oldImmutable.patch(patch).changes(newImmutable).count(), is(0L));
+        assertThat(oldImmutable.patch(patch).asObject().pojo().currentPage(), is(2));
+        assertThat(oldImmutable.patch(patch).asObject().kind(), is(Kind.BAR));
+        assertThat(oldImmutable.patch(patch).asObject().numbers(), is(ImmutableIntArray.of(1, 2)));
+    }
+
+    @Test
+    public void fromBytes_keepsRemovals() throws Exception
+    {
+        // given
+        final Immutable<POJO> patch = newImmutable.diff(immutable.in(path::currentPage).set(1));
+
+        // when
+        final Immutable<POJO> patchedImmutable = newImmutable.patch(
+            PatchCodec.fromBytes(PatchCodec.toBytes(patch), POJO.class));
+
+        // then
+        assertThat(patchedImmutable.asObject().title(), is(nullValue()));
+        assertThat(patchedImmutable.asObject().pojo(), is(nullValue()));
+        assertThat(patchedImmutable.asObject().currentPage(), is(1));
+    }
+
+    @Test
+    public void toJson_writesRemovalsAsNull() throws Exception
+    {
+        // given
+        final Immutable<POJO> patch = oldImmutable.diff(immutable.in(path.pojo()::title).set("Baz"));
+
+        // when
+        final String json = PatchCodec.toJson(patch);
+
+        // then
+        assertThat(json, containsString("\"title\":null"));
+        assertThat(oldImmutable.patch(PatchCodec.fromJson(json, POJO.class)),
+            is(immutable.in(path.pojo()::title).set("Baz")));
+    }
+
+    @Test
+    public void fromBytes_throwsMeaningfulError_forUnknownFormat() throws Exception
+    {
+        // then
+        thrown.expect(IllegalArgumentException.class);
+        thrown.expectMessage("Unknown patch format version 42.");
+
+        // when
+        PatchCodec.fromBytes(new byte[]{42}, POJO.class);
+    }
+
+    private enum Kind
+    {
+        FOO, BAR
+    }
+
+    private interface POJO
+    {
+        String title();
+
+        List<String> titles();
+
+        String[] titleArray();
+
+        int currentPage();
+
+        Kind kind();
+
+        ImmutableIntArray numbers();
+
+        POJO pojo();
+    }
+}
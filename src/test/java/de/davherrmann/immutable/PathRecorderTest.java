@@ -3,12 +3,17 @@ package de.davherrmann.immutable;
 import static com.google.common.collect.Lists.newArrayList;
 import static de.davherrmann.immutable.PathRecorder.pathInstanceFor;
 import static de.davherrmann.immutable.PathRecorder.pathRecorderInstanceFor;
-import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.fail;
 
 import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
 
 import org.junit.Ignore;
 import org.junit.Rule;
@@ -20,6 +25,9 @@ public class PathRecorderTest
     @Rule
     public ExpectedException thrown = ExpectedException.none();
 
+    private static final POJO STATIC_PATH = pathRecorderInstanceFor(POJO.class).path();
+    private static volatile boolean flag;
+
     private final PathRecorder<POJO> pathRecorder = pathRecorderInstanceFor(POJO.class);
     private final POJO path = pathRecorder.path();
 
@@ -80,7 +88,7 @@ public class PathRecorderTest
     }
 
     @Test
-    public void pathInstanceFor_isDifferentInDifferentThreads() throws Exception
+    public void pathInstanceFor_isTheSameInstanceInDifferentThreads() throws Exception
     {
         // given
         final POJO path0 = pathInstanceFor(POJO.class);
@@ -91,7 +99,7 @@ public class PathRecorderTest
         thread.join();
 
         // then
-        assertThat(path0, is(not(path1)));
+        assertThat(path0, is(sameInstance(path1[0])));
     }
 
     @Test
@@ -106,7 +114,7 @@ public class PathRecorderTest
     }
 
     @Test
-    public void pathRecorderInstanceFor_isDifferentInDifferentThreads() throws Exception
+    public void pathRecorderInstanceFor_isTheSameInstanceInDifferentThreads() throws Exception
     {
         // given
         final PathRecorder<POJO> pathRecorder0 = pathRecorderInstanceFor(POJO.class);
@@ -118,7 +126,7 @@ public class PathRecorderTest
         thread.join();
 
         // then
-        assertThat(pathRecorder0, is(not(pathRecorder1)));
+        assertThat(pathRecorder0, is(sameInstance(pathRecorder1[0])));
     }
 
     @Test
@@ -144,6 +152,102 @@ public class PathRecorderTest
         assertThat(pathRecorder.pathFor(path[0].pojo()::integer), is(newArrayList("pojo", "integer")));
     }
 
+    @Test
+    public void pathFor_replaysLambdas_readingUncapturedState() throws Exception
+    {
+        // given
+        final Supplier<Integer> method = () -> flag
+            ? STATIC_PATH.integer()
+            : STATIC_PATH.pojo().integer();
+
+        // when
+        flag = true;
+        final Path path0 = pathRecorder.pathFor(method);
+        flag = false;
+        final Path path1 = pathRecorder.pathFor(method);
+
+        // then
+        assertThat(path0, is(newArrayList("integer")));
+        assertThat(path1, is(newArrayList("pojo", "integer")));
+    }
+
+    @Test
+    public void pathFor_distinguishesCapturedPaths() throws Exception
+    {
+        // when / then
+        assertThat(pathRecorder.pathFor(integerOf(path)), is(newArrayList("integer")));
+        assertThat(pathRecorder.pathFor(integerOf(path.pojo())), is(newArrayList("pojo", "integer")));
+        assertThat(pathRecorder.pathFor(integerOf(path.pojo().pojo())), is(newArrayList("pojo", "pojo", "integer")));
+        assertThat(pathRecorder.pathFor(integerOf(path.pojo())), is(newArrayList("pojo", "integer")));
+    }
+
+    @Test
+    public void pathInfoFor_returnsDefaultValue() throws Exception
+    {
+        // when
+        final PathRecorder.PathInfo pathInfo = pathRecorder.pathInfoFor(path.pojo()::integer);
+
+        // then
+        assertThat(pathInfo.defaultValue(), is(0));
+        assertThat(pathRecorder.pathInfoFor(path.pojo()::integer).defaultValue(), is(0));
+    }
+
+    @Test
+    public void pathFor_returnsPaths_inManyThreads() throws Exception
+    {
+        // given
+        final ExecutorService executor = manyThreadsExecutor();
+        final List<Future<Boolean>> results = newArrayList();
+
+        // when
+        for (int i = 0; i < 10_000; i++)
+        {
+            final int depth = i % 3;
+            results.add(executor.submit(() -> {
+                final PathRecorder<POJO> pathRecorder = pathRecorderInstanceFor(POJO.class);
+                final POJO path = pathRecorder.path();
+                final POJO nestedPath = depth == 0
+                    ? path
+                    : depth == 1
+                        ? path.pojo()
+                        : path.pojo().pojo();
+                final int unrecordedCalls = depth == 0
+                    ? nestedPath.integer()
+                    : nestedPath.pojo().integer();
+
+                return unrecordedCalls == 0 //
+                    && pathRecorder.pathFor(nestedPath::integer).size() == depth + 1 //
+                    && pathRecorder.pathFor(nestedPath.pojo()::integer).size() == depth + 2 //
+                    && pathRecorder.methodFor(nestedPath::integer).getName().equals("integer");
+            }));
+        }
+
+        // then
+        for (Future<Boolean> result : results)
+        {
+            assertThat(result.get(), is(true));
+        }
+        executor.shutdown();
+    }
+
+    // virtual threads if the running JVM has them, this project still targets Java 8
+    private static ExecutorService manyThreadsExecutor()
+    {
+        try
+        {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        }
+        catch (ReflectiveOperationException e)
+        {
+            return Executors.newFixedThreadPool(64);
+        }
+    }
+
+    private static Supplier<Integer> integerOf(POJO path)
+    {
+        return path::integer;
+    }
+
     private interface POJO
     {
         POJO pojo();
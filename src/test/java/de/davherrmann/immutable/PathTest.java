@@ -0,0 +1,103 @@
+package de.davherrmann.immutable;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+import java.lang.ref.WeakReference;
+
+import org.junit.Test;
+
+public class PathTest
+{
+    @Test
+    public void of_returnsSameInstance_forSameSegments() throws Exception
+    {
+        // when / then
+        assertThat(Path.of("pojo", "title"), is(sameInstance(Path.of(newArrayList("pojo", "title")))));
+        assertThat(Path.of("pojo").child("title"), is(sameInstance(Path.of("pojo", "title"))));
+    }
+
+    @Test
+    public void equals_worksWithOtherLists() throws Exception
+    {
+        // when / then
+        assertThat(Path.of("pojo", "title"), is(newArrayList("pojo", "title")));
+        assertThat(newArrayList("pojo", "title"), is(Path.of("pojo", "title")));
+        assertThat(Path.of("pojo", "title"), is(not(Path.of("pojo"))));
+    }
+
+    @Test
+    public void hashCode_isListHashCode() throws Exception
+    {
+        // when / then
+        assertThat(Path.of("pojo", "title").hashCode(), is(newArrayList("pojo", "title").hashCode()));
+        assertThat(Path.root().hashCode(), is(newArrayList().hashCode()));
+    }
+
+    @Test
+    public void parent_returnsPathWithoutLastSegment() throws Exception
+    {
+        // when / then
+        assertThat(Path.of("pojo", "title").parent(), is(sameInstance(Path.of("pojo"))));
+        assertThat(Path.of("pojo", "title").lastSegment(), is("title"));
+    }
+
+    @Test
+    public void startsWith_checksAncestors() throws Exception
+    {
+        // when / then
+        assertThat(Path.of("pojo", "title").startsWith(Path.of("pojo")), is(true));
+        assertThat(Path.of("pojo", "title").startsWith(Path.root()), is(true));
+        assertThat(Path.of("pojo").startsWith(Path.of("pojo", "title")), is(false));
+        assertThat(Path.of("name", "title").startsWith(Path.of("pojo")), is(false));
+    }
+
+    @Test
+    public void child_isCollected_whenNoLongerReferenced() throws Exception
+    {
+        // given
+        final WeakReference<Path> child = new WeakReference<>(Path.of("collected").child("id-" + System.nanoTime()));
+
+        // when
+        for (int i = 0; i < 10 && child.get() != null; i++)
+        {
+            System.gc();
+            Thread.sleep(10);
+        }
+
+        // then
+        assertThat(child.get(), is(nullValue()));
+    }
+
+    @Test
+    public void compiledFor_keepsCompiledPathPerSchema() throws Exception
+    {
+        // given
+        final Path path = Path.of("name");
+        final Schema schema = Schema.of(POJO.class);
+        final Schema otherSchema = Schema.of(OtherPOJO.class);
+        final CompiledPath compiledPath = path.compiledFor(schema);
+        final CompiledPath otherCompiledPath = path.compiledFor(otherSchema);
+
+        // when / then
+        assertThat(path.compiledFor(schema), is(sameInstance(compiledPath)));
+        assertThat(path.compiledFor(otherSchema), is(sameInstance(otherCompiledPath)));
+        assertThat(compiledPath.schema(), is(sameInstance(schema)));
+    }
+
+    private interface POJO
+    {
+        String name();
+    }
+
+    private interface OtherPOJO
+    {
+        String title();
+
+        String name();
+    }
+}
@@ -0,0 +1,137 @@
+package de.davherrmann.immutable;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class PathVisitorTest
+{
+    private final Immutable<POJO> immutable = Immutable.withSchema(POJO.class) //
+        .in(path()::title).set("Foo") //
+        .in(path().pojo()::title).set("Bar") //
+        .in(path().pojo().pojo()::count).setInt(42);
+    private final POJO path = immutable.path();
+    private final List<String> visited = newArrayList();
+
+    @Test
+    public void visit_passesPathOfEveryNodeAndLeaf() throws Exception
+    {
+        // when
+        immutable.visit(new PathVisitor()
+        {
+            @Override
+            public boolean enterNode(PathBuffer path, Map<String, Object> node)
+            {
+                visited.add("enter " + path);
+                return true;
+            }
+
+            @Override
+            public void leaveNode(PathBuffer path, Map<String, Object> node)
+            {
+                visited.add("leave " + path);
+            }
+
+            @Override
+            public void visitLeaf(PathBuffer path, Object value)
+            {
+                visited.add(path + "=" + value);
+            }
+        });
+
+        // then
+        assertThat(visited, is(newArrayList( //
+            "enter pojo", //
+            "enter pojo.pojo", //
+            "pojo.pojo.count=42", //
+            "leave pojo.pojo", //
+            "pojo.title=Bar", //
+            "leave pojo", //
+            "title=Foo")));
+    }
+
+    @Test
+    public void enterNode_returningFalse_skipsEntries() throws Exception
+    {
+        // when
+        immutable.visit(new PathVisitor()
+        {
+            @Override
+            public boolean enterNode(PathBuffer path, Map<String, Object> node)
+            {
+                return path.depth() < 2;
+            }
+
+            @Override
+            public void visitLeaf(PathBuffer path, Object value)
+            {
+                visited.add(path.toString());
+            }
+        });
+
+        // then
+        assertThat(visited, containsInAnyOrder("title", "pojo.title"));
+    }
+
+    @Test
+    public void pathBuffer_convertsToPath() throws Exception
+    {
+        // given
+        final List<Path> paths = newArrayList();
+
+        // when
+        immutable.visit((path, value) -> paths.add(path.toPath()));
+
+        // then
+        assertThat(paths, containsInAnyOrder(Path.of("title"), Path.of("pojo", "title"),
+            Path.of("pojo", "pojo", "count")));
+    }
+
+    @Test
+    public void visit_allocatesNothingPerNode() throws Exception
+    {
+        // given
+        Immutable<POJO> largeImmutable = new Immutable<>(POJO.class);
+        for (int i = 0; i < 1000; i++)
+        {
+            largeImmutable = largeImmutable.in(Path.of("pojo", "node" + i, "title"), "").set("Foo" + i);
+        }
+        final int[] leafs = new int[1];
+        final PathVisitor visitor = (path, value) -> leafs[0] += path.depth();
+        final com.sun.management.ThreadMXBean threadBean =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        final long threadId = Thread.currentThread().getId();
+        largeImmutable.visit(visitor);
+
+        // when
+        final long allocatedBefore = threadBean.getThreadAllocatedBytes(threadId);
+        largeImmutable.visit(visitor);
+        final long allocated = threadBean.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+        // then
+        assertThat(leafs[0], is(2 * 3 * 1000));
+        assertThat(allocated, is(lessThan(1000L)));
+    }
+
+    private static POJO path()
+    {
+        return new Immutable<>(POJO.class).path();
+    }
+
+    private interface POJO
+    {
+        String title();
+
+        int count();
+
+        POJO pojo();
+    }
+}
@@ -0,0 +1,127 @@
+package de.davherrmann.immutable;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.List;
+
+import org.junit.Test;
+
+public class PersistentVectorTest
+{
+    @Test
+    public void plus_appendsItems_acrossAllTrieLevels() throws Exception
+    {
+        // given
+        final List<Integer> expected = newArrayList();
+        PersistentVector<Integer> vector = PersistentVector.empty();
+
+        // when
+        for (int i = 0; i < 40000; i++)
+        {
+            expected.add(i);
+            vector = vector.plus(i);
+        }
+
+        // then
+        assertThat(vector.size(), is(40000));
+        assertThat(vector, is(expected));
+        assertThat(vector.get(33 * 32 * 32), is(33 * 32 * 32));
+    }
+
+    @Test
+    public void plus_doesNotChangeOriginalVector() throws Exception
+    {
+        // given
+        final PersistentVector<String> vector = PersistentVector.<String>empty().plus("foo");
+
+        // when
+        vector.plus("bar");
+
+        // then
+        assertThat(vector, is(newArrayList("foo")));
+    }
+
+    @Test
+    public void with_replacesItems_inTreeAndTail() throws Exception
+    {
+        // given
+        final PersistentVector<Integer> vector = PersistentVector.copyOf(numbers(1100));
+
+        // when
+        final PersistentVector<Integer> newVector = vector.with(5, -5).with(1099, -1099);
+
+        // then
+        assertThat(newVector.get(5), is(-5));
+        assertThat(newVector.get(1099), is(-1099));
+        assertThat(vector.get(5), is(5));
+        assertThat(vector.get(1099), is(1099));
+    }
+
+    @Test
+    public void plusAll_concatenatesVectors_onAndOffLeafBoundaries() throws Exception
+    {
+        for (int leftSize : new int[]{0, 1, 31, 32, 33, 1024, 1100})
+        {
+            for (int rightSize : new int[]{0, 1, 32, 70, 1100})
+            {
+                // given
+                final List<Integer> expected = numbers(leftSize);
+                expected.addAll(numbers(rightSize));
+                final PersistentVector<Integer> left = PersistentVector.copyOf(numbers(leftSize));
+                final PersistentVector<Integer> right = PersistentVector.copyOf(numbers(rightSize));
+
+                // when
+                final PersistentVector<Integer> concatenated = left.plusAll(right);
+
+                // then
+                assertThat(concatenated, is(expected));
+                assertThat(concatenated.plus(-1).get(leftSize + rightSize), is(-1));
+                assertThat(left, is(numbers(leftSize)));
+                assertThat(right, is(numbers(rightSize)));
+            }
+        }
+    }
+
+    @Test
+    public void slice_returnsCompactVectorOfRange() throws Exception
+    {
+        // given
+        final PersistentVector<Integer> vector = PersistentVector.copyOf(numbers(1100));
+
+        for (int[] range : new int[][]{{0, 1100}, {0, 5}, {32, 1056}, {7, 1099}, {1090, 1100}, {40, 40}})
+        {
+            // when
+            final PersistentVector<Integer> slice = vector.slice(range[0], range[1]);
+
+            // then
+            assertThat(slice, is(numbers(1100).subList(range[0], range[1])));
+            assertThat(slice.plus(-1).size(), is(range[1] - range[0] + 1));
+        }
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void get_throwsException_forIndexOutOfBounds() throws Exception
+    {
+        // when
+        PersistentVector.copyOf(numbers(32)).get(32);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void add_isNotSupported() throws Exception
+    {
+        // when
+        PersistentVector.empty().add("CANNOT ADD THIS TO AN IMMUTABLE LIST");
+    }
+
+    private List<Integer> numbers(int count)
+    {
+        final List<Integer> numbers = newArrayList();
+        for (int i = 0; i < count; i++)
+        {
+            numbers.add(i);
+        }
+        return numbers;
+    }
+}
@@ -0,0 +1,155 @@
+package de.davherrmann.immutable;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+public class SelectorTest
+{
+    @Rule
+    public final ExpectedException thrown = ExpectedException.none();
+
+    private final Immutable<POJO> immutable = new Immutable<POJO>(POJO.class) //
+        .inList(path()::titles).set(newArrayList("Foo", "Bar", "Baz")) //
+        .in(path().pojo()::title).set("Foo");
+    private final POJO path = immutable.path();
+    private final AtomicInteger computations = new AtomicInteger();
+
+    @Test
+    public void select_computesOnlyOnce_forSameSubtree() throws Exception
+    {
+        // given
+        final Selector<POJO, Integer> selector = immutable.selector(path::titles, this::count);
+
+        // when
+        final Integer count0 = immutable.select(selector);
+        final Integer count1 = immutable.in(path.pojo()::title).set("Bar").select(selector);
+
+        // then
+        assertThat(count0, is(3));
+        assertThat(count1, is(sameInstance(count0)));
+        assertThat(computations.get(), is(1));
+        assertThat(selector.hits(), is(1L));
+        assertThat(selector.misses(), is(1L));
+    }
+
+    @Test
+    public void select_recomputes_whenSubtreeChanges() throws Exception
+    {
+        // given
+        final Selector<POJO, Integer> selector = immutable.selector(path::titles, this::count);
+
+        // when
+        final Integer count = immutable.inList(path::titles).updateList(titles -> titles.subList(0, 1)).select(selector);
+
+        // then
+        assertThat(count, is(1));
+        assertThat(immutable.select(selector), is(3));
+        assertThat(computations.get(), is(2));
+        assertThat(selector.misses(), is(2L));
+    }
+
+    @Test
+    public void select_withTwoPaths_recomputesWhenOneChanges() throws Exception
+    {
+        // given
+        final Selector<POJO, String> selector = immutable.selector(path::titles, path.pojo()::title,
+            (titles, title) -> {
+                computations.incrementAndGet();
+                return title + titles.size();
+            });
+
+        // when
+        final String value0 = immutable.select(selector);
+        final String value1 = immutable.in(path::title).set("Baz").select(selector);
+        final String value2 = immutable.in(path.pojo()::title).set("Bar").select(selector);
+
+        // then
+        assertThat(value0, is("Foo3"));
+        assertThat(value1, is("Foo3"));
+        assertThat(value2, is("Bar3"));
+        assertThat(computations.get(), is(2));
+    }
+
+    @Test
+    public void select_comparesUnboxedValuesByValue() throws Exception
+    {
+        // given
+        final Immutable<POJO> immutableWithSchema = Immutable.withSchema(POJO.class).in(path::count).setInt(42);
+        final Selector<POJO, Integer> selector = Selector.of(Path.of("count"), (Integer count) -> {
+            computations.incrementAndGet();
+            return count * 2;
+        });
+
+        // when
+        immutableWithSchema.select(selector);
+        final Integer value = immutableWithSchema.select(selector);
+
+        // then
+        assertThat(value, is(84));
+        assertThat(computations.get(), is(1));
+    }
+
+    @Test
+    public void select_evictsLeastRecentlyUsedInputs() throws Exception
+    {
+        // given
+        final Selector<POJO, Integer> selector = immutable.selector(path::titles, this::count).withCacheSize(2);
+        final Immutable<POJO> immutable1 = immutable.inList(path::titles).set(newArrayList("Foo"));
+        final Immutable<POJO> immutable2 = immutable.inList(path::titles).set(newArrayList("Foo", "Bar"));
+
+        // when
+        immutable.select(selector);
+        immutable1.select(selector);
+        immutable.select(selector);
+        immutable2.select(selector);
+        immutable.select(selector);
+        immutable1.select(selector);
+
+        // then
+        assertThat(selector.size(), is(2));
+        assertThat(selector.hits(), is(2L));
+        assertThat(selector.misses(), is(4L));
+    }
+
+    @Test
+    public void withCacheSize_rejectsEmptyCache() throws Exception
+    {
+        // then
+        thrown.expect(IllegalArgumentException.class);
+        thrown.expectMessage("cache size must be positive: 0");
+
+        // when
+        Selector.of(Path.of("titles"), this::count).withCacheSize(0);
+    }
+
+    private int count(List<String> titles)
+    {
+        computations.incrementAndGet();
+        return titles.size();
+    }
+
+    private static POJO path()
+    {
+        return new Immutable<>(POJO.class).path();
+    }
+
+    private interface POJO
+    {
+        String title();
+
+        int count();
+
+        List<String> titles();
+
+        POJO pojo();
+    }
+}
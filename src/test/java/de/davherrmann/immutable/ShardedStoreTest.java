@@ -0,0 +1,223 @@
+package de.davherrmann.immutable;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+public class ShardedStoreTest
+{
+    private static final Path COUNT = Path.of("count");
+    private static final Path POJO_COUNT = Path.of("pojo", "count");
+
+    @Rule
+    public final ExpectedException thrown = ExpectedException.none();
+
+    private final Immutable<POJO> immutable = Immutable.withSchema(POJO.class);
+    private final POJO path = immutable.path();
+    private final ShardedStore<POJO> store = ShardedStore.byTopLevelProperty(immutable.in(path::title).set("Foo"));
+
+    @Test
+    public void state_reassemblesShards() throws Exception
+    {
+        // when
+        store.update(path::count, state -> state.in(path::count).setInt(42));
+        store.update(path::pojo, state -> state.in(path.pojo()::title).set("Bar"));
+
+        // then
+        assertThat(store.state(), is(immutable //
+            .in(path::title).set("Foo") //
+            .in(path::count).setInt(42) //
+            .in(path.pojo()::title).set("Bar")));
+        assertThat(store.state().values(), is(instanceOf(SlotNode.class)));
+    }
+
+    @Test
+    public void update_seesOnlyPropertiesOfShard() throws Exception
+    {
+        // when
+        final Immutable<POJO> shardState = store.update(path::count, state -> state.in(path::count).setInt(42));
+
+        // then
+        assertThat(shardState.getInt(Path.of("count")), is(42));
+        assertThat(shardState.get(path::title), is(nullValue()));
+    }
+
+    @Test
+    public void update_rejectsWritesToOtherShards() throws Exception
+    {
+        // then
+        thrown.expect(IllegalArgumentException.class);
+        thrown.expectMessage("title belongs to shard");
+
+        // when
+        store.update(path::count, state -> state.in(path::title).set("Bar"));
+    }
+
+    @Test
+    public void snapshot_isNotChangedByLaterUpdates() throws Exception
+    {
+        // given
+        final ShardedStore.Snapshot<POJO> snapshot = store.snapshot();
+
+        // when
+        store.update(path::title, state -> state.in(path::title).set("Bar"));
+
+        // then
+        assertThat(snapshot.get(path::title), is("Foo"));
+        assertThat(snapshot.immutable().get(path::title), is("Foo"));
+        assertThat(store.snapshot().get(path::title), is("Bar"));
+    }
+
+    @Test
+    public void partitionedBy_usesPartitionFunction() throws Exception
+    {
+        // given
+        final ShardedStore<POJO> store = ShardedStore.partitionedBy(immutable, 2, key -> key.equals("count")
+            ? 0
+            : 1);
+
+        // when
+        store.update(path::title, state -> state //
+            .in(path::title).set("Foo") //
+            .in(path.pojo()::count).setInt(1));
+
+        // then
+        assertThat(store.shardCount(), is(2));
+        assertThat(store.state().get(path.pojo()::count), is(1));
+    }
+
+    @Test
+    public void update_ofDifferentShards_fromManyThreads() throws Exception
+    {
+        // given
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        // when
+        try
+        {
+            final List<Callable<Void>> tasks = Stream.<Runnable>of( //
+                () -> store.update(COUNT, state -> state.in(COUNT, 0).setInt(state.getInt(COUNT) + 1)),
+                () -> store.update(COUNT, state -> state.in(COUNT, 0).setInt(state.getInt(COUNT) + 1)),
+                () -> store.update(POJO_COUNT, state -> state.in(POJO_COUNT, 0).setInt(state.getInt(POJO_COUNT) + 1)),
+                () -> store.snapshot().immutable()) //
+                .map(update -> (Callable<Void>) () -> {
+                    for (int i = 0; i < 1000; i++)
+                    {
+                        update.run();
+                    }
+                    return null;
+                }) //
+                .collect(Collectors.toList());
+
+            for (Future<Void> future : executor.invokeAll(tasks))
+            {
+                future.get();
+            }
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+
+        // then
+        assertThat(store.state().get(path::count), is(2000));
+        assertThat(store.state().get(path.pojo()::count), is(1000));
+    }
+
+    @Test(timeout = 60000)
+    public void snapshot_whileWritersRunNonstop_completes() throws Exception
+    {
+        // given
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        final AtomicBoolean isRunning = new AtomicBoolean(true);
+        final Runnable countWriter = () -> store.update(COUNT,
+            state -> state.in(COUNT, 0).setInt(state.getInt(COUNT) + 1));
+        final Runnable pojoCountWriter = () -> store.update(POJO_COUNT,
+            state -> state.in(POJO_COUNT, 0).setInt(state.getInt(POJO_COUNT) + 1));
+
+        try
+        {
+            final List<Future<?>> writers = Stream.of(countWriter, pojoCountWriter) //
+                .map(writer -> executor.submit(() -> {
+                    while (isRunning.get())
+                    {
+                        writer.run();
+                    }
+                })) //
+                .collect(Collectors.toList());
+
+            // when
+            int previousCount = 0;
+            for (int i = 0; i < 1000; i++)
+            {
+                final Integer count = store.snapshot().get(COUNT);
+
+                // then
+                final int currentCount = count == null
+                    ? 0
+                    : count;
+                assertThat(currentCount >= previousCount, is(true));
+                previousCount = currentCount;
+            }
+
+            isRunning.set(false);
+            for (Future<?> writer : writers)
+            {
+                writer.get();
+            }
+        }
+        finally
+        {
+            isRunning.set(false);
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void byTopLevelProperty_createsShardsOnlyForGetters() throws Exception
+    {
+        // when
+        final ShardedStore<Titled> store = ShardedStore.byTopLevelProperty(new Immutable<>(Titled.class));
+
+        // then
+        assertThat(store.shardCount(), is(2));
+    }
+
+    private interface Titled
+    {
+        String title();
+
+        default String upperCaseTitle()
+        {
+            return title().toUpperCase();
+        }
+
+        static String untitled()
+        {
+            return "untitled";
+        }
+    }
+
+    private interface POJO
+    {
+        String title();
+
+        int count();
+
+        POJO pojo();
+    }
+}
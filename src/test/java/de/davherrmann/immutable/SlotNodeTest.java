@@ -0,0 +1,211 @@
+package de.davherrmann.immutable;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+
+public class SlotNodeTest
+{
+    private final Immutable<POJO> immutable = Immutable.withSchema(POJO.class);
+    private final POJO path = immutable.path();
+
+    @Test
+    public void withSchema_storesValuesInSlotNodes() throws Exception
+    {
+        // when
+        final Immutable<POJO> newImmutable = immutable //
+            .in(path::title).set("Foo") //
+            .in(path.pojo()::title).set("Bar");
+
+        // then
+        assertThat(newImmutable.values(), is(instanceOf(SlotNode.class)));
+        assertThat(newImmutable.values().get("pojo"), is(instanceOf(SlotNode.class)));
+        assertThat(newImmutable.asObject().pojo().title(), is("Bar"));
+        assertThat(newImmutable.get(path::title), is("Foo"));
+    }
+
+    @Test
+    public void withSchema_isEqualToImmutableWithoutSchema() throws Exception
+    {
+        // given
+        final Immutable<POJO> immutableWithoutSchema = new Immutable<>(POJO.class);
+
+        // when / then
+        assertEquals( //
+            immutableWithoutSchema //
+                .in(path.pojo()::title).set("Foo") //
+                .inList(path::titles).set(newArrayList("Bar")), //
+            immutable //
+                .in(path.pojo()::title).set("Foo") //
+                .inList(path::titles).set(newArrayList("Bar")));
+    }
+
+    @Test
+    public void merge_convertsNodesIntoSlotNodes() throws Exception
+    {
+        // given
+        final Immutable<POJO> other = new Immutable<>(POJO.class).in(path.pojo()::title).set("Foo");
+
+        // when
+        final Immutable<POJO> newImmutable = immutable.merge(other);
+
+        // then
+        assertThat(newImmutable.get(path.pojo()::title), is("Foo"));
+    }
+
+    @Test
+    public void with_keepsKeysOutsideOfSchema() throws Exception
+    {
+        // given
+        final SlotNode node = Schema.of(POJO.class).emptyNode();
+
+        // when
+        final SlotNode newNode = node.with("title", "Foo").with("unknown", "Bar");
+
+        // then
+        assertThat(newNode, is(ImmutableMap.<String, Object>of("immutableNode", true, "title", "Foo", "unknown",
+            "Bar")));
+        assertThat(newNode.without("title").without("unknown"), is(node));
+    }
+
+    @Test
+    public void hashCodeAndEquals_matchTrieNodes() throws Exception
+    {
+        // given
+        final Immutable<POJO> immutableWithoutSchema = new Immutable<POJO>(POJO.class) //
+            .in(path.pojo()::title).set("Foo") //
+            .in(path::title).set("Bar");
+
+        // when
+        final Immutable<POJO> newImmutable = immutable //
+            .in(path.pojo()::title).set("Foo") //
+            .in(path::title).set("Bar");
+
+        // then
+        assertThat(newImmutable.values().hashCode(), is(immutableWithoutSchema.values().hashCode()));
+        assertThat(newImmutable.values(), is(immutableWithoutSchema.values()));
+        assertThat(immutableWithoutSchema.values(), is(newImmutable.values()));
+        assertThat(newImmutable.in(path::title).set("Baz").values(), is(not(newImmutable.values())));
+    }
+
+    @Test
+    public void clear_keepsSchema() throws Exception
+    {
+        // when
+        final Immutable<POJO> clearedImmutable = immutable.in(path::title).set("Foo").clear();
+
+        // then
+        assertThat(clearedImmutable.values(), is(instanceOf(SlotNode.class)));
+        assertThat(clearedImmutable.values().size(), is(1));
+    }
+
+    @Test
+    public void setInt_storesValueUnboxed() throws Exception
+    {
+        // when
+        final Immutable<POJO> newImmutable = immutable //
+            .in(path::count).setInt(42) //
+            .in(path.pojo()::total).setLong(Long.MAX_VALUE) //
+            .in(path::ratio).setDouble(1.5) //
+            .in(path::done).setBoolean(true);
+
+        // then
+        assertThat(newImmutable.getInt(Path.of("count")), is(42));
+        assertThat(newImmutable.getLong(Path.of("pojo", "total")), is(Long.MAX_VALUE));
+        assertThat(newImmutable.getDouble(Path.of("ratio")), is(1.5));
+        assertThat(newImmutable.getBoolean(Path.of("done")), is(true));
+        assertThat(newImmutable.get(path::count), is(42));
+        assertThat(newImmutable.asObject().pojo().total(), is(Long.MAX_VALUE));
+        assertThat(newImmutable.asObject().ratio(), is(1.5));
+        assertThat(newImmutable.asObject().done(), is(true));
+    }
+
+    @Test
+    public void getInt_returnsDefaultForMissingValues() throws Exception
+    {
+        // when / then
+        assertThat(immutable.getInt(Path.of("count")), is(0));
+        assertThat(immutable.getLong(Path.of("pojo", "total")), is(0L));
+        assertThat(immutable.getDouble(Path.of("ratio")), is(0.0));
+        assertThat(immutable.getBoolean(Path.of("done")), is(false));
+        assertThat(immutable.asObject().count(), is(0));
+    }
+
+    @Test
+    public void getInt_readsBoxedValuesWithoutSchema() throws Exception
+    {
+        // given
+        final Immutable<POJO> immutableWithoutSchema = new Immutable<>(POJO.class);
+
+        // when
+        final Immutable<POJO> newImmutable = immutableWithoutSchema //
+            .in(path::count).setInt(42) //
+            .in(path::ratio).set(2.5);
+
+        // then
+        assertThat(newImmutable.getInt(Path.of("count")), is(42));
+        assertThat(newImmutable.getDouble(Path.of("ratio")), is(2.5));
+    }
+
+    @Test
+    public void setInt_withSameValue_returnsSameInstance() throws Exception
+    {
+        // given
+        final Immutable<POJO> newImmutable = immutable.in(path::count).setInt(42).in(path::ratio).set(1.5);
+
+        // when / then
+        assertThat(newImmutable.in(path::count).setInt(42), is(sameInstance(newImmutable)));
+        assertThat(newImmutable.in(path::count).set(42), is(sameInstance(newImmutable)));
+        assertThat(newImmutable.in(path::ratio).setDouble(1.5), is(sameInstance(newImmutable)));
+    }
+
+    @Test
+    public void unboxedValues_hashCodeAndEquals_matchTrieNodes() throws Exception
+    {
+        // given
+        final Immutable<POJO> immutableWithoutSchema = new Immutable<POJO>(POJO.class) //
+            .in(path::count).set(42) //
+            .in(path::ratio).set(-0.0) //
+            .in(path.pojo()::done).set(true);
+
+        // when
+        final Immutable<POJO> newImmutable = immutable //
+            .in(path::count).setInt(42) //
+            .in(path::ratio).setDouble(-0.0) //
+            .in(path.pojo()::done).setBoolean(true);
+
+        // then
+        assertThat(newImmutable.values().hashCode(), is(immutableWithoutSchema.values().hashCode()));
+        assertThat(newImmutable.values(), is(immutableWithoutSchema.values()));
+        assertThat(immutableWithoutSchema.values(), is(newImmutable.values()));
+        assertThat(newImmutable.in(path::ratio).setDouble(0.0).values(), is(not(newImmutable.values())));
+        assertThat(newImmutable.changes(immutableWithoutSchema).count(), is(0L));
+    }
+
+    private interface POJO
+    {
+        String title();
+
+        int count();
+
+        long total();
+
+        double ratio();
+
+        boolean done();
+
+        List<String> titles();
+
+        POJO pojo();
+    }
+}
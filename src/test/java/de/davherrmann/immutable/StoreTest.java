@@ -0,0 +1,132 @@
+package de.davherrmann.immutable;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class StoreTest
+{
+    private final Store<POJO> store = new Store<>(new Immutable<>(POJO.class));
+    private final POJO path = store.path();
+    private final List<String> notifications = newArrayList();
+
+    @Test
+    public void update_notifiesListenersOfChangedPath() throws Exception
+    {
+        // given
+        store.subscribe(path::title, (oldState, newState) -> notifications.add(newState.get(path::title)));
+        store.subscribe(path.pojo()::title, (oldState, newState) -> notifications.add("pojo"));
+
+        // when
+        final Immutable<POJO> newState = store.update(state -> state.in(path::title).set("Foo"));
+
+        // then
+        assertThat(notifications, is(newArrayList("Foo")));
+        assertThat(store.state(), is(sameInstance(newState)));
+    }
+
+    @Test
+    public void update_notifiesListenersOfParentPaths() throws Exception
+    {
+        // given
+        store.subscribe(Path.root(), (oldState, newState) -> notifications.add("root"));
+        store.subscribe(path::pojo, (oldState, newState) -> notifications.add("pojo"));
+        store.subscribe(path.pojo()::pojo, (oldState, newState) -> notifications.add("pojo.pojo"));
+
+        // when
+        store.update(state -> state.in(path.pojo()::title).set("Foo"));
+
+        // then
+        assertThat(notifications, is(newArrayList("root", "pojo")));
+    }
+
+    @Test
+    public void update_notifiesListenersBelowReplacedNode() throws Exception
+    {
+        // given
+        store.update(state -> state.in(path.pojo()::title).set("Foo"));
+        store.subscribe(path.pojo()::title,
+            (oldState, newState) -> notifications.add(oldState.get(path.pojo()::title) + "->" //
+                + newState.get(path.pojo()::title)));
+
+        // when
+        store.update(Immutable::clear);
+
+        // then
+        assertThat(notifications, is(newArrayList("Foo->null")));
+    }
+
+    @Test
+    public void update_withoutChanges_notifiesNoListener() throws Exception
+    {
+        // given
+        store.update(state -> state.in(path::title).set("Foo"));
+        store.subscribe(path::title, (oldState, newState) -> notifications.add("title"));
+
+        // when
+        store.update(state -> state.in(path::title).set("Foo"));
+        store.update(state -> state.in(path::title).set(new String("Foo")));
+
+        // then
+        assertThat(notifications, is(newArrayList()));
+    }
+
+    @Test
+    public void unsubscribe_removesListener() throws Exception
+    {
+        // given
+        final Subscription subscription = store.subscribe(path::title, (oldState, newState) -> notifications.add(
+            "title"));
+
+        // when
+        subscription.unsubscribe();
+        store.update(state -> state.in(path::title).set("Foo"));
+
+        // then
+        assertThat(notifications, is(newArrayList()));
+    }
+
+    @Test
+    public void update_callsOnlyAffectedListeners() throws Exception
+    {
+        // given
+        final AtomicInteger calls = new AtomicInteger();
+        for (int i = 0; i < 1000; i++)
+        {
+            store.subscribe(path.pojo()::title, (oldState, newState) -> calls.incrementAndGet());
+        }
+        store.subscribe(path::title, (oldState, newState) -> calls.incrementAndGet());
+
+        // when
+        store.update(state -> state.in(path::title).set("Foo"));
+
+        // then
+        assertThat(calls.get(), is(1));
+    }
+
+    @Test
+    public void update_callsListenersOutsideOfLock() throws Exception
+    {
+        // given
+        store.subscribe(path::title, (oldState, newState) -> notifications.add("locked: " + Thread.holdsLock(store)));
+
+        // when
+        store.update(state -> state.in(path::title).set("Foo"));
+
+        // then
+        assertThat(notifications, is(newArrayList("locked: false")));
+    }
+
+    private interface POJO
+    {
+        String title();
+
+        POJO pojo();
+    }
+}